@@ -1,6 +1,6 @@
 BEGIN TRANSACTION;
 
-DROP TABLE if EXISTS department, employee, vendor, users, roles CASCADE;
+DROP TABLE if EXISTS department, employee, vendor, users, roles, token_revocation, cache_version, audit_log, punch, employee_rate_history CASCADE;
 
 CREATE TABLE department (
     department_id serial PRIMARY KEY,
@@ -14,23 +14,77 @@ CREATE TABLE employee (
     leave_date DATE,
     phone_number VARCHAR(20) NOT NULL,
     hourly_rate DECIMAL NOT NULL,
-    department_id INTEGER REFERENCES department(department_id)
+    department_id INTEGER REFERENCES department(department_id),
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT employee_minimum_hourly_rate CHECK (hourly_rate >= 13.00)
 );
 
+CREATE INDEX employee_department_id ON employee (department_id);
+
+-- Every hourly rate an employee has had, valid from valid_from until the employee's next row. Rows are
+-- written by a trigger in the same transaction as the insert or update that sets the rate, whichever
+-- statement does it. There is no foreign key, so the history outlives a deleted employee.
+CREATE TABLE employee_rate_history (
+    change_id bigserial PRIMARY KEY,
+    employee_id INTEGER NOT NULL,
+    hourly_rate DECIMAL NOT NULL,
+    valid_from TIMESTAMPTZ NOT NULL
+);
+
+-- An as-of lookup is a single descent to the employee's last row at or before the time, however long
+-- the history grows, and reads the rate from the index without visiting the table
+CREATE INDEX employee_rate_history_as_of ON employee_rate_history (employee_id, valid_from DESC, change_id DESC)
+    INCLUDE (hourly_rate);
+
+-- A new employee's rate is valid from their hire date, a changed rate from the time of the change
+CREATE OR REPLACE FUNCTION record_employee_rate() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND NEW.hourly_rate = OLD.hourly_rate THEN
+        RETURN NULL;
+    END IF;
+    INSERT INTO employee_rate_history (employee_id, hourly_rate, valid_from)
+    VALUES (NEW.employee_id, NEW.hourly_rate,
+            CASE WHEN TG_OP = 'INSERT' THEN LEAST(NEW.hire_date::timestamptz, now()) ELSE now() END);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employee_rate_history AFTER INSERT OR UPDATE OF hourly_rate ON employee
+    FOR EACH ROW EXECUTE FUNCTION record_employee_rate();
+
+-- The rate history is append-only. A reset that reuses employee ids must clear it as well, or the new
+-- employees inherit the old rates: disable employee_rate_history_append_only, truncate and re-enable it in
+-- one transaction. Bulk loads should disable the employee_rate_history trigger around the COPY, which
+-- would otherwise fire once per row, and write the hire-date rows with one INSERT ... SELECT afterwards.
+-- The synthetic data generator does both.
+CREATE OR REPLACE FUNCTION reject_rate_history_change() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'employee_rate_history is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employee_rate_history_append_only BEFORE UPDATE OR DELETE OR TRUNCATE ON employee_rate_history
+    FOR EACH STATEMENT EXECUTE FUNCTION reject_rate_history_change();
+
 CREATE TABLE vendor (
     vendor_id serial PRIMARY KEY,
     vendor_name VARCHAR(255) NOT NULL,
     contact_name VARCHAR(255) NOT NULL,
     address VARCHAR(255) NOT NULL,
     phone_number VARCHAR(20) NOT NULL,
-    department_id INTEGER REFERENCES department(department_id)
+    department_id INTEGER REFERENCES department(department_id),
+    version BIGINT NOT NULL DEFAULT 0
 
 );
 
+CREATE INDEX vendor_department_id ON vendor (department_id);
+
 CREATE TABLE users (
     username VARCHAR(255) PRIMARY KEY,
     password VARCHAR(255) NOT NULL,
-    phone_number VARCHAR (20) NOT NULL
+    phone_number VARCHAR (20) NOT NULL,
+    -- store the user's tokens are bound to through their store claim, null for the default store
+    store_id VARCHAR(64)
 );
 
 CREATE TABLE roles (
@@ -39,11 +93,106 @@ CREATE TABLE roles (
     PRIMARY KEY (username, role)
 );
 
+-- Last time the tokens of each user were revoked, because a role was granted or removed, the user was bound
+-- to another store or deleted. Tokens issued before it carry old roles or a stale store and are refused by
+-- every app instance. Rows outlive their user, and there is one per user, so the table stays small.
+CREATE TABLE token_revocation (
+    username VARCHAR(255) PRIMARY KEY,
+    revoked_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX token_revocation_revoked_at ON token_revocation (revoked_at);
+
+CREATE TABLE cache_version (
+    table_name VARCHAR(63) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO cache_version (table_name) VALUES ('department'), ('vendor'), ('users'), ('token_revocation');
+
+-- Bumps the table version and tells every app instance to drop its cached lookups once the write commits
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    new_version BIGINT;
+BEGIN
+    UPDATE cache_version SET version = version + 1 WHERE table_name = TG_TABLE_NAME RETURNING version INTO new_version;
+    PERFORM pg_notify('cache_invalidation', TG_TABLE_NAME || ':' || new_version);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER department_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON department
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
+CREATE TRIGGER vendor_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON vendor
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
+-- Users are not cached, but the login username filter of every instance learns of new users this way
+CREATE TRIGGER users_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON users
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
+-- Records that the tokens of a user issued until now are revoked, whichever instance made the change
+CREATE OR REPLACE FUNCTION record_token_revocation() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO token_revocation (username, revoked_at)
+    VALUES (CASE WHEN TG_OP = 'INSERT' THEN NEW.username ELSE OLD.username END, clock_timestamp())
+    ON CONFLICT (username) DO UPDATE SET revoked_at = EXCLUDED.revoked_at;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER roles_token_revocation AFTER INSERT OR DELETE ON roles
+    FOR EACH ROW EXECUTE FUNCTION record_token_revocation();
+
+CREATE TRIGGER users_token_revocation AFTER DELETE OR UPDATE OF store_id ON users
+    FOR EACH ROW EXECUTE FUNCTION record_token_revocation();
+
+-- Revocations reach the token cache of every instance this way
+CREATE TRIGGER token_revocation_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON token_revocation
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
+CREATE TABLE audit_log (
+    audit_id bigserial PRIMARY KEY,
+    occurred_at TIMESTAMPTZ NOT NULL,
+    actor VARCHAR(255) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    target VARCHAR(255) NOT NULL,
+    detail TEXT
+);
+
+CREATE INDEX audit_log_occurred_at ON audit_log (occurred_at);
+CREATE INDEX audit_log_actor ON audit_log (actor, audit_id);
+CREATE INDEX audit_log_target ON audit_log (target, audit_id);
+
+-- The audit trail is append-only
+CREATE OR REPLACE FUNCTION reject_audit_log_change() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'audit_log is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER audit_log_append_only BEFORE UPDATE OR DELETE OR TRUNCATE ON audit_log
+    FOR EACH STATEMENT EXECUTE FUNCTION reject_audit_log_change();
+
+-- Time-clock punches, written in batches by the punch ingestion pipeline. punch_id is assigned when the
+-- punch is accepted, so a batch replayed from the write-ahead log inserts nothing twice. Punches go with
+-- their employee, so deleting an employee or a department keeps working.
+CREATE TABLE punch (
+    punch_id UUID PRIMARY KEY,
+    employee_id INTEGER NOT NULL REFERENCES employee(employee_id) ON DELETE CASCADE,
+    direction VARCHAR(3) NOT NULL CHECK (direction IN ('IN', 'OUT')),
+    punched_at TIMESTAMPTZ NOT NULL,
+    received_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX punch_employee_punched_at ON punch (employee_id, punched_at);
+
 INSERT INTO users(username, password, phone_number) VALUES ('admin', '$2a$10$UEmSXr4MEQkvoEXsYjJNXOpMueUSPvFNe0Q6kafyz3iED9WoQNOnC', '000-000-0000');
 INSERT INTO users(username, password, phone_number) VALUES ('reader', '$2a$10$HT7hOPaRWo9zN/NQ9N.vueedCezUmJH/eKOuOrsoJSr4Cs22XJG8C', '000-000-0000');
 
 INSERT INTO roles(username, role) VALUES ('admin', 'ADMIN');
 INSERT INTO roles(username, role) VALUES ('reader', 'READER');
+-- POST /punch needs the TIMECLOCK role, granted to the accounts of the time clocks through /users/{username}/roles
 
 INSERT INTO department (department_name) VALUES ('Management');
 INSERT INTO department (department_name) VALUES ('Sales');
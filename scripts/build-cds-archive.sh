@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Unpacks the executable jar into a plain classpath and records a class-data-sharing archive for it.
+# Run by the fast-start Maven profile; scripts/run-fast-start.sh launches the result.
+#
+# usage: build-cds-archive.sh <executable jar> <output directory>
+set -euo pipefail
+
+JAR=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+OUT=$2
+
+rm -rf "$OUT"
+mkdir -p "$OUT/unpacked" "$OUT/lib"
+(cd "$OUT/unpacked" && jar -xf "$JAR")
+
+START_CLASS=$(sed -n 's/^Start-Class: *//p' "$OUT/unpacked/META-INF/MANIFEST.MF" | tr -d '\r')
+
+# CDS only archives classes loaded from jars, so the application classes are jarred again
+jar -cf "$OUT/application.jar" -C "$OUT/unpacked/BOOT-INF/classes" .
+cp "$OUT"/unpacked/BOOT-INF/lib/*.jar "$OUT/lib/"
+rm -rf "$OUT/unpacked"
+
+# the classpath must be identical when the archive is recorded and when it is used,
+# so it is written once, in a fixed order, to an argument file both launches read
+CLASSPATH="$OUT/application.jar"
+for lib in $(ls "$OUT/lib" | LC_ALL=C sort); do
+    CLASSPATH="$CLASSPATH:$OUT/lib/$lib"
+done
+printf -- '-cp %s\n%s\n' "$CLASSPATH" "$START_CLASS" > "$OUT/launch.args"
+
+# training run: spring.context.exit stops the JVM once the context is refreshed, before the
+# web server starts or anything connects to the database
+java -XX:ArchiveClassesAtExit="$OUT/application.jsa" \
+    -Dspring.aot.enabled=true \
+    -Dspring.context.exit=onRefresh \
+    @"$OUT/launch.args"
+
+echo "CDS archive written to $OUT/application.jsa"
@@ -0,0 +1,16 @@
+#!/usr/bin/env bash
+# Starts the application in fast-start mode: AOT-generated bean definitions and the class-data-sharing
+# archive built by mvn -Pfast-start package. Arguments are passed on to the application.
+set -euo pipefail
+
+OUT=${FAST_START_DIR:-$(dirname "$0")/../target/fast-start}
+
+if [ ! -f "$OUT/application.jsa" ]; then
+    echo "No CDS archive in $OUT, build it with: mvn -Pfast-start package" >&2
+    exit 1
+fi
+
+exec java -XX:SharedArchiveFile="$OUT/application.jsa" \
+    -Dspring.aot.enabled=true \
+    ${JAVA_OPTS:-} \
+    @"$OUT/launch.args" "$@"
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Measures time from launch to the first served request, for the default and the fast-start mode.
+# Build both first with: mvn -Pfast-start package
+# The database must be reachable, as the probe is a real request.
+#
+# usage: startup-benchmark.sh [runs per mode] [probe path]
+set -euo pipefail
+
+RUNS=${1:-5}
+PROBE_PATH=${2:-/vendor}
+PORT=${PORT:-18080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/*.jar | grep -v -- '-plain' | head -1)
+
+now_millis() {
+    date +%s%3N
+}
+
+# starts one instance, waits until it answers the probe with any HTTP status, prints the elapsed millis
+measure() {
+    local start pid status
+    start=$(now_millis)
+    "$@" --server.port="$PORT" > /dev/null 2>&1 &
+    pid=$!
+    while true; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT$PROBE_PATH" || true)
+        if [ "$status" != "000" ]; then
+            break
+        fi
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "instance exited before serving a request" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    echo $(( $(now_millis) - start ))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+}
+
+report() {
+    local mode=$1
+    shift
+    local times=()
+    for _ in $(seq "$RUNS"); do
+        times+=("$(measure "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-10s median %5d ms   min %5d ms   max %5d ms   (%s runs)\n' "$mode" \
+        "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" \
+        "$(echo "$sorted" | head -1)" "$(echo "$sorted" | tail -1)" "$RUNS"
+}
+
+echo "time to first served request on $PROBE_PATH"
+report default java -jar "$JAR"
+report fast-start "$ROOT/scripts/run-fast-start.sh"
@@ -2,6 +2,9 @@ package com.example.AceHardwareStore;
 
 import com.example.AceHardwareStore.daos.UserDao;
 import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.security.UsernameFilter;
+import com.example.AceHardwareStore.stores.StoreJwtUser;
+import com.example.AceHardwareStore.stores.StoreProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -22,29 +25,48 @@ public class AceHardwareStoreUserDetailsService implements UserDetailsService {
      */
     private final UserDao userDao;
 
+    /**
+     * Refuses usernames that certainly do not exist without asking the database
+     */
+    private final UsernameFilter usernameFilter;
+
+    /**
+     * Store configuration, naming the store claim of the tokens
+     */
+    private final StoreProperties storeProperties;
+
     /**
      * Create a new instance of this class
      */
-    public AceHardwareStoreUserDetailsService(UserDao userDao) {
+    public AceHardwareStoreUserDetailsService(UserDao userDao, UsernameFilter usernameFilter,
+                                              StoreProperties storeProperties) {
         this.userDao = userDao;
+        this.usernameFilter = usernameFilter;
+        this.storeProperties = storeProperties;
     }
 
     /**
      * Load a user by their username
      *
      * @param username The username to load
-     * @return The user details as a JwtUser
+     * @return The user details as a JwtUser whose tokens name the store of the user
      * @throws UsernameNotFoundException If the user is not found
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (usernameFilter.refuse(username)) {
+            throw new UsernameNotFoundException("User not found");
+        }
+
+        long start = System.nanoTime();
         User user = userDao.getUser(username);
 
         if (user == null) {
+            usernameFilter.recordMiss(username, System.nanoTime() - start);
             throw new UsernameNotFoundException("User not found");
         }
 
-        JwtUser jwtUser = new JwtUser();
+        JwtUser jwtUser = new StoreJwtUser(storeProperties.getClaim(), userDao.getStoreOfUser(user.getUsername()));
 
         jwtUser.setUsername(user.getUsername());
         jwtUser.setPassword(user.getPassword());
@@ -0,0 +1,23 @@
+package com.example.AceHardwareStore.audit;
+
+/**
+ * Kinds of admin mutations recorded in the audit log
+ */
+public enum AuditAction {
+    EMPLOYEE_CREATE,
+    EMPLOYEE_UPDATE,
+    EMPLOYEE_PHONE_NUMBER_CHANGE,
+    EMPLOYEE_RATE_CHANGE,
+    EMPLOYEE_DELETE,
+    VENDOR_CREATE,
+    VENDOR_UPDATE,
+    VENDOR_DELETE,
+    DEPARTMENT_CREATE,
+    DEPARTMENT_DELETE,
+    USER_CREATE,
+    USER_UPDATE,
+    USER_DELETE,
+    USER_ROLE_GRANT,
+    USER_ROLE_REVOKE,
+    USER_STORE_ASSIGN
+}
@@ -0,0 +1,240 @@
+package com.example.AceHardwareStore.audit;
+
+import com.example.AceHardwareStore.daos.AuditDao;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.models.AuditEvent;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records admin mutations without making the request wait for the insert.
+ * Events go to a bounded lock-free queue that a background thread writes to audit_log in batches.
+ * Recording never fails the request: the mutation has already committed when it is audited.
+ */
+@Component
+@EnableConfigurationProperties(AuditProperties.class)
+public class AuditLog implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    /**
+     * How long shutdown waits for the queue to be written
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    private final AuditDao auditDao;
+    private final AuditProperties properties;
+
+    /**
+     * Events waiting to be written
+     */
+    private final Queue<QueuedEvent> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of events in the queue, reserved before an event is added so the capacity is never exceeded
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new AuditLog and starts its writer thread
+     *
+     * @param auditDao The audit data access object
+     * @param properties The audit configuration
+     */
+    public AuditLog(AuditDao auditDao, AuditProperties properties) {
+        this.auditDao = auditDao;
+        this.properties = properties;
+        this.flusher = new Thread(this::flushLoop, "audit-log-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Records a mutation made by the current user in the current store
+     *
+     * @param action The kind of mutation
+     * @param target The record the mutation applies to
+     * @param detail The mutation details, may be null
+     */
+    public void record(AuditAction action, String target, Object detail) {
+        AuditEvent event = new AuditEvent(0, Instant.now(), currentActor(), action.name(), target,
+                detail == null ? null : String.valueOf(detail));
+        QueuedEvent queuedEvent = new QueuedEvent(StoreContext.current(), event);
+        if (reserveSlot()) {
+            queue.offer(queuedEvent);
+            if (queued.get() >= properties.getBatchSize()) {
+                LockSupport.unpark(flusher);
+            }
+            return;
+        }
+        if (properties.getOverflowPolicy() == AuditProperties.OverflowPolicy.DROP) {
+            dropped.increment();
+            return;
+        }
+        try {
+            write(List.of(queuedEvent));
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Writing audit event {} {} on the request thread failed, the event is lost",
+                    event.getAction(), event.getTarget(), e);
+        }
+    }
+
+    /**
+     * Returns the number of events waiting to be written
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of events discarded because the queue was full
+     *
+     * @return The dropped event count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of events lost because writing them on the request thread failed
+     *
+     * @return The failed event count
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of events written to the database
+     *
+     * @return The written event count
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "audit";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", getQueueDepth());
+        metrics.put("written", getWrittenCount());
+        metrics.put("dropped", getDroppedCount());
+        metrics.put("failed", getFailedCount());
+        return metrics;
+    }
+
+    /**
+     * Stops accepting work and writes what is still queued
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = queued.get();
+            if (current >= properties.getQueueCapacity()) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes queued events until shutdown. A failed batch is kept and retried, new events wait in the queue.
+     */
+    private void flushLoop() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushInterval().toMillis());
+        List<QueuedEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (true) {
+            QueuedEvent next;
+            while (batch.size() < properties.getBatchSize() && (next = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            try {
+                write(batch);
+                batch.clear();
+            } catch (RuntimeException e) {
+                log.warn("Writing {} audit events failed, retrying", batch.size(), e);
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Writes events to the audit log of the store each was recorded in
+     *
+     * @param events The events to write
+     */
+    private void write(List<QueuedEvent> events) {
+        Map<String, List<AuditEvent>> byStore = new LinkedHashMap<>();
+        for (QueuedEvent queuedEvent : events) {
+            byStore.computeIfAbsent(queuedEvent.storeId(), storeId -> new ArrayList<>()).add(queuedEvent.event());
+        }
+        for (Map.Entry<String, List<AuditEvent>> entry : byStore.entrySet()) {
+            StoreContext.callInStore(entry.getKey(), () -> {
+                auditDao.addAuditEvents(entry.getValue());
+                return null;
+            });
+            written.add(entry.getValue().size());
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
+
+    /**
+     * Event waiting to be written, with the store it belongs to
+     */
+    private record QueuedEvent(String storeId, AuditEvent event) {
+    }
+}
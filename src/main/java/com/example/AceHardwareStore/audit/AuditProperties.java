@@ -0,0 +1,50 @@
+package com.example.AceHardwareStore.audit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the audit log, bound from ace.audit.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.audit")
+public class AuditProperties {
+    /**
+     * Maximum number of events waiting to be written
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Maximum number of events written by one batch insert
+     */
+    private int batchSize = 500;
+
+    /**
+     * Longest time an event waits before its batch is written
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * What happens to an event when the queue is full
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_WRITES;
+
+    /**
+     * Backpressure policies of the audit queue
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the event and count it as dropped, the request never waits
+         */
+        DROP,
+        /**
+         * Write the event on the request thread, so nothing is lost while the database is up but the
+         * request pays the insert. A failed write is logged and counted, the request still succeeds.
+         */
+        CALLER_WRITES
+    }
+}
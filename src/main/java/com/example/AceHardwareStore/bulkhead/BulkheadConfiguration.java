@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.bulkhead;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Wires the bulkheads between endpoint classes
+ */
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadConfiguration implements WebMvcConfigurer {
+    /**
+     * The bulkheads of each endpoint class
+     */
+    private final Bulkheads bulkheads;
+
+    /**
+     * Creates a new BulkheadConfiguration
+     *
+     * @param bulkheads The bulkheads of each endpoint class
+     */
+    public BulkheadConfiguration(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new BulkheadInterceptor(bulkheads));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.AceHardwareStore.bulkhead;
+
+/**
+ * Holds the endpoint class the current thread is serving.
+ * The store routing data source reads it to pick the connection pool of the class.
+ */
+public final class BulkheadContext {
+    /**
+     * Endpoint class bound to the current thread
+     */
+    private static final ThreadLocal<EndpointClass> CURRENT_CLASS = new ThreadLocal<>();
+
+    private BulkheadContext() {
+    }
+
+    /**
+     * Returns the endpoint class bound to the current thread
+     *
+     * @return The endpoint class, or null outside of a classified request
+     */
+    public static EndpointClass current() {
+        return CURRENT_CLASS.get();
+    }
+
+    /**
+     * Binds an endpoint class to the current thread
+     *
+     * @param endpointClass The endpoint class, or null to use the shared pools
+     */
+    public static void set(EndpointClass endpointClass) {
+        if (endpointClass == null) {
+            CURRENT_CLASS.remove();
+        } else {
+            CURRENT_CLASS.set(endpointClass);
+        }
+    }
+
+    /**
+     * Removes the endpoint class from the current thread
+     */
+    public static void clear() {
+        CURRENT_CLASS.remove();
+    }
+}
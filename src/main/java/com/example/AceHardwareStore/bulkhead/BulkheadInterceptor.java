@@ -0,0 +1,67 @@
+package com.example.AceHardwareStore.bulkhead;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Runs each controller call inside the bulkhead of its endpoint class
+ */
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+    /**
+     * Request attribute holding the class whose slot the request took
+     */
+    private static final String ENTERED = BulkheadInterceptor.class.getName() + ".ENTERED";
+
+    /**
+     * The bulkheads of each endpoint class
+     */
+    private final Bulkheads bulkheads;
+
+    /**
+     * Creates a new BulkheadInterceptor
+     *
+     * @param bulkheads The bulkheads of each endpoint class
+     */
+    public BulkheadInterceptor(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!bulkheads.isEnabled() || !(handler instanceof HandlerMethod handlerMethod)
+                || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        EndpointClass endpointClass = bulkheads.classify(handlerMethod);
+        if (endpointClass == null) {
+            return true;
+        }
+        bulkheads.enter(endpointClass);
+        request.setAttribute(ENTERED, endpointClass);
+        BulkheadContext.set(endpointClass);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the response is written by another thread from here on, the request thread is free again
+        exit(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        exit(request);
+    }
+
+    private void exit(HttpServletRequest request) {
+        Object entered = request.getAttribute(ENTERED);
+        if (entered instanceof EndpointClass endpointClass) {
+            request.removeAttribute(ENTERED);
+            BulkheadContext.clear();
+            bulkheads.exit(endpointClass);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.AceHardwareStore.bulkhead;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration of the bulkheads between endpoint classes, bound from ace.bulkheads.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.bulkheads")
+public class BulkheadProperties {
+    /**
+     * Whether requests are confined to the limits and pools of their endpoint class
+     */
+    private boolean enabled = true;
+
+    /**
+     * Limits keyed by endpoint class, e.g. ace.bulkheads.classes.public.max-concurrent
+     */
+    private Map<EndpointClass, Limit> classes = new EnumMap<>(Map.of(
+            EndpointClass.PUBLIC, new Limit(4, Duration.ofMillis(50), 4),
+            EndpointClass.READER, new Limit(4, Duration.ofMillis(200), 4),
+            EndpointClass.ADMIN, new Limit(2, Duration.ofSeconds(1), 2)
+    ));
+
+    /**
+     * Returns the limit of an endpoint class
+     *
+     * @param endpointClass The endpoint class
+     * @return The limit, the default one if the class is not configured
+     */
+    public Limit getLimit(EndpointClass endpointClass) {
+        return classes.getOrDefault(endpointClass, new Limit());
+    }
+
+    /**
+     * Limits of one endpoint class
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        /**
+         * Requests of the class served at the same time. Keep it at pool-size, so an admitted request
+         * finds a free connection instead of queueing in the pool past max-wait, and keep the sum
+         * below server.tomcat.threads.max
+         */
+        private int maxConcurrent = 2;
+        /**
+         * How long a request waits for a free slot before it is rejected with 503
+         */
+        private Duration maxWait = Duration.ofMillis(100);
+        /**
+         * Connections in the pool of the class for each store, 0 to use the store's shared pool
+         */
+        private int poolSize = 2;
+    }
+}
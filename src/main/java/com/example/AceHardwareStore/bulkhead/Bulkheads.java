@@ -0,0 +1,173 @@
+package com.example.AceHardwareStore.bulkhead;
+
+import com.example.AceHardwareStore.exceptions.OverloadedException;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limits per endpoint class, so a flood of one class of request cannot take every
+ * request thread and every connection from the others. Each class has its own permits; its
+ * database work runs on its own connection pools, see {@link StoreRoutingDataSource}.
+ */
+@Component
+public class Bulkheads implements MetricsSource {
+    private final BulkheadProperties properties;
+    private final StoreRoutingDataSource dataSource;
+    private final Map<EndpointClass, Compartment> compartments = new EnumMap<>(EndpointClass.class);
+
+    /**
+     * Endpoint class of each handler method seen so far, empty for handlers without a rule
+     */
+    private final Map<Method, Optional<EndpointClass>> handlerClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new Bulkheads
+     *
+     * @param properties The bulkhead configuration
+     * @param dataSource The routing data source holding the pools of each class
+     */
+    public Bulkheads(BulkheadProperties properties, StoreRoutingDataSource dataSource) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            compartments.put(endpointClass, new Compartment(properties.getLimit(endpointClass)));
+        }
+    }
+
+    /**
+     * Returns the endpoint class of a handler from its @PreAuthorize rule, or the rule of its controller
+     *
+     * @param handler The handler method
+     * @return The endpoint class, or null if the handler has no rule and is not confined
+     */
+    public EndpointClass classify(HandlerMethod handler) {
+        return handlerClasses.computeIfAbsent(handler.getMethod(), method -> {
+            PreAuthorize rule = AnnotatedElementUtils.findMergedAnnotation(method, PreAuthorize.class);
+            if (rule == null) {
+                rule = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), PreAuthorize.class);
+            }
+            return Optional.ofNullable(rule).map(preAuthorize -> classify(preAuthorize.value()));
+        }).orElse(null);
+    }
+
+    /**
+     * Takes a slot of an endpoint class, waiting at most the configured time for one
+     *
+     * @param endpointClass The endpoint class
+     * @throws OverloadedException If the class stays saturated for the whole wait
+     */
+    public void enter(EndpointClass endpointClass) {
+        Compartment compartment = compartments.get(endpointClass);
+        boolean acquired;
+        try {
+            acquired = compartment.permits.tryAcquire(compartment.maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for a request slot");
+        }
+        if (!acquired) {
+            compartment.rejected.increment();
+            throw new OverloadedException("Too many " + endpointClass.name().toLowerCase() + " requests in progress, try again later");
+        }
+        compartment.admitted.increment();
+        compartment.peak.accumulateAndGet(compartment.active.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Returns a slot taken by {@link #enter(EndpointClass)}
+     *
+     * @param endpointClass The endpoint class
+     */
+    public void exit(EndpointClass endpointClass) {
+        Compartment compartment = compartments.get(endpointClass);
+        compartment.active.decrementAndGet();
+        compartment.permits.release();
+    }
+
+    /**
+     * Returns whether requests are confined to their class
+     *
+     * @return Whether the bulkheads are enabled
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "bulkheads";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        compartments.forEach((endpointClass, compartment) -> {
+            String prefix = endpointClass.name().toLowerCase() + ".";
+            metrics.put(prefix + "maxConcurrent", compartment.maxConcurrent);
+            metrics.put(prefix + "active", compartment.active.get());
+            metrics.put(prefix + "peakActive", compartment.peak.get());
+            metrics.put(prefix + "saturated", compartment.permits.availablePermits() == 0);
+            metrics.put(prefix + "admitted", compartment.admitted.sum());
+            metrics.put(prefix + "rejected", compartment.rejected.sum());
+            dataSource.getBulkheadPools(endpointClass).forEach((storeId, pool) -> {
+                HikariPoolMXBean stats = pool.getHikariPoolMXBean();
+                if (stats != null) {
+                    metrics.put(prefix + storeId + ".activeConnections", stats.getActiveConnections());
+                    metrics.put(prefix + storeId + ".idleConnections", stats.getIdleConnections());
+                    metrics.put(prefix + storeId + ".awaitingConnection", stats.getThreadsAwaitingConnection());
+                }
+            });
+        });
+        return metrics;
+    }
+
+    /**
+     * Maps a @PreAuthorize expression to an endpoint class: rules naming ADMIN are admin endpoints,
+     * permitAll is public and any other rule needs an authenticated reader
+     */
+    private static EndpointClass classify(String expression) {
+        if (expression.contains("ADMIN")) {
+            return EndpointClass.ADMIN;
+        }
+        if (expression.contains("permitAll")) {
+            return EndpointClass.PUBLIC;
+        }
+        return EndpointClass.READER;
+    }
+
+    /**
+     * Permits and counters of one endpoint class
+     */
+    private static final class Compartment {
+        private final int maxConcurrent;
+        private final long maxWaitNanos;
+        private final Semaphore permits;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        Compartment(BulkheadProperties.Limit limit) {
+            this.maxConcurrent = limit.getMaxConcurrent();
+            this.maxWaitNanos = limit.getMaxWait().toNanos();
+            this.permits = new Semaphore(limit.getMaxConcurrent());
+        }
+    }
+}
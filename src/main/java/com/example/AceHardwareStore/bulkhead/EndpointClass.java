@@ -0,0 +1,19 @@
+package com.example.AceHardwareStore.bulkhead;
+
+/**
+ * Classes of endpoint that are isolated from each other, derived from the @PreAuthorize rule of the handler
+ */
+public enum EndpointClass {
+    /**
+     * Endpoints open to anonymous callers
+     */
+    PUBLIC,
+    /**
+     * Endpoints for any authenticated user
+     */
+    READER,
+    /**
+     * Endpoints restricted to administrators
+     */
+    ADMIN
+}
@@ -0,0 +1,357 @@
+package com.example.AceHardwareStore.cache;
+
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process cache of lookups on rarely changing tables, kept coherent across instances.
+ * The database announces every committed write on the cache_invalidation channel, and a periodic
+ * comparison with the cache_version table clears anything a lost notification left behind.
+ */
+@Component
+@EnableConfigurationProperties(NearCacheProperties.class)
+public class NearCache implements DisposableBean {
+    /**
+     * Channel the cache_version triggers notify on
+     */
+    public static final String CHANNEL = "cache_invalidation";
+
+    private static final Logger log = LoggerFactory.getLogger(NearCache.class);
+
+    /**
+     * How long one wait for notifications may block before the listener checks for shutdown
+     */
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private final StoreRoutingDataSource dataSource;
+    private final StoreProperties storeProperties;
+    private final NearCacheProperties properties;
+    private final PgNotifications notifications;
+
+    /**
+     * Caches keyed by store id
+     */
+    private final Map<String, StoreCache> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Callbacks keyed by table, run with the store id when the database announces a change
+     */
+    private final Map<String, List<ChangeListener>> changeListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the version checks of every store
+     */
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new NearCache
+     *
+     * @param dataSource The routing data source
+     * @param storeProperties The store configuration
+     * @param properties The cache configuration
+     */
+    public NearCache(StoreRoutingDataSource dataSource, StoreProperties storeProperties, NearCacheProperties properties) {
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.properties = properties;
+        this.notifications = properties.isEnabled() ? new PgNotifications() : null;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "near-cache-version-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a copy of a cached value of the current store, loading it on a miss. The cached instance
+     * itself is never handed out, so callers may change what they get. Null results are not cached.
+     *
+     * @param table The table the value is read from
+     * @param key The key of the value within the table
+     * @param loader Loads the value from the database
+     * @param copier Copies a value, deeply enough that changing the copy leaves the value as it was
+     * @return The cached or loaded value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String table, Object key, Supplier<T> loader, UnaryOperator<T> copier) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        TableCache tableCache = storeCache(currentStoreId()).table(table);
+        Object cached = tableCache.entries.get(key);
+        if (cached != null) {
+            return copier.apply((T) cached);
+        }
+        long generation = tableCache.generation;
+        T value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        tableCache.putIfCurrent(key, value, generation, properties.getMaximumEntries());
+        return copier.apply(value);
+    }
+
+    /**
+     * Drops every cached value of a table in the current store. Called after local writes so the
+     * writing instance does not wait for its own notification.
+     *
+     * @param table The table that was written
+     */
+    public void invalidate(String table) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        StoreCache storeCache = stores.get(currentStoreId());
+        if (storeCache != null) {
+            storeCache.table(table).clear();
+        }
+    }
+
+    /**
+     * Registers a callback run with the store id whenever a table of that store is cleared because the
+     * database announced a change, whether it was written by this instance or another one. Callbacks run
+     * on the listener thread and must return quickly.
+     *
+     * @param table The table to watch
+     * @param listener Receives the id of the store whose table changed and the versions it changed between
+     */
+    public void addChangeListener(String table, ChangeListener listener) {
+        changeListeners.computeIfAbsent(table, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Starts listening for the changes of a store, which otherwise starts on its first cached read
+     *
+     * @param storeId The store
+     */
+    public void watch(String storeId) {
+        storeCache(storeId);
+    }
+
+    /**
+     * Tells whether the changes of a store are being received. While they are not, change listeners
+     * may have missed changes; they are called once listening resumes.
+     *
+     * @param storeId The store
+     * @return true if the store's notification connection is up
+     */
+    public boolean isListening(String storeId) {
+        StoreCache storeCache = stores.get(storeId);
+        return storeCache != null && storeCache.listening;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        scheduler.shutdownNow();
+        stores.values().forEach(storeCache -> storeCache.listener.interrupt());
+    }
+
+    private String currentStoreId() {
+        String storeId = StoreContext.current();
+        return storeId == null ? storeProperties.getDefaultStore() : storeId;
+    }
+
+    private StoreCache storeCache(String storeId) {
+        return stores.computeIfAbsent(storeId, id -> {
+            StoreCache storeCache = new StoreCache(id);
+            storeCache.listener.start();
+            long interval = properties.getVersionCheckInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(() -> checkVersions(storeCache), interval, interval, TimeUnit.MILLISECONDS);
+            return storeCache;
+        });
+    }
+
+    /**
+     * Keeps a LISTEN connection open for a store and clears tables as notifications arrive
+     *
+     * @param storeCache The cache of the store
+     */
+    private void listen(StoreCache storeCache) {
+        while (running) {
+            try (Connection connection = dataSource.getDataSource(storeCache.storeId).getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                storeCache.listening = true;
+                // notifications sent while nobody was listening are lost
+                storeCache.clearAll();
+                while (running) {
+                    for (String[] notification : notifications.poll(connection, POLL_TIMEOUT_MILLIS)) {
+                        handleNotification(storeCache, notification[1]);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                storeCache.listening = false;
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener for store {} failed, reconnecting", storeCache.storeId, e);
+                storeCache.clearAll();
+                try {
+                    Thread.sleep(properties.getReconnectDelay().toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies one notification, whose payload is the table name and its new version separated by a colon
+     */
+    private void handleNotification(StoreCache storeCache, String payload) {
+        int separator = payload == null ? -1 : payload.lastIndexOf(':');
+        if (separator < 0) {
+            storeCache.clearAll();
+            return;
+        }
+        try {
+            storeCache.onVersion(payload.substring(0, separator), Long.parseLong(payload.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            storeCache.clearAll();
+        }
+    }
+
+    /**
+     * Compares the versions seen so far with cache_version, clearing tables whose notification was missed
+     *
+     * @param storeCache The cache of the store
+     */
+    private void checkVersions(StoreCache storeCache) {
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource.getDataSource(storeCache.storeId));
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet("SELECT table_name, version FROM cache_version;");
+            while (rowSet.next()) {
+                storeCache.onVersion(rowSet.getString("table_name"), rowSet.getLong("version"));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cache version check for store {} failed", storeCache.storeId, e);
+            storeCache.clearAll();
+        }
+    }
+
+    /**
+     * Callback for changes of a watched table
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        /**
+         * Called when a table of a store is cleared. The versions are those of the cache_version row,
+         * every version after fromVersion up to toVersion was written since the last call. Either is
+         * null when unknown, after a reconnect or on the first version seen, and then any change may
+         * have been missed.
+         *
+         * @param storeId The store whose table changed
+         * @param fromVersion The version last seen, or null
+         * @param toVersion The version now seen, or null
+         */
+        void onChange(String storeId, Long fromVersion, Long toVersion);
+    }
+
+    /**
+     * Cached tables of one store
+     */
+    private class StoreCache {
+        private final String storeId;
+        private final Map<String, TableCache> tables = new ConcurrentHashMap<>();
+        /**
+         * Last version of each table seen in a notification or version check
+         */
+        private final Map<String, Long> knownVersions = new ConcurrentHashMap<>();
+        private final Thread listener;
+        /**
+         * Whether the LISTEN connection is up
+         */
+        private volatile boolean listening;
+
+        StoreCache(String storeId) {
+            this.storeId = storeId;
+            this.listener = new Thread(() -> listen(this), "near-cache-listener-" + storeId);
+            this.listener.setDaemon(true);
+        }
+
+        TableCache table(String table) {
+            return tables.computeIfAbsent(table, name -> new TableCache());
+        }
+
+        void onVersion(String table, long version) {
+            Long known = knownVersions.put(table, version);
+            if (known == null || known != version) {
+                table(table).clear();
+                notifyChange(table, known, version);
+            }
+        }
+
+        void clearAll() {
+            tables.values().forEach(TableCache::clear);
+            changeListeners.keySet().forEach(table -> notifyChange(table, null, null));
+        }
+
+        private void notifyChange(String table, Long fromVersion, Long toVersion) {
+            for (ChangeListener listener : changeListeners.getOrDefault(table, List.of())) {
+                try {
+                    listener.onChange(storeId, fromVersion, toVersion);
+                } catch (RuntimeException e) {
+                    log.warn("Change listener for table {} of store {} failed", table, storeId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cached values of one table. The generation changes on every clear, so a value loaded before
+     * a clear is never stored after it. Once the table is full, the oldest entry is evicted for each
+     * new one.
+     */
+    private static class TableCache {
+        private final Map<Object, Object> entries = new ConcurrentHashMap<>();
+        /**
+         * Keys in the order they were cached, only used under the lock
+         */
+        private final Deque<Object> insertionOrder = new ArrayDeque<>();
+        private volatile long generation;
+
+        synchronized void putIfCurrent(Object key, Object value, long loadedGeneration, int maximumEntries) {
+            if (loadedGeneration != generation) {
+                return;
+            }
+            if (entries.put(key, value) == null) {
+                insertionOrder.add(key);
+            }
+            while (entries.size() > maximumEntries && !insertionOrder.isEmpty()) {
+                entries.remove(insertionOrder.poll());
+            }
+        }
+
+        synchronized void clear() {
+            generation++;
+            entries.clear();
+            insertionOrder.clear();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.AceHardwareStore.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the vendor and department near-cache, bound from ace.cache.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.cache")
+public class NearCacheProperties {
+    /**
+     * Whether lookups are cached at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of cached entries per table and store, the oldest entry is evicted beyond it
+     */
+    private int maximumEntries = 10_000;
+
+    /**
+     * How often cached versions are compared with cache_version, which heals missed notifications
+     */
+    private Duration versionCheckInterval = Duration.ofSeconds(30);
+
+    /**
+     * Delay before a lost listener connection is opened again
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
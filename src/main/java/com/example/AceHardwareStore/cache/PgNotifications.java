@@ -0,0 +1,68 @@
+package com.example.AceHardwareStore.cache;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads LISTEN/NOTIFY notifications from a PostgreSQL connection.
+ * The driver is a runtime-only dependency, so its notification API is looked up by name.
+ */
+final class PgNotifications {
+    private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+    private static final String PG_NOTIFICATION_CLASS = "org.postgresql.PGNotification";
+
+    private final Class<?> pgConnectionClass;
+    private final Method getNotifications;
+    private final Method getName;
+    private final Method getParameter;
+
+    /**
+     * Creates a new PgNotifications
+     *
+     * @throws IllegalStateException If the PostgreSQL driver is not on the classpath
+     */
+    PgNotifications() {
+        try {
+            pgConnectionClass = Class.forName(PG_CONNECTION_CLASS);
+            Class<?> pgNotificationClass = Class.forName(PG_NOTIFICATION_CLASS);
+            getNotifications = pgConnectionClass.getMethod("getNotifications", int.class);
+            getName = pgNotificationClass.getMethod("getName");
+            getParameter = pgNotificationClass.getMethod("getParameter");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("PostgreSQL driver is required for cache invalidation", e);
+        }
+    }
+
+    /**
+     * Waits for notifications on a connection that has already issued LISTEN
+     *
+     * @param connection The listening connection
+     * @param timeoutMillis How long to wait for a notification, 0 waits forever
+     * @return The payloads of the received notifications as channel and parameter pairs
+     * @throws SQLException If the connection fails
+     */
+    List<String[]> poll(Connection connection, int timeoutMillis) throws SQLException {
+        Object pgConnection = connection.unwrap(pgConnectionClass);
+        List<String[]> received = new ArrayList<>();
+        try {
+            Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, timeoutMillis);
+            if (notifications != null) {
+                for (Object notification : notifications) {
+                    received.add(new String[]{(String) getName.invoke(notification), (String) getParameter.invoke(notification)});
+                }
+            }
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return received;
+    }
+}
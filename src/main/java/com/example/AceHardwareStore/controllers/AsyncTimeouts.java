@@ -0,0 +1,30 @@
+package com.example.AceHardwareStore.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+
+/**
+ * Overrides the asynchronous request timeout for a single response, so one long streamed body
+ * does not need a long timeout for every asynchronous endpoint
+ */
+final class AsyncTimeouts {
+    private AsyncTimeouts() {
+    }
+
+    /**
+     * Sets how long the body of the current response may take to be written. Must be called from the
+     * handler method, before it returns the streaming body.
+     *
+     * @param request The current request
+     * @param timeout The timeout of this response
+     */
+    static void set(HttpServletRequest request, Duration timeout) {
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(timeout.toMillis());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.daos.AuditDao;
+import com.example.AceHardwareStore.models.AuditEvent;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Handles REST requests to /audit
+ */
+@RestController
+@RequestMapping("/audit")
+public class AuditController {
+    /**
+     * Largest page of audit events returned by one request
+     */
+    private static final int MAX_LIMIT = 1000;
+
+    /**
+     * Audit data access object
+     */
+    private AuditDao auditDao;
+
+    /**
+     * Creates a new AuditController
+     *
+     * @param auditDao The audit data access object
+     */
+    public AuditController(AuditDao auditDao) {
+        this.auditDao = auditDao;
+    }
+
+    /**
+     * Returns audit events, newest first
+     *
+     * @param actor Optional username of the admin who made the mutations
+     * @param action Optional kind of mutation
+     * @param target Optional record the mutations apply to, for example employee/259
+     * @param from Optional start of the time range, inclusive
+     * @param to Optional end of the time range, exclusive
+     * @param beforeId Optional id of the last event of the previous page
+     * @param limit Maximum number of events, at most 1000
+     *
+     * @return The list of audit events
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("")
+    public List<AuditEvent> listAuditEvents(
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String target,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        return auditDao.getAuditEvents(actor, action, target, from, to, beforeId, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.models.CallerMatch;
+import com.example.AceHardwareStore.search.CallerIdDirectory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Handles REST request to /caller-id
+ */
+@RestController
+@RequestMapping("/caller-id")
+public class CallerIdController {
+    /**
+     * In-memory directory of phone numbers
+     */
+    private CallerIdDirectory callerIdDirectory;
+
+    /**
+     * Creates a new CallerIdController
+     *
+     * @param callerIdDirectory The in-memory directory of phone numbers
+     */
+    public CallerIdController(CallerIdDirectory callerIdDirectory) {
+        this.callerIdDirectory = callerIdDirectory;
+    }
+
+    /**
+     * Returns the employees, vendors and users with a phone number, in any formatting
+     *
+     * @param number The incoming phone number
+     *
+     * @return The matching records, empty if nobody has the number
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("")
+    public List<CallerMatch> lookup(@RequestParam String number) {
+        return callerIdDirectory.lookup(number);
+    }
+}
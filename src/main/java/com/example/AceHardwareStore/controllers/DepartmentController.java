@@ -1,13 +1,32 @@
 package com.example.AceHardwareStore.controllers;
 
+import com.example.AceHardwareStore.audit.AuditAction;
+import com.example.AceHardwareStore.audit.AuditLog;
 import com.example.AceHardwareStore.daos.DepartmentDao;
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.degraded.LastKnownGoodCache;
+import com.example.AceHardwareStore.degraded.Reading;
 import com.example.AceHardwareStore.models.Department;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -20,29 +39,84 @@ public class DepartmentController {
      * Department data access object
      */
     private DepartmentDao departmentDao;
+    /**
+     * Audit log of admin mutations
+     */
+    private AuditLog auditLog;
+    /**
+     * Last known good department reads, served while the database is unreachable
+     */
+    private LastKnownGoodCache lastKnownGood;
+    /**
+     * User data access object, used to check whether the caller may see hourly rates
+     */
+    private UserDao userDao;
+    /**
+     * Serializes streamed department aggregates as JSON
+     */
+    private ObjectMapper objectMapper;
+    /**
+     * Serializes streamed department aggregates as Smile
+     */
+    private ObjectMapper smileMapper;
+    /**
+     * Serializes streamed department aggregates as CBOR
+     */
+    private ObjectMapper cborMapper;
+
+    /**
+     * Smile media type, which Spring has no constant for
+     */
+    private static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /**
+     * Size of the buffer in front of an aggregate response, bytes are sent whenever it fills up
+     */
+    private static final int AGGREGATE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Longest time an aggregate may take to be written
+     */
+    private static final Duration AGGREGATE_TIMEOUT = Duration.ofMinutes(5);
 
     /**
      * Create new DepartmentController
      *
      * @param departmentDao The department data access object
+     * @param auditLog The audit log of admin mutations
+     * @param lastKnownGood The last known good reads served while the database is unreachable
+     * @param userDao The user data access object
+     * @param objectMapper The mapper serializing department aggregates as JSON
+     * @param smileConverter The Smile converter, whose mapper serializes department aggregates as Smile
+     * @param cborConverter The CBOR converter, whose mapper serializes department aggregates as CBOR
      */
-    public DepartmentController(DepartmentDao departmentDao) {
+    public DepartmentController(DepartmentDao departmentDao, AuditLog auditLog, LastKnownGoodCache lastKnownGood,
+                                UserDao userDao, ObjectMapper objectMapper,
+                                MappingJackson2SmileHttpMessageConverter smileConverter,
+                                MappingJackson2CborHttpMessageConverter cborConverter) {
         this.departmentDao = departmentDao;
+        this.auditLog = auditLog;
+        this.lastKnownGood = lastKnownGood;
+        this.userDao = userDao;
+        this.objectMapper = objectMapper;
+        this.smileMapper = smileConverter.getObjectMapper();
+        this.cborMapper = cborConverter.getObjectMapper();
     }
 
     /**
-     * Returns a list of all departments
+     * Returns a list of all departments, the last known list if the database is unreachable
      *
      * @return The list of departments
      */
     @PreAuthorize("isAuthenticated()")
     @GetMapping("")
-    public List<Department> listDepartment() {
-        return departmentDao.getAllDepartments();
+    public ResponseEntity<List<Department>> listDepartment() {
+        Reading<List<Department>> departments = lastKnownGood.read("department:all", departmentDao::getAllDepartments);
+        return StaleResponses.ok(departments).body(departments.value());
     }
 
     /**
-     * Returns a the department by ID
+     * Returns a the department by ID, the last known one if the database is unreachable
      *
      * @param id The ID of the department
      *
@@ -50,8 +124,158 @@ public class DepartmentController {
      */
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/{id}")
-    public Department getDepartmentById(@PathVariable int id) {
-        return departmentDao.getDepartmentById(id);
+    public ResponseEntity<Department> getDepartmentById(@PathVariable int id) {
+        Reading<Department> department = lastKnownGood.read("department:" + id, () -> departmentDao.getDepartmentById(id));
+        return StaleResponses.ok(department).body(department.value());
+    }
+
+    /**
+     * Returns a department with its employees and vendors in one response. The members are written as
+     * they are read from the database, so a large department is never held in memory. Hourly rates are
+     * only included for admins. A failure while streaming leaves the document unterminated, so the
+     * client cannot take a truncated aggregate for a complete one.
+     *
+     * @param id The ID of the department
+     *
+     * @param principal The caller
+     *
+     * @param request The current request
+     *
+     * @return The streamed department, employees and vendors, or 404 if there is no such department
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/{id}/full", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDepartmentAggregate(@PathVariable int id, Principal principal,
+                                                                        HttpServletRequest request) {
+        return streamDepartmentAggregate(id, principal, request, objectMapper, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Returns a department with its employees and vendors in one Smile response
+     *
+     * @param id The ID of the department
+     *
+     * @param principal The caller
+     *
+     * @param request The current request
+     *
+     * @return The streamed department, employees and vendors, or 404 if there is no such department
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/{id}/full", produces = APPLICATION_SMILE_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDepartmentAggregateSmile(@PathVariable int id, Principal principal,
+                                                                             HttpServletRequest request) {
+        return streamDepartmentAggregate(id, principal, request, smileMapper,
+                MediaType.parseMediaType(APPLICATION_SMILE_VALUE));
+    }
+
+    /**
+     * Returns a department with its employees and vendors in one CBOR response
+     *
+     * @param id The ID of the department
+     *
+     * @param principal The caller
+     *
+     * @param request The current request
+     *
+     * @return The streamed department, employees and vendors, or 404 if there is no such department
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/{id}/full", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDepartmentAggregateCbor(@PathVariable int id, Principal principal,
+                                                                            HttpServletRequest request) {
+        return streamDepartmentAggregate(id, principal, request, cborMapper, MediaType.APPLICATION_CBOR);
+    }
+
+    /**
+     * Streams a department aggregate in the format of a mapper
+     *
+     * @param id The ID of the department
+     *
+     * @param principal The caller
+     *
+     * @param request The current request
+     *
+     * @param mapper The mapper of the negotiated format
+     *
+     * @param mediaType The negotiated media type
+     *
+     * @return The streamed department, employees and vendors, or 404 if there is no such department
+     */
+    private ResponseEntity<StreamingResponseBody> streamDepartmentAggregate(int id, Principal principal,
+                                                                            HttpServletRequest request,
+                                                                            ObjectMapper mapper, MediaType mediaType) {
+        Department department = departmentDao.getDepartmentById(id);
+        if (department == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean admin = userDao.getRolesForUser(principal.getName()).contains("ADMIN");
+        AsyncTimeouts.set(request, AGGREGATE_TIMEOUT);
+        // the body is written on another thread, which must read from the same store
+        String storeId = StoreContext.current();
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator json = mapper.getFactory()
+                    .createGenerator(new BufferedOutputStream(outputStream, AGGREGATE_BUFFER_SIZE));
+            // closing after a failure must not end the open arrays and make the document look complete
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            try {
+                json.writeStartObject();
+                json.writeObjectField("department", department);
+                json.writeArrayFieldStart("employees");
+                boolean[] inVendors = {false};
+                StoreContext.callInStore(storeId, () -> {
+                    departmentDao.streamDepartmentMembers(id,
+                            employee -> writeObject(json, admin ? employee : employee.withoutHourlyRate()),
+                            vendor -> {
+                                if (!inVendors[0]) {
+                                    inVendors[0] = true;
+                                    endEmployees(json);
+                                }
+                                writeObject(json, vendor);
+                            });
+                    return null;
+                });
+                if (!inVendors[0]) {
+                    endEmployees(json);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                json.close();
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    /**
+     * Closes the employee array of an aggregate and opens its vendor array
+     *
+     * @param json The generator of the aggregate
+     */
+    private static void endEmployees(JsonGenerator json) {
+        try {
+            json.writeEndArray();
+            json.writeArrayFieldStart("vendors");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one member of an aggregate, rethrowing failures unchecked so they can leave a row callback
+     *
+     * @param json The generator of the aggregate
+     *
+     * @param value The employee or vendor
+     */
+    private static void writeObject(JsonGenerator json, Object value) {
+        try {
+            json.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -65,7 +289,9 @@ public class DepartmentController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("")
     public Department addDepartment(@Valid @RequestBody Department department) {
-        return departmentDao.addDepartment(department);
+        Department newDepartment = departmentDao.addDepartment(department);
+        auditLog.record(AuditAction.DEPARTMENT_CREATE, "department/" + newDepartment.getId(), newDepartment.getDepartmentName());
+        return newDepartment;
     }
 
     /**
@@ -77,6 +303,9 @@ public class DepartmentController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
     public void deleteDepartment(@PathVariable int id) {
-        departmentDao.deleteDepartment(id);
+        int numberOfRows = departmentDao.deleteDepartment(id);
+        if (numberOfRows > 0) {
+            auditLog.record(AuditAction.DEPARTMENT_DELETE, "department/" + id, null);
+        }
     }
 }
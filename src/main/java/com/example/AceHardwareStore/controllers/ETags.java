@@ -0,0 +1,46 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.exceptions.VersionConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Converts row versions to entity tags and back
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    /**
+     * Returns the strong entity tag of a row version
+     *
+     * @param version The row version
+     * @return The quoted entity tag
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the row version an If-Match header asks for
+     *
+     * @param ifMatch The If-Match header, may be null
+     * @return The expected version, or null if the header is missing or "*"
+     * @throws ResponseStatusException With 400 if the header is not a single strong entity tag
+     * @throws VersionConflictException If the tag was not created by {@link #of(long)}, so no version matches it
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || tag.indexOf('"', 1) != tag.length() - 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be a single strong entity tag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new VersionConflictException("If-Match does not match any version");
+        }
+    }
+}
@@ -1,18 +1,43 @@
 package com.example.AceHardwareStore.controllers;
 
+import com.example.AceHardwareStore.audit.AuditAction;
+import com.example.AceHardwareStore.audit.AuditLog;
 import com.example.AceHardwareStore.daos.EmployeeDao;
 import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.models.DepartmentRaise;
 import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.EmployeeRates;
+import com.example.AceHardwareStore.models.HourlyRateAsOf;
+import com.example.AceHardwareStore.models.MinimumRate;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Handles REST request to /employee/*
@@ -25,15 +50,50 @@ public class EmployeeController {
      */
     private EmployeeDao employeeDao;
     private UserDao userDao;
+    /**
+     * Audit log of admin mutations
+     */
+    private AuditLog auditLog;
+    /**
+     * Serializes employees for NDJSON exports
+     */
+    private ObjectMapper objectMapper;
+    /**
+     * Serves employee reads from memory when enabled, from the database otherwise
+     */
+    private EmployeeReadModel employeeReadModel;
+
+    /**
+     * Size of the buffer in front of the response, bytes are sent whenever it fills up
+     */
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Longest time an export may take to be written
+     */
+    private static final Duration EXPORT_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * Columns of a CSV export
+     */
+    private static final String CSV_HEADER =
+            "employee_id,name,hire_date,leave_date,phone_number,hourly_rate,department_id\n";
 
     /**
      * Creates a new EmployeeController
      *
      * @param employeeDao The employee data access object
+     * @param auditLog The audit log of admin mutations
+     * @param objectMapper The mapper serializing NDJSON exports
+     * @param employeeReadModel The read side serving employee queries
      */
-    public EmployeeController(EmployeeDao employeeDao, UserDao userDao) {
+    public EmployeeController(EmployeeDao employeeDao, UserDao userDao, AuditLog auditLog, ObjectMapper objectMapper,
+                              EmployeeReadModel employeeReadModel) {
         this.employeeDao = employeeDao;
         this.userDao = userDao;
+        this.auditLog = auditLog;
+        this.objectMapper = objectMapper;
+        this.employeeReadModel = employeeReadModel;
     }
 
 
@@ -54,9 +114,9 @@ public class EmployeeController {
         List<Employee> employees;
 
         if (departmentId != null) {
-            employees = employeeDao.getEmployeesByDepartmentId(Integer.parseInt(departmentId));
+            employees = employeeReadModel.getEmployeesByDepartmentId(Integer.parseInt(departmentId));
         } else {
-            employees = employeeDao.getAllEmployees();
+            employees = employeeReadModel.getAllEmployees();
         }
         if (!roles.contains("ADMIN")) {
 
@@ -71,7 +131,66 @@ public class EmployeeController {
         }
     }
     /**
-     * Returns an employee by their ID
+     * Streams all employees, or those of one department, as CSV or NDJSON. Rows are written as they
+     * are read from the database, so the export starts immediately and does not hold the roster in memory.
+     *
+     * @param format Either csv or ndjson
+     *
+     * @param departmentId Optional id to constrain which employees are exported
+     *
+     * @param gzip Whether to gzip the response
+     *
+     * @param request The current request
+     *
+     * @return The streaming export, or 400 for an unknown format
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Integer departmentId,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request
+    ) {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.badRequest().build();
+        }
+        AsyncTimeouts.set(request, EXPORT_TIMEOUT);
+        // the body is written on another thread, which must read from the same store
+        String storeId = StoreContext.current();
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(
+                    gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream, EXPORT_BUFFER_SIZE);
+            try {
+                StoreContext.callInStore(storeId, () -> {
+                    if (csv) {
+                        write(out, CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                    }
+                    employeeDao.streamEmployees(departmentId,
+                            employee -> write(out, csv ? toCsvRow(employee) : toNdjsonRow(employee)));
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                // also ends the deflater of a gzipped export
+                out.close();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("employees." + (csv ? "csv" : "ndjson")).build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Returns an employee by their ID, with its version as the ETag
      *
      * @param id The ID of the employee
      *
@@ -79,15 +198,19 @@ public class EmployeeController {
      */
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/{id}")
-    public Employee getEmployeeById(@PathVariable int id, Principal principal) {
+    public ResponseEntity<Employee> getEmployeeById(@PathVariable int id, Principal principal) {
         String userName = principal.getName();
         List<String> roles = userDao.getRolesForUser(userName);
-        Employee employee = employeeDao.getEmployeeById(id);
+        Employee employee = employeeReadModel.getEmployeeById(id);
 
+        if (employee == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(ETags.of(employee.getVersion()));
         if (!roles.contains("ADMIN")) {
-            return employee.withoutHourlyRate();
+            return response.body(employee.withoutHourlyRate());
         } else {
-            return employee;
+            return response.body(employee);
         }
     }
     /**
@@ -121,7 +244,12 @@ public class EmployeeController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("")
     public Employee addEmployee(@Valid @RequestBody Employee employee) {
-        return employeeDao.addEmployee(employee);
+        Employee newEmployee = employeeDao.addEmployee(employee);
+        if (newEmployee != null) {
+            auditLog.record(AuditAction.EMPLOYEE_CREATE, "employee/" + newEmployee.getEmployeeId(),
+                    "hourlyRate=" + newEmployee.getHourlyRate());
+        }
+        return newEmployee;
     }
 
     /**
@@ -131,14 +259,19 @@ public class EmployeeController {
      *
      * @param employee The updated Employee object
      *
+     * @param ifMatch Optional ETag of the version being replaced, a stale one is rejected with 412
+     *
      * @return The updated employee
      */
     @PreAuthorize("hasAuthority('ADMIN')")
     @ResponseStatus(HttpStatus.OK)
     @PutMapping("/{id}")
-    public Employee updateEmployee(@PathVariable int id,@Valid @RequestBody Employee employee) {
+    public ResponseEntity<Employee> updateEmployee(@PathVariable int id, @Valid @RequestBody Employee employee,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         employee.setEmployeeId(id);
-        return employeeDao.updateEmployee(employee);
+        Employee updatedEmployee = employeeDao.updateEmployee(employee, ETags.expectedVersion(ifMatch));
+        auditLog.record(AuditAction.EMPLOYEE_UPDATE, "employee/" + id, "hourlyRate=" + updatedEmployee.getHourlyRate());
+        return withETag(updatedEmployee);
     }
 
     /**
@@ -148,13 +281,18 @@ public class EmployeeController {
      *
      * @param phoneNumber The updated phone number
      *
+     * @param ifMatch Optional ETag of the version being replaced, a stale one is rejected with 412
+     *
      * @return The updated employee
      */
     @PreAuthorize("hasAuthority('ADMIN')")
     @ResponseStatus(HttpStatus.OK)
     @PatchMapping("/{id}/phone_number")
-    public Employee updateEmployeePhoneNumber(@PathVariable int id, @RequestBody String phoneNumber) {
-        return employeeDao.updateEmployeePhoneNumberById(id, phoneNumber);
+    public ResponseEntity<Employee> updateEmployeePhoneNumber(@PathVariable int id, @RequestBody String phoneNumber,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Employee updatedEmployee = employeeDao.updateEmployeePhoneNumberById(id, phoneNumber, ETags.expectedVersion(ifMatch));
+        auditLog.record(AuditAction.EMPLOYEE_PHONE_NUMBER_CHANGE, "employee/" + id, null);
+        return withETag(updatedEmployee);
     }
 
     /**
@@ -164,14 +302,101 @@ public class EmployeeController {
      *
      * @param hourlyRate The updated employee's hourly rate
      *
+     * @param ifMatch Optional ETag of the version being replaced, a stale one is rejected with 412
+     *
      * @return The updated employee
      */
     @PreAuthorize("hasAuthority('ADMIN')")
     @ResponseStatus(HttpStatus.OK)
     @PatchMapping("/{id}/hourly_rate")
-    public Employee updateEmployeeHourlyRate(@PathVariable int id, @RequestBody BigDecimal hourlyRate) {
-        return employeeDao.updateEmployeeHourlyRateById(id, hourlyRate);
+    public ResponseEntity<Employee> updateEmployeeHourlyRate(@PathVariable int id, @RequestBody BigDecimal hourlyRate,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Employee updatedEmployee = employeeDao.updateEmployeeHourlyRateById(id, hourlyRate, ETags.expectedVersion(ifMatch));
+        auditLog.record(AuditAction.EMPLOYEE_RATE_CHANGE, "employee/" + id, "hourlyRate=" + updatedEmployee.getHourlyRate());
+        return withETag(updatedEmployee);
+    }
+
+    /**
+     * Returns the hourly rate an employee had at a point in time
+     *
+     * @param id The id of the employee
+     * @param asOf The point in time, now if absent
+     *
+     * @return The rate in effect and when it took effect
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/{id}/hourly_rate")
+    public ResponseEntity<HourlyRateAsOf> getHourlyRateAsOf(
+            @PathVariable int id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf
+    ) {
+        HourlyRateAsOf rate = employeeDao.getHourlyRateAsOf(id, asOf == null ? Instant.now() : asOf);
+        if (rate == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rate);
+    }
+
+    /**
+     * Returns the hourly rates the employees of a department had at a point in time
+     *
+     * @param departmentId The id of the department
+     * @param asOf The point in time, now if absent
+     *
+     * @return The rates in effect, by employee id
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/hourly_rate")
+    public List<HourlyRateAsOf> getDepartmentHourlyRatesAsOf(
+            @RequestParam int departmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf
+    ) {
+        return employeeDao.getDepartmentHourlyRatesAsOf(departmentId, asOf == null ? Instant.now() : asOf);
+    }
+
+    /**
+     * Sets the hourly rates of several employees at once, all or nothing
+     *
+     * @param employeeRates The new hourly rates by employee
+     *
+     * @return The updated employees
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    @PatchMapping("/hourly_rate")
+    public List<Employee> setHourlyRates(@Valid @RequestBody EmployeeRates employeeRates) {
+        return recordRateChanges(employeeDao.setHourlyRates(employeeRates.getRates()));
+    }
+
+    /**
+     * Raises every active employee of a department by a percentage
+     *
+     * @param departmentRaise The department and the raise in percent
+     *
+     * @return The updated employees
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    @PatchMapping("/hourly_rate/raise")
+    public List<Employee> raiseDepartmentHourlyRates(@Valid @RequestBody DepartmentRaise departmentRaise) {
+        return recordRateChanges(employeeDao.raiseDepartmentHourlyRates(
+                departmentRaise.getDepartmentId(), departmentRaise.getPercent()));
+    }
+
+    /**
+     * Raises every active employee paid below a new minimum to that minimum
+     *
+     * @param minimumRate The new minimum hourly rate
+     *
+     * @return The updated employees
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    @PatchMapping("/hourly_rate/minimum")
+    public List<Employee> raiseHourlyRatesToMinimum(@Valid @RequestBody MinimumRate minimumRate) {
+        return recordRateChanges(employeeDao.raiseHourlyRatesToMinimum(minimumRate.getMinimum()));
     }
+
     /**
      * Deletes an employee
      *
@@ -182,5 +407,101 @@ public class EmployeeController {
     @DeleteMapping("/{id}")
     public void deleteEmployee(@PathVariable int id) {
         employeeDao.deleteEmployeeById(id);
+        auditLog.record(AuditAction.EMPLOYEE_DELETE, "employee/" + id, null);
+    }
+
+    /**
+     * Records a rate change audit event for each updated employee
+     *
+     * @param employees The updated employees
+     *
+     * @return The updated employees
+     */
+    private List<Employee> recordRateChanges(List<Employee> employees) {
+        for (Employee employee : employees) {
+            auditLog.record(AuditAction.EMPLOYEE_RATE_CHANGE, "employee/" + employee.getEmployeeId(),
+                    "hourlyRate=" + employee.getHourlyRate());
+        }
+        return employees;
+    }
+
+    /**
+     * Writes bytes to an export, rethrowing failures unchecked so they can leave a row callback
+     *
+     * @param out The export stream
+     *
+     * @param bytes The bytes to write
+     */
+    private static void write(OutputStream out, byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Formats an employee as a CSV row, quoting text fields as RFC 4180 requires
+     *
+     * @param employee The employee
+     *
+     * @return The row including its line break
+     */
+    private static byte[] toCsvRow(Employee employee) {
+        StringBuilder row = new StringBuilder(128)
+                .append(employee.getEmployeeId()).append(',')
+                .append(csvField(employee.getName())).append(',')
+                .append(employee.getHireDate()).append(',')
+                .append(employee.getLeaveDate() != null ? employee.getLeaveDate() : "").append(',')
+                .append(csvField(employee.getPhoneNumber())).append(',')
+                .append(employee.getHourlyRate() != null ? employee.getHourlyRate().toPlainString() : "").append(',')
+                .append(employee.getDepartmentId()).append('\n');
+        return row.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Formats an employee as an NDJSON line
+     *
+     * @param employee The employee
+     *
+     * @return The JSON object followed by a line break
+     */
+    private byte[] toNdjsonRow(Employee employee) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(employee);
+            byte[] row = Arrays.copyOf(json, json.length + 1);
+            row[json.length] = '\n';
+            return row;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes a CSV text field when it contains a separator, quote or line break
+     *
+     * @param value The field value, may be null
+     *
+     * @return The field as it appears in the row
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Wraps an updated employee in a response carrying its new version as the ETag
+     *
+     * @param employee The updated employee
+     *
+     * @return The response
+     */
+    private ResponseEntity<Employee> withETag(Employee employee) {
+        return ResponseEntity.ok().eTag(ETags.of(employee.getVersion())).body(employee);
     }
 }
@@ -0,0 +1,47 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Handles REST requests to /metrics
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+    /**
+     * Every component publishing metrics
+     */
+    private List<MetricsSource> metricsSources;
+
+    /**
+     * Creates a new MetricsController
+     *
+     * @param metricsSources The components publishing metrics
+     */
+    public MetricsController(List<MetricsSource> metricsSources) {
+        this.metricsSources = metricsSources;
+    }
+
+    /**
+     * Returns the current metrics of every component
+     *
+     * @return The metrics grouped by component
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("")
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        for (MetricsSource metricsSource : metricsSources) {
+            metrics.put(metricsSource.getMetricsName(), metricsSource.getMetrics());
+        }
+        return metrics;
+    }
+}
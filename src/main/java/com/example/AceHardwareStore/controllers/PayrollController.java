@@ -0,0 +1,234 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.PayLine;
+import com.example.AceHardwareStore.models.PayrollRequest;
+import com.example.AceHardwareStore.models.WorkedHours;
+import com.example.AceHardwareStore.payroll.PayrollEngine;
+import com.example.AceHardwareStore.payroll.PayrollProperties;
+import com.example.AceHardwareStore.payroll.TimeSheet;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Handles REST requests to /payroll
+ */
+@RestController
+@RequestMapping("/payroll")
+public class PayrollController {
+    /**
+     * Size of the buffer in front of the response, bytes are sent whenever it fills up
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Unknown employee ids listed in an error
+     */
+    private static final int REPORTED_UNKNOWN_EMPLOYEES = 10;
+
+    /**
+     * Longest time a run may take to be computed and written
+     */
+    private static final Duration RUN_TIMEOUT = Duration.ofMinutes(10);
+
+    /**
+     * Media type of CSV sheets
+     */
+    private static final String CSV_VALUE = "text/csv";
+
+    /**
+     * Computes the pay lines
+     */
+    private PayrollEngine payrollEngine;
+    /**
+     * Payroll configuration, for the workweek of uploaded sheets
+     */
+    private PayrollProperties payrollProperties;
+    /**
+     * Serves the employees and their rates
+     */
+    private EmployeeReadModel employeeReadModel;
+    /**
+     * Serializes pay lines
+     */
+    private ObjectMapper objectMapper;
+
+    /**
+     * Creates a new PayrollController
+     *
+     * @param payrollEngine The engine computing pay lines
+     * @param payrollProperties The payroll configuration
+     * @param employeeReadModel The read side serving employees
+     * @param objectMapper The mapper serializing pay lines
+     */
+    public PayrollController(PayrollEngine payrollEngine, PayrollProperties payrollProperties,
+                             EmployeeReadModel employeeReadModel, ObjectMapper objectMapper) {
+        this.payrollEngine = payrollEngine;
+        this.payrollProperties = payrollProperties;
+        this.employeeReadModel = employeeReadModel;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs payroll for hours sent as a table of employee, day and hours
+     *
+     * @param request The pay period and the hours worked in it
+     * @param servletRequest The current request
+     * @return One NDJSON pay line per employee with hours, streamed by department
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping(value = "/run", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> runPayroll(@Valid @RequestBody PayrollRequest request,
+                                                            HttpServletRequest servletRequest) {
+        TimeSheet sheet;
+        try {
+            sheet = payrollEngine.newTimeSheet(request.getFrom(), request.getTo());
+            for (WorkedHours hours : request.getHours()) {
+                sheet.add(hours.getEmployeeId(), hours.getWorkDate(), hours.getHours());
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return stream(sheet, servletRequest);
+    }
+
+    /**
+     * Runs payroll for hours sent as a CSV body of employee_id,work_date,hours lines. The body is read
+     * as it arrives rather than as a multipart upload, so its size limit applies to this endpoint only.
+     *
+     * @param from The first day of the pay period
+     * @param to The last day of the pay period
+     * @param servletRequest The current request, whose body is the CSV sheet
+     * @return One NDJSON pay line per employee with hours, streamed by department
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping(value = "/run", consumes = CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> runPayrollFromCsv(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest servletRequest
+    ) throws IOException {
+        long maxUploadBytes = payrollProperties.getMaxUploadSize().toBytes();
+        if (servletRequest.getContentLengthLong() > maxUploadBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "The sheet is larger than " + maxUploadBytes + " bytes");
+        }
+        TimeSheet sheet;
+        try (Reader reader = new InputStreamReader(new LimitedInputStream(servletRequest.getInputStream(), maxUploadBytes),
+                StandardCharsets.UTF_8)) {
+            sheet = TimeSheet.fromCsv(reader, from, to, payrollProperties.getWeekStart());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return stream(sheet, servletRequest);
+    }
+
+    /**
+     * Checks that every employee on the sheet exists, then streams the run. The employees are read
+     * before the response starts, so an unknown employee is still reported as a bad request.
+     *
+     * @param sheet The hours worked
+     * @param servletRequest The current request
+     * @return The streaming response
+     */
+    private ResponseEntity<StreamingResponseBody> stream(TimeSheet sheet, HttpServletRequest servletRequest) {
+        List<Employee> employees = employeeReadModel.getAllEmployees();
+        Set<Integer> unknown = new HashSet<>(sheet.getEmployeeIds());
+        for (Employee employee : employees) {
+            unknown.remove(employee.getEmployeeId());
+        }
+        if (!unknown.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown employees: " + unknown.stream()
+                    .sorted().limit(REPORTED_UNKNOWN_EMPLOYEES).map(String::valueOf).collect(Collectors.joining(", ")));
+        }
+        AsyncTimeouts.set(servletRequest, RUN_TIMEOUT);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, RESPONSE_BUFFER_SIZE);
+            try {
+                payrollEngine.run(employees, sheet, line -> write(out, line));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Writes a pay line as an NDJSON line, rethrowing failures unchecked so they can leave the engine
+     *
+     * @param out The response stream
+     * @param line The pay line
+     */
+    private void write(OutputStream out, PayLine line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Refuses a body once it grows past a limit, for bodies sent without a length
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long read;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            read += n;
+            if (read > limit) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "The sheet is larger than " + limit + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.models.Punch;
+import com.example.AceHardwareStore.models.PunchResult;
+import com.example.AceHardwareStore.punch.PunchIngestor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Handles REST requests to /punch
+ */
+@RestController
+@RequestMapping("/punch")
+public class PunchController {
+    /**
+     * Logs punches and writes them to the database in batches
+     */
+    private PunchIngestor punchIngestor;
+
+    /**
+     * Creates a new PunchController
+     *
+     * @param punchIngestor The punch ingestion pipeline
+     */
+    public PunchController(PunchIngestor punchIngestor) {
+        this.punchIngestor = punchIngestor;
+    }
+
+    /**
+     * Accepts clock-in and clock-out punches. Accepted punches are durably logged when this returns
+     * and reach the punch table shortly after. Punches of unknown or departed employees are rejected
+     * per punch and do not stop the others. Only accounts granted the TIMECLOCK role, such as those of
+     * the time clocks, may punch.
+     *
+     * @param punches The punches, one or many
+     * @return One result per punch, in request order
+     */
+    @PreAuthorize("hasAuthority('TIMECLOCK')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PostMapping("")
+    public List<PunchResult> addPunches(@RequestBody List<Punch> punches) {
+        return punchIngestor.ingest(punches);
+    }
+}
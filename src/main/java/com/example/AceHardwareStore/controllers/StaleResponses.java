@@ -0,0 +1,31 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.degraded.Reading;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Builds responses for reads that may have been served from their last known good copy
+ */
+final class StaleResponses {
+    /**
+     * Header carrying the age in seconds of a response served while the database is unreachable
+     */
+    static final String STALE_HEADER = "X-Stale-Seconds";
+
+    private StaleResponses() {
+    }
+
+    /**
+     * Starts a 200 response, marked with the staleness header if the reading is stale
+     *
+     * @param reading The reading the response carries
+     * @return The response builder
+     */
+    static ResponseEntity.BodyBuilder ok(Reading<?> reading) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (reading.isStale()) {
+            builder.header(STALE_HEADER, Long.toString(reading.staleSeconds()));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.daos.DepartmentDao;
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.models.Department;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreFanOut;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Handles chain-wide REST requests to /stores/*
+ */
+@RestController
+@RequestMapping("/stores")
+public class StoreController {
+    /**
+     * Routing data source, used to list the stores
+     */
+    private StoreRoutingDataSource dataSource;
+    /**
+     * Runs queries against every store
+     */
+    private StoreFanOut storeFanOut;
+    private EmployeeDao employeeDao;
+    private VendorDao vendorDao;
+    private DepartmentDao departmentDao;
+
+    /**
+     * Creates a new StoreController
+     *
+     * @param dataSource The routing data source
+     * @param storeFanOut The store fan-out helper
+     * @param employeeDao The employee data access object
+     * @param vendorDao The vendor data access object
+     * @param departmentDao The department data access object
+     */
+    public StoreController(StoreRoutingDataSource dataSource, StoreFanOut storeFanOut, EmployeeDao employeeDao,
+                           VendorDao vendorDao, DepartmentDao departmentDao) {
+        this.dataSource = dataSource;
+        this.storeFanOut = storeFanOut;
+        this.employeeDao = employeeDao;
+        this.vendorDao = vendorDao;
+        this.departmentDao = departmentDao;
+    }
+
+    /**
+     * Returns the ids of all stores
+     *
+     * @return The store ids
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("")
+    public Set<String> listStores() {
+        return dataSource.getStoreIds();
+    }
+
+    /**
+     * Returns the employees of every store
+     *
+     * @return The employees keyed by store id
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/employee")
+    public Map<String, List<Employee>> listEmployees() {
+        return storeFanOut.queryAllStores(employeeDao::getAllEmployees);
+    }
+
+    /**
+     * Returns the vendors of every store
+     *
+     * @return The vendors keyed by store id
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/vendor")
+    public Map<String, List<Vendor>> listVendors() {
+        return storeFanOut.queryAllStores(vendorDao::getAllVendors);
+    }
+
+    /**
+     * Returns the departments of every store
+     *
+     * @return The departments keyed by store id
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/department")
+    public Map<String, List<Department>> listDepartments() {
+        return storeFanOut.queryAllStores(departmentDao::getAllDepartments);
+    }
+}
@@ -1,12 +1,30 @@
 package com.example.AceHardwareStore.controllers;
 
+import com.example.AceHardwareStore.audit.AuditAction;
+import com.example.AceHardwareStore.audit.AuditLog;
 import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.models.NewUser;
+import com.example.AceHardwareStore.models.ProvisioningResult;
 import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.models.UserProvisioning;
+import com.example.AceHardwareStore.models.UserWithRoles;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * User controller
@@ -14,18 +32,44 @@ import java.util.List;
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    /**
+     * Largest page of users with roles
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
     /**
      * User data access object
      */
     private UserDao userDao;
 
+    /**
+     * Audit log of admin mutations
+     */
+    private AuditLog auditLog;
+
+    /**
+     * Validator for the entries of bulk requests
+     */
+    private Validator validator;
+
+    /**
+     * Routing data source, used to validate store ids
+     */
+    private StoreRoutingDataSource dataSource;
+
     /**
      * Constructor
      *
      * @param userDao user data access object
+     * @param auditLog audit log of admin mutations
+     * @param validator validator for the entries of bulk requests
+     * @param dataSource routing data source, used to validate store ids
      */
-    public UserController(UserDao userDao) {
+    public UserController(UserDao userDao, AuditLog auditLog, Validator validator, StoreRoutingDataSource dataSource) {
         this.userDao = userDao;
+        this.auditLog = auditLog;
+        this.validator = validator;
+        this.dataSource = dataSource;
     }
 
     /**
@@ -39,6 +83,31 @@ public class UserController {
         return userDao.getAllUsers();
     }
 
+    /**
+     * Get a page of users with their roles embedded, instead of one roles request per user.
+     * The Link header points at the next page while there is one.
+     *
+     * @param after The last username of the previous page
+     * @param limit The most users per page, at most 1000
+     * @return The users with their roles
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "", params = "include=roles")
+    public ResponseEntity<List<UserWithRoles>> getAllUsersWithRoles(@RequestParam(required = false) String after,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserWithRoles> users = userDao.getUsersWithRoles(after, pageSize + 1);
+        if (users.size() <= pageSize) {
+            return ResponseEntity.ok(users);
+        }
+        List<UserWithRoles> page = users.subList(0, pageSize);
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", page.get(pageSize - 1).getUsername())
+                .replaceQueryParam("limit", pageSize)
+                .build().encode().toUriString();
+        return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(page);
+    }
+
     /**
      * Get user by username
      *
@@ -61,7 +130,53 @@ public class UserController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("")
     public User createUser(@RequestBody User user) {
-        return userDao.createUser(user);
+        User createdUser = userDao.createUser(user);
+        if (createdUser != null) {
+            auditLog.record(AuditAction.USER_CREATE, "users/" + createdUser.getUsername(), null);
+        }
+        return createdUser;
+    }
+
+    /**
+     * Create many users with their roles in one transaction. Invalid entries and taken usernames
+     * are reported per user and do not stop the others.
+     *
+     * @param provisioning users to create
+     * @return one result per user, in request order
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping("/bulk")
+    public List<ProvisioningResult> createUsers(@Valid @RequestBody UserProvisioning provisioning) {
+        List<NewUser> newUsers = provisioning.getUsers();
+        ProvisioningResult[] results = new ProvisioningResult[newUsers.size()];
+        List<NewUser> validUsers = new ArrayList<>();
+        List<Integer> validPositions = new ArrayList<>();
+        for (int i = 0; i < newUsers.size(); i++) {
+            NewUser newUser = newUsers.get(i);
+            Set<ConstraintViolation<NewUser>> violations = newUser == null ? Set.of() : validator.validate(newUser);
+            if (newUser == null) {
+                results[i] = ProvisioningResult.failed(null, "User must not be null");
+            } else if (!violations.isEmpty()) {
+                results[i] = ProvisioningResult.failed(newUser.getUsername(), violations.stream()
+                        .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+            } else {
+                validUsers.add(newUser);
+                validPositions.add(i);
+            }
+        }
+
+        List<ProvisioningResult> created = validUsers.isEmpty() ? List.of() : userDao.createUsers(validUsers);
+        for (int j = 0; j < created.size(); j++) {
+            ProvisioningResult result = created.get(j);
+            results[validPositions.get(j)] = result;
+            if (result.isCreated()) {
+                auditLog.record(AuditAction.USER_CREATE, "users/" + result.getUsername(), null);
+                for (String role : validUsers.get(j).getRoles()) {
+                    auditLog.record(AuditAction.USER_ROLE_GRANT, "users/" + result.getUsername(), "role=" + role);
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
     /**
@@ -74,7 +189,9 @@ public class UserController {
     @PreAuthorize("hasAuthority('ADMIN')")
     @PutMapping("/{username}")
     public User updateUser(@PathVariable String username, @RequestBody User user) {
-        return userDao.updateUser(user, false);
+        User updatedUser = userDao.updateUser(user, false);
+        auditLog.record(AuditAction.USER_UPDATE, "users/" + user.getUsername(), null);
+        return updatedUser;
     }
 
     /**
@@ -87,6 +204,7 @@ public class UserController {
     @DeleteMapping("/{username}")
     public void deleteUser(@PathVariable String username) {
         userDao.deleteUser(username);
+        auditLog.record(AuditAction.USER_DELETE, "users/" + username, null);
     }
 
     /**
@@ -111,7 +229,9 @@ public class UserController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/{username}/roles")
     public void addUserRole(@PathVariable String username, @RequestBody String role) {
-        userDao.addRoleToUser(username, role);
+        if (userDao.addRoleToUser(username, role)) {
+            auditLog.record(AuditAction.USER_ROLE_GRANT, "users/" + username, "role=" + role);
+        }
     }
 
     /**
@@ -124,6 +244,60 @@ public class UserController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{username}/roles/{role}")
     public void removeUserRole(@PathVariable String username, @PathVariable String role) {
-        userDao.removeRoleFromUser(username, role);
+        if (userDao.removeRoleFromUser(username, role)) {
+            auditLog.record(AuditAction.USER_ROLE_REVOKE, "users/" + username, "role=" + role);
+        }
+    }
+
+    /**
+     * Get the store a user's tokens are bound to
+     *
+     * @param username username
+     * @return store id, empty for the default store
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/{username}/store")
+    public ResponseEntity<String> getUserStore(@PathVariable String username) {
+        if (userDao.getUser(username) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String storeId = userDao.getStoreOfUser(username);
+        return ResponseEntity.ok(storeId == null ? "" : storeId);
+    }
+
+    /**
+     * Bind a user's tokens to a store. Tokens issued before are refused, the user signs in again.
+     *
+     * @param username username
+     * @param storeId store id
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PutMapping("/{username}/store")
+    public void setUserStore(@PathVariable String username, @RequestBody String storeId) {
+        String store = storeId.trim();
+        if (!dataSource.isKnownStore(store)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown store " + store);
+        }
+        assignStore(username, store);
+    }
+
+    /**
+     * Bind a user's tokens back to the default store
+     *
+     * @param username username
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{username}/store")
+    public void removeUserStore(@PathVariable String username) {
+        assignStore(username, null);
+    }
+
+    private void assignStore(String username, String storeId) {
+        if (!userDao.setStoreOfUser(username, storeId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User " + username + " not found");
+        }
+        auditLog.record(AuditAction.USER_STORE_ASSIGN, "users/" + username, "store=" + storeId);
     }
 }
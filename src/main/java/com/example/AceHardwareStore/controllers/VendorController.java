@@ -1,9 +1,16 @@
 package com.example.AceHardwareStore.controllers;
 
+import com.example.AceHardwareStore.audit.AuditAction;
+import com.example.AceHardwareStore.audit.AuditLog;
 import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.degraded.LastKnownGoodCache;
+import com.example.AceHardwareStore.degraded.Reading;
 import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.search.VendorTypeahead;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,28 +26,63 @@ public class VendorController {
      * Vendor data access object
      */
     private VendorDao vendorDao;
+    /**
+     * Audit log of admin mutations
+     */
+    private AuditLog auditLog;
+    /**
+     * In-memory prefix index of vendors
+     */
+    private VendorTypeahead vendorTypeahead;
+    /**
+     * Last known good vendor reads, served while the database is unreachable
+     */
+    private LastKnownGoodCache lastKnownGood;
 
     /**
      * Creates a new VendorController
      * @param vendorDao The vendor data access object
+     * @param auditLog The audit log of admin mutations
+     * @param vendorTypeahead The in-memory prefix index of vendors
+     * @param lastKnownGood The last known good reads served while the database is unreachable
      */
-    public VendorController(VendorDao vendorDao) {
+    public VendorController(VendorDao vendorDao, AuditLog auditLog, VendorTypeahead vendorTypeahead,
+                            LastKnownGoodCache lastKnownGood) {
         this.vendorDao = vendorDao;
+        this.auditLog = auditLog;
+        this.vendorTypeahead = vendorTypeahead;
+        this.lastKnownGood = lastKnownGood;
     }
 
     /**
-     * Returns a list of all vendors
+     * Returns a list of all vendors, the last known list if the database is unreachable
      *
      * @return The list of vendors
      */
     @PreAuthorize("permitAll")
     @GetMapping("")
-    public List<Vendor> listVendors() {
-        return vendorDao.getAllVendors();
+    public ResponseEntity<List<Vendor>> listVendors() {
+        Reading<List<Vendor>> vendors = lastKnownGood.read("vendor:all", vendorDao::getAllVendors);
+        return StaleResponses.ok(vendors).body(vendors.value());
     }
 
     /**
-     * Returns the vendor by ID
+     * Returns vendors whose name or contact has a word starting with the query, for as-you-type pickers
+     *
+     * @param q The text typed so far
+     *
+     * @param limit The most vendors to return, at most 50
+     *
+     * @return The matching vendors
+     */
+    @PreAuthorize("permitAll")
+    @GetMapping("/typeahead")
+    public List<Vendor> typeahead(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return vendorTypeahead.search(q, limit);
+    }
+
+    /**
+     * Returns the vendor by ID, with its version as the ETag, the last known one if the database is unreachable
      *
      * @param id The ID of the vendor
      *
@@ -48,8 +90,12 @@ public class VendorController {
      */
     @PreAuthorize("permitAll")
     @GetMapping("/{id}")
-    public Vendor getVendorById(@PathVariable int id) {
-        return vendorDao.getVendorById(id);
+    public ResponseEntity<Vendor> getVendorById(@PathVariable int id) {
+        Reading<Vendor> vendor = lastKnownGood.read("vendor:" + id, () -> vendorDao.getVendorById(id));
+        if (vendor.value() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return StaleResponses.ok(vendor).eTag(ETags.of(vendor.value().getVersion())).body(vendor.value());
     }
 
     /**
@@ -63,7 +109,9 @@ public class VendorController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("")
     public Vendor addVendor(@Valid @RequestBody Vendor vendor) {
-        return vendorDao.addVendor(vendor);
+        Vendor newVendor = vendorDao.addVendor(vendor);
+        auditLog.record(AuditAction.VENDOR_CREATE, "vendor/" + newVendor.getVendorId(), null);
+        return newVendor;
     }
 
     /**
@@ -73,14 +121,19 @@ public class VendorController {
      *
      * @param vendor The updated Vendor object
      *
+     * @param ifMatch Optional ETag of the version being replaced, a stale one is rejected with 412
+     *
      * @return The updated vendor
      */
     @PreAuthorize("hasAuthority('ADMIN')")
     @ResponseStatus(HttpStatus.OK)
     @PutMapping("/{id}")
-    public Vendor updateVendor (@PathVariable int id, @Valid @RequestBody Vendor vendor) {
+    public ResponseEntity<Vendor> updateVendor (@PathVariable int id, @Valid @RequestBody Vendor vendor,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         vendor.setVendorId(id);
-        return vendorDao.updateVendor(vendor);
+        Vendor updatedVendor = vendorDao.updateVendor(vendor, ETags.expectedVersion(ifMatch));
+        auditLog.record(AuditAction.VENDOR_UPDATE, "vendor/" + id, null);
+        return ResponseEntity.ok().eTag(ETags.of(updatedVendor.getVersion())).body(updatedVendor);
     }
 
     /**
@@ -92,5 +145,6 @@ public class VendorController {
     @DeleteMapping("/{id}")
     public void deleteVendor(@PathVariable int id) {
         vendorDao.deleteVendorById(id);
+        auditLog.record(AuditAction.VENDOR_DELETE, "vendor/" + id, null);
     }
 }
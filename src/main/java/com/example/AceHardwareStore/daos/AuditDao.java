@@ -0,0 +1,127 @@
+package com.example.AceHardwareStore.daos;
+
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.models.AuditEvent;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Audit log data access object. The audit_log table is append-only.
+ */
+@Component
+public class AuditDao {
+    /**
+     * JDBC template instance
+     */
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates new AuditDao
+     *
+     * @param dataSource The datasource to connect to
+     */
+    public AuditDao(DataSource dataSource) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Appends audit events in one batch
+     *
+     * @param events The events to append
+     * @throws DaoException If an error occurs
+     */
+    public void addAuditEvents(List<AuditEvent> events) {
+        String sql = "INSERT INTO audit_log (occurred_at, actor, action, target, detail) VALUES (?, ?, ?, ?, ?);";
+        List<Object[]> batchArgs = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            batchArgs.add(new Object[]{Timestamp.from(event.getOccurredAt()), event.getActor(), event.getAction(),
+                    event.getTarget(), event.getDetail()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, batchArgs);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    /**
+     * Returns audit events, newest first. Every filter is optional.
+     *
+     * @param actor Only events made by this user
+     * @param action Only events of this kind
+     * @param target Only events on this record
+     * @param from Only events at or after this time
+     * @param to Only events before this time
+     * @param beforeId Only events with a smaller id, used to page through the history
+     * @param limit Maximum number of events to return
+     * @return The list of audit events
+     * @throws DaoException If an error occurs
+     */
+    public List<AuditEvent> getAuditEvents(String actor, String action, String target, Instant from, Instant to,
+                                           Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM audit_log WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (actor != null) {
+            sql.append(" AND actor = ?");
+            args.add(actor);
+        }
+        if (action != null) {
+            sql.append(" AND action = ?");
+            args.add(action);
+        }
+        if (target != null) {
+            sql.append(" AND target = ?");
+            args.add(target);
+        }
+        if (from != null) {
+            sql.append(" AND occurred_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND occurred_at < ?");
+            args.add(Timestamp.from(to));
+        }
+        if (beforeId != null) {
+            sql.append(" AND audit_id < ?");
+            args.add(beforeId);
+        }
+        sql.append(" ORDER BY audit_id DESC LIMIT ?;");
+        args.add(limit);
+
+        List<AuditEvent> events = new ArrayList<>();
+        try {
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql.toString(), args.toArray());
+            while (rowSet.next()) {
+                events.add(mapRowToAuditEvent(rowSet));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return events;
+    }
+
+    /**
+     * Maps a row in the result set to audit event
+     *
+     * @param rowSet The SqlRowSet
+     * @return The audit event mapped from the row set
+     */
+    public AuditEvent mapRowToAuditEvent(SqlRowSet rowSet) {
+        AuditEvent event = new AuditEvent();
+        event.setAuditId(rowSet.getLong("audit_id"));
+        event.setOccurredAt(rowSet.getTimestamp("occurred_at").toInstant());
+        event.setActor(rowSet.getString("actor"));
+        event.setAction(rowSet.getString("action"));
+        event.setTarget(rowSet.getString("target"));
+        event.setDetail(rowSet.getString("detail"));
+        return event;
+    }
+}
@@ -1,30 +1,86 @@
 package com.example.AceHardwareStore.daos;
 
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.deadline.DeadlineAwareJdbcTemplate;
+import com.example.AceHardwareStore.events.EmployeeChangedEvent;
 import com.example.AceHardwareStore.exceptions.DaoException;
 import com.example.AceHardwareStore.models.Department;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 @Component
 public class DepartmentDao {
+    /**
+     * Name of the table, used as the near-cache region
+     */
+    private static final String TABLE = "department";
+
     /**
      * JDBC template instance
      */
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Cache of department lookups shared with the other instances
+     */
+    private NearCache nearCache;
+
+    /**
+     * Publishes an EmployeeChangedEvent for every employee removed with a department
+     */
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Rows fetched per round trip when streaming the members of a department
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * JDBC template reading through a server-side cursor, used to stream department members
+     */
+    private JdbcTemplate streamJdbcTemplate;
+
+    /**
+     * Read-only repeatable-read transaction the member cursors share, so both read one snapshot
+     */
+    private TransactionTemplate snapshotTransactionTemplate;
+
     /**
      * Creates new DepartmentDao
      *
      * @param dataSource The datasource to connect to
+     * @param transactionManager The transaction manager for the datasource
+     * @param nearCache The cache of department lookups
+     * @param eventPublisher The publisher of employee removals
      */
-    public DepartmentDao(DataSource dataSource) {
-        jdbcTemplate = new JdbcTemplate(dataSource);
+    public DepartmentDao(DataSource dataSource, PlatformTransactionManager transactionManager, NearCache nearCache,
+                         ApplicationEventPublisher eventPublisher) {
+        jdbcTemplate = new DeadlineAwareJdbcTemplate(dataSource);
+        streamJdbcTemplate = new JdbcTemplate(dataSource);
+        streamJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotTransactionTemplate.setReadOnly(true);
+        snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.nearCache = nearCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -34,6 +90,30 @@ public class DepartmentDao {
      * @throws DaoException If an error occurs
      */
     public List<Department> getAllDepartments() {
+        return nearCache.get(TABLE, "all", this::queryAllDepartments, DepartmentDao::copyAll);
+    }
+
+    /**
+     * Copies a list of departments and every department in it
+     *
+     * @param departments The departments
+     * @return The copy
+     */
+    private static List<Department> copyAll(List<Department> departments) {
+        List<Department> copy = new ArrayList<>(departments.size());
+        for (Department department : departments) {
+            copy.add(department.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Reads all departments from the database
+     *
+     * @return The list of departments
+     * @throws DaoException If an error occurs
+     */
+    private List<Department> queryAllDepartments() {
         List<Department> departments = new ArrayList<>();
         String sql = "SELECT * FROM department;";
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql);
@@ -50,6 +130,17 @@ public class DepartmentDao {
      * @throws DaoException If an error occurs
      */
     public Department getDepartmentById( int id) {
+        return nearCache.get(TABLE, id, () -> queryDepartmentById(id), Department::copy);
+    }
+
+    /**
+     * Reads a department from the database
+     *
+     * @param id The id of the department
+     * @return The department or null if it does not exist
+     * @throws DaoException If an error occurs
+     */
+    private Department queryDepartmentById(int id) {
         String sql = "SELECT * FROM department WHERE department_id = ?";
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, id);
         if (rowSet.next()) {
@@ -59,6 +150,29 @@ public class DepartmentDao {
         }
     }
 
+    /**
+     * Streams the employees and vendors of a department to consumers, one row at a time. Both lists are
+     * read through server-side cursors in one read-only repeatable-read transaction, so they come from the
+     * same snapshot and memory use does not grow with the size of the department.
+     *
+     * @param id The id of the department
+     * @param employees Receives each employee of the department, ordered by name
+     * @param vendors Receives each vendor of the department, ordered by id, after the last employee
+     * @throws DaoException If an error occurs
+     */
+    public void streamDepartmentMembers(int id, Consumer<Employee> employees, Consumer<Vendor> vendors) {
+        try {
+            snapshotTransactionTemplate.executeWithoutResult(status -> {
+                streamJdbcTemplate.query("SELECT * FROM employee WHERE department_id = ? ORDER BY name, employee_id;",
+                        (RowCallbackHandler) resultSet -> employees.accept(mapResultSetToEmployee(resultSet)), id);
+                streamJdbcTemplate.query("SELECT * FROM vendor WHERE department_id = ? ORDER BY vendor_id;",
+                        (RowCallbackHandler) resultSet -> vendors.accept(mapResultSetToVendor(resultSet)), id);
+            });
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
     /**
      * Creates a new department and returns the created department with the generated id
      *
@@ -71,6 +185,7 @@ public class DepartmentDao {
         String sql = "INSERT INTO department (department_name) VALUES (?) RETURNING department_id;";
         try {
             int newDepartmentId = jdbcTemplate.queryForObject(sql, int.class, department.getDepartmentName());
+            nearCache.invalidate(TABLE);
             newDepartment = getDepartmentById(newDepartmentId);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database");
@@ -81,7 +196,8 @@ public class DepartmentDao {
     }
 
     /**
-     * Deletes a department by their id
+     * Deletes a department by their id, together with its employees and vendors. A removal of every
+     * deleted employee is published, as EmployeeDao does for its own deletes.
      *
      * @param department_id The id of department
      * @return The number of affected rows
@@ -89,13 +205,18 @@ public class DepartmentDao {
      */
     public int deleteDepartment(int department_id) {
         int numberOfRows = 0;
-        String deleteEmployeeSql = "DELETE FROM employee WHERE department_id = ?;";
+        String deleteEmployeeSql = "DELETE FROM employee WHERE department_id = ? RETURNING employee_id;";
         String deleteVendorSql = "DELETE FROM vendor WHERE department_id = ?;";
         String deleteDepartmentSql = "DELETE FROM department WHERE department_id = ?";
         try {
-            jdbcTemplate.update(deleteEmployeeSql, department_id);
+            List<Integer> employeeIds = jdbcTemplate.queryForList(deleteEmployeeSql, Integer.class, department_id);
+            for (int employeeId : employeeIds) {
+                eventPublisher.publishEvent(new EmployeeChangedEvent(StoreContext.current(), employeeId, null));
+            }
             jdbcTemplate.update(deleteVendorSql, department_id);
             numberOfRows = jdbcTemplate.update(deleteDepartmentSql, department_id);
+            nearCache.invalidate("vendor");
+            nearCache.invalidate(TABLE);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database");
         } catch (DataIntegrityViolationException e) {
@@ -117,4 +238,46 @@ public class DepartmentDao {
         department.setDepartmentName(rowSet.getString("department_name"));
         return department;
     }
+
+    /**
+     * Maps the current row of a live result set to employee
+     *
+     * @param resultSet The result set
+     * @return The employee object mapped from the row
+     * @throws SQLException If a column cannot be read
+     */
+    private static Employee mapResultSetToEmployee(ResultSet resultSet) throws SQLException {
+        Employee employee = new Employee();
+        employee.setEmployeeId(resultSet.getInt("employee_id"));
+        employee.setName(resultSet.getString("name"));
+        employee.setHireDate(resultSet.getDate("hire_date").toLocalDate());
+        Date leaveDate = resultSet.getDate("leave_date");
+        if (leaveDate != null) {
+            employee.setLeaveDate(leaveDate.toLocalDate());
+        }
+        employee.setPhoneNumber(resultSet.getString("phone_number"));
+        employee.setHourlyRate(resultSet.getBigDecimal("hourly_rate"));
+        employee.setDepartmentId(resultSet.getInt("department_id"));
+        employee.setVersion(resultSet.getLong("version"));
+        return employee;
+    }
+
+    /**
+     * Maps the current row of a live result set to vendor
+     *
+     * @param resultSet The result set
+     * @return The vendor object mapped from the row
+     * @throws SQLException If a column cannot be read
+     */
+    private static Vendor mapResultSetToVendor(ResultSet resultSet) throws SQLException {
+        Vendor vendor = new Vendor();
+        vendor.setVendorId(resultSet.getInt("vendor_id"));
+        vendor.setVendorName(resultSet.getString("vendor_name"));
+        vendor.setContact(resultSet.getString("contact_name"));
+        vendor.setAddress(resultSet.getString("address"));
+        vendor.setPhoneNumber(resultSet.getString("phone_number"));
+        vendor.setDepartmentId(resultSet.getInt("department_id"));
+        vendor.setVersion(resultSet.getLong("version"));
+        return vendor;
+    }
 }
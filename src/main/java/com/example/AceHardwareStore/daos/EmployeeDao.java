@@ -1,17 +1,39 @@
 package com.example.AceHardwareStore.daos;
 
+import com.example.AceHardwareStore.deadline.DeadlineAwareJdbcTemplate;
+import com.example.AceHardwareStore.events.EmployeeChangedEvent;
 import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.exceptions.InvalidDataException;
+import com.example.AceHardwareStore.exceptions.VersionConflictException;
 import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.EmployeeRate;
+import com.example.AceHardwareStore.models.HourlyRateAsOf;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 @Component
 public class EmployeeDao extends Employee {
     /**
@@ -19,13 +41,46 @@ public class EmployeeDao extends Employee {
      */
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Rows fetched per round trip when streaming an export
+     */
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * SQLSTATE of a CHECK constraint violation, the only check on employee is the minimum hourly rate
+     */
+    private static final String CHECK_VIOLATION = "23514";
+
+    /**
+     * JDBC template reading through a server-side cursor, used for exports
+     */
+    private JdbcTemplate exportJdbcTemplate;
+
+    /**
+     * Read-only transaction the export cursor lives in
+     */
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    /**
+     * Publishes an EmployeeChangedEvent after every write
+     */
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Created new EmployeeDao
      *
      * @param dataSource The datasource to connect to
+     * @param transactionManager The transaction manager for the datasource
+     * @param eventPublisher The publisher of employee changes
      */
-    public EmployeeDao(DataSource dataSource) {
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    public EmployeeDao(DataSource dataSource, PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = new DeadlineAwareJdbcTemplate(dataSource);
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -50,6 +105,27 @@ public class EmployeeDao extends Employee {
         return employees;
     }
 
+    /**
+     * Streams employees in id order to a consumer, one row at a time. The rows are read through a
+     * server-side cursor inside a read-only transaction, so memory use does not grow with the result.
+     *
+     * @param departmentId The id of the department to export, or null for all employees
+     * @param consumer Receives each employee as its row is read
+     * @throws DaoException If an error occurs
+     */
+    public void streamEmployees(Integer departmentId, Consumer<Employee> consumer) {
+        String sql = "SELECT * FROM employee" + (departmentId != null ? " WHERE department_id = ?" : "")
+                + " ORDER BY employee_id;";
+        Object[] args = departmentId != null ? new Object[]{departmentId} : new Object[0];
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> exportJdbcTemplate.query(
+                    sql, (RowCallbackHandler) resultSet -> consumer.accept(mapResultSetToEmployee(resultSet)), args
+            ));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
     /**
      * Returns an employee by their id
      *
@@ -129,7 +205,11 @@ public class EmployeeDao extends Employee {
             Integer newEmployeeId = jdbcTemplate.queryForObject(sql, int.class, employee.getName(), employee.getHireDate(),
                     employee.getPhoneNumber(), employee.getHourlyRate(), employee.getDepartmentId());
             if (newEmployeeId != null) {
-                return getEmployeeById(newEmployeeId);
+                newEmployee = getEmployeeById(newEmployeeId);
+                if (newEmployee != null) {
+                    publishChange(newEmployeeId, newEmployee);
+                }
+                return newEmployee;
             }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
@@ -139,6 +219,55 @@ public class EmployeeDao extends Employee {
         return null;
     }
 
+    /**
+     * Returns the hourly rate an employee had at a point in time
+     *
+     * @param employeeId The id of the employee
+     * @param asOf The point in time
+     * @return The rate in effect, or null if the employee had no rate yet or never existed
+     * @throws DaoException If an error occurs
+     */
+    public HourlyRateAsOf getHourlyRateAsOf(int employeeId, Instant asOf) {
+        String sql = "SELECT employee_id, hourly_rate, valid_from FROM employee_rate_history " +
+                "WHERE employee_id = ? AND valid_from <= ? ORDER BY valid_from DESC, change_id DESC LIMIT 1;";
+        try {
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, employeeId, Timestamp.from(asOf));
+            if (rowSet.next()) {
+                return mapRowToHourlyRateAsOf(rowSet);
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the hourly rates the employees of a department had at a point in time. Department
+     * membership is the current one, and employees hired after that time are left out.
+     *
+     * @param departmentId The id of the department
+     * @param asOf The point in time
+     * @return The rates in effect, by employee id
+     * @throws DaoException If an error occurs
+     */
+    public List<HourlyRateAsOf> getDepartmentHourlyRatesAsOf(int departmentId, Instant asOf) {
+        List<HourlyRateAsOf> rates = new ArrayList<>();
+        String sql = "SELECT e.employee_id, h.hourly_rate, h.valid_from FROM employee e " +
+                "CROSS JOIN LATERAL (SELECT hourly_rate, valid_from FROM employee_rate_history " +
+                "WHERE employee_id = e.employee_id AND valid_from <= ? " +
+                "ORDER BY valid_from DESC, change_id DESC LIMIT 1) h " +
+                "WHERE e.department_id = ? ORDER BY e.employee_id;";
+        try {
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, Timestamp.from(asOf), departmentId);
+            while (rowSet.next()) {
+                rates.add(mapRowToHourlyRateAsOf(rowSet));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return rates;
+    }
+
     /**
      * Deletes an employee by their id
      *
@@ -149,7 +278,9 @@ public class EmployeeDao extends Employee {
 
         String sql = "DELETE FROM employee WHERE employee_id = ?";
         try {
-            jdbcTemplate.update(sql, employeeId);
+            if (jdbcTemplate.update(sql, employeeId) > 0) {
+                publishChange(employeeId, null);
+            }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database");
         } catch (DataIntegrityViolationException e) {
@@ -165,33 +296,32 @@ public class EmployeeDao extends Employee {
      * @throws DaoException If an error occurs
      */
     public Employee updateEmployee(Employee updatedEmployee) {
-        Employee updatedEmployeeResult = null;
+        return updateEmployee(updatedEmployee, null);
+    }
+
+    /**
+     * Updates an existing employee if it is still at the expected version
+     *
+     * @param updatedEmployee The employee object to be updated
+     * @param expectedVersion The version the client last read, or null to update unconditionally
+     * @return The updated employee object
+     * @throws VersionConflictException If the employee is at a different version
+     * @throws DaoException If an error occurs
+     */
+    public Employee updateEmployee(Employee updatedEmployee, Long expectedVersion) {
         String sql =
                 "UPDATE employee SET name = ?, hire_date = ?, phone_number = ?," +
-                        " hourly_rate = ?, department_id = ? WHERE employee_id = ?";
-
-        try {
-            int numberOfRows = jdbcTemplate.update(
-                    sql,
-                    updatedEmployee.getName(),
-                    updatedEmployee.getHireDate(),
-                    updatedEmployee.getPhoneNumber(),
-                    updatedEmployee.getHourlyRate(),
-                    updatedEmployee.getDepartmentId(),
-                    updatedEmployee.getEmployeeId()
-            );
-            if (numberOfRows == 0) {
-                throw new DaoException("Zero rows affected");
-            } else {
-                updatedEmployeeResult = getEmployeeById(updatedEmployee.getEmployeeId());
-            }
-        } catch (CannotGetJdbcConnectionException e) {
-            throw new DaoException("Unable to connect to server or database", e);
-        } catch (DataIntegrityViolationException e) {
-            throw new DaoException("Data Integrity Violation", e);
-        }
-
-        return updatedEmployeeResult;
+                        " hourly_rate = ?, department_id = ?, version = version + 1 WHERE employee_id = ?";
+        return updateEmployeeRow(
+                sql,
+                updatedEmployee.getEmployeeId(),
+                expectedVersion,
+                updatedEmployee.getName(),
+                updatedEmployee.getHireDate(),
+                updatedEmployee.getPhoneNumber(),
+                updatedEmployee.getHourlyRate(),
+                updatedEmployee.getDepartmentId()
+        );
     }
 
     /**
@@ -203,48 +333,193 @@ public class EmployeeDao extends Employee {
      * @throws DaoException If an error occurs
      */
     public Employee updateEmployeePhoneNumberById(int employeeId, String newPhoneNumber) {
-        Employee updatePhoneNumber = null;
-        String sql = "UPDATE employee SET phone_number = ? WHERE employee_id = ?";
+        return updateEmployeePhoneNumberById(employeeId, newPhoneNumber, null);
+    }
+
+    /**
+     * Updates an existing employees phone number by id if it is still at the expected version
+     *
+     * @param employeeId The id of the employee to update
+     * @param newPhoneNumber The new phone number to set
+     * @param expectedVersion The version the client last read, or null to update unconditionally
+     * @return The updated Employee object
+     * @throws VersionConflictException If the employee is at a different version
+     * @throws DaoException If an error occurs
+     */
+    public Employee updateEmployeePhoneNumberById(int employeeId, String newPhoneNumber, Long expectedVersion) {
+        String sql = "UPDATE employee SET phone_number = ?, version = version + 1 WHERE employee_id = ?";
+        return updateEmployeeRow(sql, employeeId, expectedVersion, newPhoneNumber);
+    }
+
+    /**
+     * Updates the hourly rate of an employee by thir id
+     *
+     * @param employeeId The id of the employee to update
+     * @param newHourlyRate The new hourly rate to set
+     * @return The updated employee object
+     * @throws DaoException If an error occurs
+     */
+    public Employee updateEmployeeHourlyRateById(int employeeId, BigDecimal newHourlyRate) {
+        return updateEmployeeHourlyRateById(employeeId, newHourlyRate, null);
+    }
+
+    /**
+     * Updates the hourly rate of an employee by their id if it is still at the expected version
+     *
+     * @param employeeId The id of the employee to update
+     * @param newHourlyRate The new hourly rate to set
+     * @param expectedVersion The version the client last read, or null to update unconditionally
+     * @return The updated employee object
+     * @throws VersionConflictException If the employee is at a different version
+     * @throws DaoException If an error occurs
+     */
+    public Employee updateEmployeeHourlyRateById(int employeeId, BigDecimal newHourlyRate, Long expectedVersion) {
+        String sql = "UPDATE employee SET hourly_rate = ?, version = version + 1 WHERE employee_id = ?";
+        return updateEmployeeRow(sql, employeeId, expectedVersion, newHourlyRate);
+    }
+
+    /**
+     * Sets the hourly rates of several employees with one UPDATE ... FROM (VALUES ...) statement,
+     * so either every rate is written or none is. The database rejects rates below the minimum.
+     *
+     * @param rates The new rates by employee
+     * @return The updated employees, ordered by id
+     * @throws InvalidDataException If an employee appears more than once or a rate is below the minimum
+     * @throws DaoException If an error occurs
+     */
+    public List<Employee> setHourlyRates(List<EmployeeRate> rates) {
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(rates.size() * 2);
+        Set<Integer> employeeIds = new HashSet<>();
+        for (EmployeeRate rate : rates) {
+            if (!employeeIds.add(rate.getEmployeeId())) {
+                throw new InvalidDataException("Employee " + rate.getEmployeeId() + " appears more than once");
+            }
+            values.add("(?::integer, ?::numeric)");
+            args.add(rate.getEmployeeId());
+            args.add(rate.getHourlyRate());
+        }
+        String sql = "UPDATE employee e SET hourly_rate = v.hourly_rate, version = e.version + 1 " +
+                "FROM (VALUES " + values + ") AS v(employee_id, hourly_rate) " +
+                "WHERE e.employee_id = v.employee_id RETURNING e.*;";
+        return updateEmployeeRows(sql, args.toArray());
+    }
+
+    /**
+     * Raises the hourly rate of every active employee of a department by a percentage in one statement
+     *
+     * @param departmentId The id of the department
+     * @param percent The raise in percent
+     * @return The updated employees, ordered by id
+     * @throws DaoException If an error occurs
+     */
+    public List<Employee> raiseDepartmentHourlyRates(int departmentId, BigDecimal percent) {
+        String sql = "UPDATE employee SET hourly_rate = ROUND(hourly_rate * (100 + ?) / 100, 2), version = version + 1 " +
+                "WHERE department_id = ? AND leave_date IS NULL RETURNING *;";
+        return updateEmployeeRows(sql, percent, departmentId);
+    }
+
+    /**
+     * Raises every active employee paid below a new minimum to that minimum in one statement
+     *
+     * @param minimum The new minimum hourly rate
+     * @return The updated employees, ordered by id
+     * @throws DaoException If an error occurs
+     */
+    public List<Employee> raiseHourlyRatesToMinimum(BigDecimal minimum) {
+        String sql = "UPDATE employee SET hourly_rate = ?, version = version + 1 " +
+                "WHERE hourly_rate < ? AND leave_date IS NULL RETURNING *;";
+        return updateEmployeeRows(sql, minimum, minimum);
+    }
+
+    /**
+     * Runs an UPDATE ... RETURNING statement over many employee rows
+     *
+     * @param sql The statement
+     * @param args The statement arguments
+     * @return The updated employees, ordered by id
+     * @throws InvalidDataException If a new rate is below the minimum
+     * @throws DaoException If an error occurs
+     */
+    private List<Employee> updateEmployeeRows(String sql, Object... args) {
+        List<Employee> employees = new ArrayList<>();
         try {
-            int numberOfRows = jdbcTemplate.update(sql, newPhoneNumber, employeeId);
-            if (numberOfRows == 0) {
-                throw new DaoException("zero rows affected");
-            } else {
-                updatePhoneNumber = (Employee)getEmployeeById(employeeId);
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, args);
+            while (rowSet.next()) {
+                Employee employee = mapRowToEmployee(rowSet);
+                publishChange(employee.getEmployeeId(), employee);
+                employees.add(employee);
             }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         } catch (DataIntegrityViolationException e) {
-            throw new DaoException("Data Integrity Violation", e);
+            throw integrityViolation(e);
         }
-        return updatePhoneNumber;
+        employees.sort(Comparator.comparingInt(Employee::getEmployeeId));
+        return employees;
     }
 
     /**
-     * Updates the hourly rate of an employee by thir id
+     * Runs an update of one employee row and returns the row as written, in a single statement.
+     * The version check is part of the WHERE clause, so no locking read is needed.
      *
+     * @param sql The UPDATE statement, ending in the employee_id condition
      * @param employeeId The id of the employee to update
-     * @param newHourlyRate The new hourly rate to set
+     * @param expectedVersion The version the client last read, or null to update unconditionally
+     * @param values The values of the SET clause
      * @return The updated employee object
+     * @throws VersionConflictException If the employee is at a different version
      * @throws DaoException If an error occurs
      */
-    public Employee updateEmployeeHourlyRateById(int employeeId, BigDecimal newHourlyRate) {
-        Employee updateHourlyRate = null;
-        String sql = "UPDATE employee SET hourly_rate = ? WHERE employee_id = ?";
+    private Employee updateEmployeeRow(String sql, int employeeId, Long expectedVersion, Object... values) {
+        List<Object> args = new ArrayList<>(Arrays.asList(values));
+        args.add(employeeId);
+        if (expectedVersion != null) {
+            sql += " AND version = ?";
+            args.add(expectedVersion);
+        }
+        sql += " RETURNING *;";
         try {
-            int numberOfRows = jdbcTemplate.update(sql, newHourlyRate, employeeId);
-            if (numberOfRows == 0) {
-                throw new DaoException("zero rows affected");
-            } else {
-                updateHourlyRate = getEmployeeById(employeeId);
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, args.toArray());
+            if (rowSet.next()) {
+                Employee employee = mapRowToEmployee(rowSet);
+                publishChange(employeeId, employee);
+                return employee;
             }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         } catch (DataIntegrityViolationException e) {
-            throw new DaoException("Data Integrity Violation", e);
+            throw integrityViolation(e);
         }
-        return updateHourlyRate;
+        if (expectedVersion != null && getEmployeeById(employeeId) != null) {
+            throw new VersionConflictException("Employee " + employeeId + " has been modified");
+        }
+        throw new DaoException("Zero rows affected");
     }
+
+    /**
+     * Converts an integrity violation of an employee update to the exception reported to the client
+     *
+     * @param e The violation
+     * @return An InvalidDataException for a rate below the minimum, a DaoException otherwise
+     */
+    private static DaoException integrityViolation(DataIntegrityViolationException e) {
+        if (e.getMostSpecificCause() instanceof SQLException cause && CHECK_VIOLATION.equals(cause.getSQLState())) {
+            return new InvalidDataException("Hourly rate must be greater than or equal to the $13.00 minimum", e);
+        }
+        return new DaoException("Data Integrity Violation", e);
+    }
+
+    /**
+     * Announces a written employee to listeners of the current store
+     *
+     * @param employeeId The id of the employee
+     * @param employee The employee as written, or null if it was deleted
+     */
+    private void publishChange(int employeeId, Employee employee) {
+        eventPublisher.publishEvent(new EmployeeChangedEvent(StoreContext.current(), employeeId, employee));
+    }
+
     /**
      * Maps a row in the result set to employee
      *
@@ -262,6 +537,41 @@ public class EmployeeDao extends Employee {
         employee.setPhoneNumber(rowSet.getString("phone_number"));
         employee.setHourlyRate(rowSet.getBigDecimal("hourly_rate"));
         employee.setDepartmentId(rowSet.getInt("department_id"));
+        employee.setVersion(rowSet.getLong("version"));
+        return employee;
+    }
+
+    /**
+     * Maps a row in the result set to the hourly rate of an employee at a point in time
+     *
+     * @param rowSet The SqlRowSet
+     * @return The rate mapped from the row set
+     */
+    private HourlyRateAsOf mapRowToHourlyRateAsOf(SqlRowSet rowSet) {
+        return new HourlyRateAsOf(rowSet.getInt("employee_id"), rowSet.getBigDecimal("hourly_rate"),
+                rowSet.getTimestamp("valid_from").toInstant());
+    }
+
+    /**
+     * Maps the current row of a live result set to employee
+     *
+     * @param resultSet The result set
+     * @return The employee object mapped from the row
+     * @throws SQLException If a column cannot be read
+     */
+    private Employee mapResultSetToEmployee(ResultSet resultSet) throws SQLException {
+        Employee employee = new Employee();
+        employee.setEmployeeId(resultSet.getInt("employee_id"));
+        employee.setName(resultSet.getString("name"));
+        employee.setHireDate(resultSet.getDate("hire_date").toLocalDate());
+        Date leaveDate = resultSet.getDate("leave_date");
+        if (leaveDate != null) {
+            employee.setLeaveDate(leaveDate.toLocalDate());
+        }
+        employee.setPhoneNumber(resultSet.getString("phone_number"));
+        employee.setHourlyRate(resultSet.getBigDecimal("hourly_rate"));
+        employee.setDepartmentId(resultSet.getInt("department_id"));
+        employee.setVersion(resultSet.getLong("version"));
         return employee;
     }
 }
@@ -0,0 +1,97 @@
+package com.example.AceHardwareStore.daos;
+
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.models.Punch;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-clock punch data access object. The punch table is append-only.
+ */
+@Component
+public class PunchDao {
+    /**
+     * JDBC template instance
+     */
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Transaction template, so a batch commits once
+     */
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Creates new PunchDao
+     *
+     * @param dataSource The datasource to connect to
+     * @param transactionManager The transaction manager
+     */
+    public PunchDao(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Tells which of some employees have left, in one query. The ids are bound as one array,
+     * so a request of any size stays within the bind parameter limit.
+     *
+     * @param employeeIds The ids of the employees
+     * @return Whether each existing employee has a leave date, by id, unknown employees are missing
+     * @throws DaoException If an error occurs
+     */
+    public Map<Integer, Boolean> getDepartures(Collection<Integer> employeeIds) {
+        Map<Integer, Boolean> departures = new HashMap<>();
+        if (employeeIds.isEmpty()) {
+            return departures;
+        }
+        String sql = "SELECT employee_id, leave_date IS NOT NULL AS has_left FROM employee " +
+                "WHERE employee_id = ANY(?);";
+        try {
+            jdbcTemplate.query(sql,
+                    statement -> statement.setArray(1,
+                            statement.getConnection().createArrayOf("integer", employeeIds.toArray())),
+                    (RowCallbackHandler) resultSet -> departures.put(
+                            resultSet.getInt("employee_id"), resultSet.getBoolean("has_left")));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return departures;
+    }
+
+    /**
+     * Inserts punches in one batch and one transaction. Punches already stored are skipped,
+     * so a batch may be written again after a failure or a replay.
+     *
+     * @param punches The punches to insert
+     * @throws DaoException If an error occurs, caused by a DataIntegrityViolationException if a row was refused
+     */
+    public void addPunches(List<Punch> punches) {
+        String sql = "INSERT INTO punch (punch_id, employee_id, direction, punched_at, received_at) " +
+                "VALUES (?, ?, ?, ?, ?) ON CONFLICT (punch_id) DO NOTHING;";
+        List<Object[]> batchArgs = new ArrayList<>(punches.size());
+        for (Punch punch : punches) {
+            batchArgs.add(new Object[]{punch.getPunchId(), punch.getEmployeeId(), punch.getDirection().name(),
+                    Timestamp.from(punch.getPunchedAt()), Timestamp.from(punch.getReceivedAt())});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batchArgs));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data Integrity Violation", e);
+        }
+    }
+}
@@ -1,22 +1,61 @@
 package com.example.AceHardwareStore.daos;
 
 
+import com.example.AceHardwareStore.deadline.DeadlineAwareJdbcTemplate;
+import com.example.AceHardwareStore.events.UserChangedEvent;
+import com.example.AceHardwareStore.events.UserRolesChangedEvent;
+import com.example.AceHardwareStore.events.UserStoreChangedEvent;
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.models.NewUser;
+import com.example.AceHardwareStore.models.ProvisioningResult;
 import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.models.UserWithRoles;
+import com.example.AceHardwareStore.security.BatchPasswordEncoder;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * User data access object
  */
 @Component
 public class UserDao {
+    /**
+     * Name of the table, as announced on the near-cache invalidation channel
+     */
+    public static final String TABLE = "users";
+
+    /**
+     * Table of token revocations, written by triggers on users and roles
+     */
+    public static final String REVOCATION_TABLE = "token_revocation";
+
     /**
      * JDBC template
      */
@@ -27,15 +66,30 @@ public class UserDao {
      */
     private PasswordEncoder passwordEncoder;
 
+    /**
+     * Transaction template for multi-statement writes
+     */
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Publishes a UserChangedEvent, UserRolesChangedEvent or UserStoreChangedEvent after every write
+     */
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Constructor
      *
      * @param dataSource data source
      * @param passwordEncoder password encoder
+     * @param transactionManager transaction manager
+     * @param eventPublisher publisher of user changes
      */
-    public UserDao(DataSource dataSource, PasswordEncoder passwordEncoder) {
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    public UserDao(DataSource dataSource, PasswordEncoder passwordEncoder, PlatformTransactionManager transactionManager,
+                   ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = new DeadlineAwareJdbcTemplate(dataSource);
         this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -50,6 +104,43 @@ public class UserDao {
         );
     }
 
+    /**
+     * Get a page of users with their roles, without password hashes, in one query.
+     * Users are paged by username so a page costs the same however deep it is.
+     *
+     * @param after The last username of the previous page, null for the first page
+     * @param limit The most users to return
+     * @return The users after the given username, in username order
+     * @throws DaoException If the database is unreachable
+     */
+    public List<UserWithRoles> getUsersWithRoles(String after, int limit) {
+        String sql = "SELECT u.username, u.phone_number, r.role " +
+                "FROM (SELECT username, phone_number FROM users " +
+                (after == null ? "" : "WHERE username > ? ") +
+                "ORDER BY username LIMIT ?) u " +
+                "LEFT JOIN roles r ON r.username = u.username " +
+                "ORDER BY u.username, r.role";
+        Object[] args = after == null ? new Object[] {limit} : new Object[] {after, limit};
+        List<UserWithRoles> users = new ArrayList<>();
+        try {
+            jdbcTemplate.query(sql, row -> {
+                String username = row.getString("username");
+                UserWithRoles user = users.isEmpty() ? null : users.get(users.size() - 1);
+                if (user == null || !user.getUsername().equals(username)) {
+                    user = new UserWithRoles(username, row.getString("phone_number"), new ArrayList<>());
+                    users.add(user);
+                }
+                String role = row.getString("role");
+                if (role != null) {
+                    user.getRoles().add(role);
+                }
+            }, args);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return users;
+    }
+
     /**
      * Get user by username
      *
@@ -67,6 +158,53 @@ public class UserDao {
         }
     }
 
+    /**
+     * Get the store a user is bound to
+     *
+     * @param username username
+     * @return The store id, null for the default store or if there is no such user
+     */
+    public String getStoreOfUser(String username) {
+        List<String> stores = jdbcTemplate.queryForList(
+                "SELECT store_id FROM users WHERE username = ?",
+                String.class, username
+        );
+        return stores.isEmpty() ? null : stores.get(0);
+    }
+
+    /**
+     * Bind a user to a store, so their next tokens name it. Tokens issued before are refused.
+     *
+     * @param username username
+     * @param storeId The store id, null for the default store
+     * @return Whether the user exists
+     */
+    public boolean setStoreOfUser(String username, String storeId) {
+        int updated = jdbcTemplate.update(
+                "UPDATE users SET store_id = ? WHERE username = ?",
+                storeId, username
+        );
+        if (updated > 0) {
+            eventPublisher.publishEvent(new UserStoreChangedEvent(StoreContext.current(), username));
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Passes every username to a consumer as the rows arrive, without loading the users
+     *
+     * @param consumer receives each username
+     * @throws DaoException If the database is unreachable
+     */
+    public void forEachUsername(Consumer<String> consumer) {
+        try {
+            jdbcTemplate.query("SELECT username FROM users",
+                    (RowCallbackHandler) row -> consumer.accept(row.getString("username")));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
     /**
      * Create user
      *
@@ -74,15 +212,109 @@ public class UserDao {
      * @return created user
      */
     public User createUser(User user) {
+        // hash outside the try so a saturated hashing executor is reported instead of swallowed
+        String passwordHash = passwordEncoder.encode(user.getPassword());
         try {
             jdbcTemplate.update(
                     "INSERT INTO users (username, password, phone_number) VALUES (?, ?, ?)",
-                    user.getUsername(), passwordEncoder.encode(user.getPassword()), user.getPhoneNumber()
+                    user.getUsername(), passwordHash, user.getPhoneNumber()
             );
-            return getUser(user.getUsername());
         } catch (Exception e) {
             return null;
         }
+        User createdUser = getUser(user.getUsername());
+        if (createdUser != null) {
+            publishChange(createdUser.getUsername(), createdUser);
+        }
+        return createdUser;
+    }
+
+    /**
+     * Create users and their roles. Passwords are hashed in parallel, then users and roles are
+     * inserted with two batched statements in one transaction. A username that is taken is
+     * reported as a failure of that user only.
+     *
+     * @param newUsers users to create, already validated
+     * @return one result per user, in input order
+     */
+    public List<ProvisioningResult> createUsers(List<NewUser> newUsers) {
+        ProvisioningResult[] results = new ProvisioningResult[newUsers.size()];
+        Set<String> takenUsernames = getExistingUsernames(newUsers.stream().map(NewUser::getUsername).toList());
+        Set<String> requestedUsernames = new HashSet<>();
+        List<Integer> toCreate = new ArrayList<>();
+        for (int i = 0; i < newUsers.size(); i++) {
+            String username = newUsers.get(i).getUsername();
+            if (takenUsernames.contains(username)) {
+                results[i] = ProvisioningResult.failed(username, "Username already exists");
+            } else if (!requestedUsernames.add(username)) {
+                results[i] = ProvisioningResult.failed(username, "Username appears more than once in the request");
+            } else {
+                toCreate.add(i);
+            }
+        }
+
+        List<String> passwords = toCreate.stream().map(i -> newUsers.get(i).getPassword()).toList();
+        List<String> passwordHashes = BatchPasswordEncoder.encodeAll(passwordEncoder, passwords);
+
+        List<Object[]> userArgs = new ArrayList<>(toCreate.size());
+        for (int j = 0; j < toCreate.size(); j++) {
+            NewUser newUser = newUsers.get(toCreate.get(j));
+            userArgs.add(new Object[]{newUser.getUsername(), passwordHashes.get(j), newUser.getPhoneNumber()});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int[] insertedUsers = jdbcTemplate.batchUpdate(
+                        "INSERT INTO users (username, password, phone_number) VALUES (?, ?, ?) ON CONFLICT (username) DO NOTHING",
+                        userArgs
+                );
+                List<Object[]> roleArgs = new ArrayList<>();
+                for (int j = 0; j < toCreate.size(); j++) {
+                    int i = toCreate.get(j);
+                    NewUser newUser = newUsers.get(i);
+                    if (insertedUsers[j] == 0) {
+                        // created by a concurrent request after the existence check
+                        results[i] = ProvisioningResult.failed(newUser.getUsername(), "Username already exists");
+                        continue;
+                    }
+                    results[i] = ProvisioningResult.created(newUser.getUsername());
+                    for (String role : new HashSet<>(newUser.getRoles())) {
+                        roleArgs.add(new Object[]{newUser.getUsername(), role});
+                    }
+                }
+                if (!roleArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO roles (username, role) VALUES (?, ?) ON CONFLICT DO NOTHING", roleArgs);
+                }
+            });
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataAccessException e) {
+            throw new DaoException("Provisioning failed, no user was created", e);
+        }
+        for (int j = 0; j < toCreate.size(); j++) {
+            NewUser newUser = newUsers.get(toCreate.get(j));
+            if (results[toCreate.get(j)].isCreated()) {
+                publishChange(newUser.getUsername(), new User(newUser.getUsername(), passwordHashes.get(j), newUser.getPhoneNumber()));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Returns which of the given usernames exist
+     *
+     * @param usernames usernames to look up
+     * @return the existing usernames
+     */
+    private Set<String> getExistingUsernames(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Collections.emptySet();
+        }
+        StringJoiner placeholders = new StringJoiner(", ");
+        usernames.forEach(username -> placeholders.add("?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT username FROM users WHERE username IN (" + placeholders + ")",
+                String.class, usernames.toArray()
+        ));
     }
 
     /**
@@ -104,7 +336,11 @@ public class UserDao {
                     user.getPhoneNumber(), user.getUsername()
             );
         }
-        return getUser(user.getUsername());
+        User updatedUser = getUser(user.getUsername());
+        if (updatedUser != null) {
+            publishChange(updatedUser.getUsername(), updatedUser);
+        }
+        return updatedUser;
     }
 
     /**
@@ -113,10 +349,13 @@ public class UserDao {
      * @param username username
      */
     public void deleteUser(String username) {
-        jdbcTemplate.update(
+        int deleted = jdbcTemplate.update(
                 "DELETE FROM users WHERE username = ?",
                 username
         );
+        if (deleted > 0) {
+            publishChange(username, null);
+        }
     }
 
     /**
@@ -133,19 +372,28 @@ public class UserDao {
     }
 
     /**
-     * Add role to user
+     * Add role to user, granting a role the user already has does nothing
      *
      * @param username
      * @param role
+     * @return Whether the role was granted, false if the user already had it
+     * @throws DaoException If the user does not exist or the database is unreachable
      */
-    public void addRoleToUser(String username, String role) {
+    public boolean addRoleToUser(String username, String role) {
         try {
             jdbcTemplate.update(
                     "INSERT INTO roles (username, role) VALUES (?, ?)",
                     username, role
             );
-        } catch (Exception e) {
-            // ignore
+            eventPublisher.publishEvent(new UserRolesChangedEvent(StoreContext.current(), username));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // the user already has the role
+            return false;
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data Integrity Violation", e);
         }
     }
 
@@ -154,12 +402,37 @@ public class UserDao {
      *
      * @param username
      * @param role
+     * @return Whether the role was revoked, false if the user did not have it
      */
-    public void removeRoleFromUser(String username, String role) {
-        jdbcTemplate.update(
+    public boolean removeRoleFromUser(String username, String role) {
+        int removed = jdbcTemplate.update(
                 "DELETE FROM roles WHERE username = ? AND role = ?",
                 username, role
         );
+        if (removed > 0) {
+            eventPublisher.publishEvent(new UserRolesChangedEvent(StoreContext.current(), username));
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Get the token revocations recorded since a time, by any instance
+     *
+     * @param since The earliest revocation to return
+     * @return The time of the last revocation of each user, by username
+     * @throws DaoException If the database is unreachable
+     */
+    public Map<String, Instant> getTokenRevocations(Instant since) {
+        Map<String, Instant> revocations = new HashMap<>();
+        try {
+            jdbcTemplate.query("SELECT username, revoked_at FROM token_revocation WHERE revoked_at >= ?",
+                    (RowCallbackHandler) row -> revocations.put(row.getString("username"),
+                            row.getTimestamp("revoked_at").toInstant()),
+                    Timestamp.from(since));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+        return revocations;
     }
 
     /**
@@ -174,6 +447,16 @@ public class UserDao {
         return passwordEncoder.matches(password, user.getPassword());
     }
 
+    /**
+     * Announce a written user to listeners of the current store
+     *
+     * @param username username
+     * @param user user as written, null if deleted
+     */
+    private void publishChange(String username, User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(StoreContext.current(), username, user));
+    }
+
     /**
      * Map row to user
      *
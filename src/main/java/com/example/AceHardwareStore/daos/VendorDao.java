@@ -1,30 +1,66 @@
 package com.example.AceHardwareStore.daos;
 
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.deadline.DeadlineAwareJdbcTemplate;
+import com.example.AceHardwareStore.events.VendorChangedEvent;
 import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.exceptions.VersionConflictException;
 import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 @Component
 public class VendorDao {
+    /**
+     * Name of the table, used as the near-cache region
+     */
+    public static final String TABLE = "vendor";
+
     /**
      * JDBC template instance
      */
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Cache of vendor lookups shared with the other instances
+     */
+    private NearCache nearCache;
+
+    /**
+     * Publishes a VendorChangedEvent after every write
+     */
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Transaction a write and the read of the table version it produced run in
+     */
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Creates ne VendorDao
      *
      * @param dataSource The datasource to connect to
+     * @param transactionManager The transaction manager for the datasource
+     * @param nearCache The cache of vendor lookups
+     * @param eventPublisher The publisher of vendor changes
      */
-    public VendorDao(DataSource dataSource) {
-        jdbcTemplate = new JdbcTemplate(dataSource);
+    public VendorDao(DataSource dataSource, PlatformTransactionManager transactionManager, NearCache nearCache,
+                     ApplicationEventPublisher eventPublisher) {
+        jdbcTemplate = new DeadlineAwareJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nearCache = nearCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -34,6 +70,30 @@ public class VendorDao {
      * @throws DaoException If an error occurs
      */
     public List<Vendor> getAllVendors() {
+        return nearCache.get(TABLE, "all", this::queryAllVendors, VendorDao::copyAll);
+    }
+
+    /**
+     * Copies a list of vendors and every vendor in it
+     *
+     * @param vendors The vendors
+     * @return The copy
+     */
+    private static List<Vendor> copyAll(List<Vendor> vendors) {
+        List<Vendor> copy = new ArrayList<>(vendors.size());
+        for (Vendor vendor : vendors) {
+            copy.add(vendor.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Reads all vendors from the database
+     *
+     * @return The list of Vendors
+     * @throws DaoException If an error occurs
+     */
+    private List<Vendor> queryAllVendors() {
         List<Vendor> vendors = new ArrayList<>();
         String sql = "SELECT * FROM vendor;";
         try {
@@ -44,7 +104,7 @@ public class VendorDao {
             }
         }
         catch (CannotGetJdbcConnectionException e) {
-            throw new DaoException("Unable to connect to server or database");
+            throw new DaoException("Unable to connect to server or database", e);
         }
         return vendors;
     }
@@ -56,6 +116,17 @@ public class VendorDao {
      * @throws DaoException If an error occurs
      */
     public Vendor getVendorById(int id) {
+        return nearCache.get(TABLE, id, () -> queryVendorById(id), Vendor::copy);
+    }
+
+    /**
+     * Reads a Vendor from the database
+     *
+     * @param id The id of the Vendor
+     * @return The Vendor object or null if it does not exist
+     * @throws DaoException If an error occurs
+     */
+    private Vendor queryVendorById(int id) {
         Vendor vendor = null;
         String sql = "SELECT * FROM vendor WHERE vendor_id = ?;";
         try {
@@ -65,7 +136,7 @@ public class VendorDao {
             }
         }
         catch (CannotGetJdbcConnectionException e) {
-            throw new DaoException("Unable to connect to server or database");
+            throw new DaoException("Unable to connect to server or database", e);
         }
         return vendor;
     }
@@ -78,18 +149,24 @@ public class VendorDao {
      * @throws DaoException If an error occurs
      */
     public Vendor addVendor(Vendor vendor) {
-        Vendor newVendor = null;
-        String sql = "INSERT INTO vendor(vendor_name, contact_name, address, phone_number, department_id) VALUES (?, ?, ?, ?, ?) RETURNING vendor_id;";
+        String sql = "INSERT INTO vendor(vendor_name, contact_name, address, phone_number, department_id) VALUES (?, ?, ?, ?, ?) RETURNING *;";
         try {
-            int newVendorId = jdbcTemplate.queryForObject(sql, int.class, vendor.getVendorName(), vendor.getContact(),
-                    vendor.getAddress(), vendor.getPhoneNumber(), vendor.getDepartmentId());
-            newVendor = getVendorById(newVendorId);
+            Written<Vendor> written = writeVersioned(() -> {
+                SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, vendor.getVendorName(), vendor.getContact(),
+                        vendor.getAddress(), vendor.getPhoneNumber(), vendor.getDepartmentId());
+                return rowSet.next() ? mapRowToVendor(rowSet) : null;
+            });
+            nearCache.invalidate(TABLE);
+            Vendor newVendor = written.result();
+            if (newVendor != null) {
+                publishChange(newVendor.getVendorId(), newVendor, written.tableVersion());
+            }
+            return newVendor;
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database");
         } catch (DataIntegrityViolationException e) {
             throw new DaoException("Data Integrity Violation", e);
         }
-        return newVendor;
     }
 
     /**
@@ -100,31 +177,56 @@ public class VendorDao {
      * @throws DaoException If an error occurs
      */
     public Vendor updateVendor(Vendor updatedVendor) {
-        Vendor updatedVendorResult = null;
+        return updateVendor(updatedVendor, null);
+    }
+
+    /**
+     * Updates an existing Vendor if it is still at the expected version.
+     * The version check is part of the UPDATE, so no locking read is needed.
+     *
+     * @param updatedVendor The Vendor object to be updated
+     * @param expectedVersion The version the client last read, or null to update unconditionally
+     * @return The updated Vendor object
+     * @throws VersionConflictException If the Vendor is at a different version
+     * @throws DaoException If an error occurs
+     */
+    public Vendor updateVendor(Vendor updatedVendor, Long expectedVersion) {
         String sql =
                 "UPDATE vendor SET vendor_name = ?, contact_name = ?, address = ?," +
-                        "phone_number = ?, department_id = ? WHERE vendor_id = ?;";
+                        "phone_number = ?, department_id = ?, version = version + 1 WHERE vendor_id = ?";
+        List<Object> args = new ArrayList<>(List.of(
+                updatedVendor.getVendorName(),
+                updatedVendor.getContact(),
+                updatedVendor.getAddress(),
+                updatedVendor.getPhoneNumber(),
+                updatedVendor.getDepartmentId(),
+                updatedVendor.getVendorId()
+        ));
+        if (expectedVersion != null) {
+            sql += " AND version = ?";
+            args.add(expectedVersion);
+        }
+        String statement = sql + " RETURNING *;";
         try {
-            int numberOfRows = jdbcTemplate.update(
-                    sql,
-                    updatedVendor.getVendorName(),
-                    updatedVendor.getContact(),
-                    updatedVendor.getAddress(),
-                    updatedVendor.getPhoneNumber(),
-                    updatedVendor.getDepartmentId(),
-                    updatedVendor.getVendorId()
-            );
-            if (numberOfRows == 0) {
-                throw new DaoException("Zero rows affected");
-            } else {
-                updatedVendorResult = getVendorById(updatedVendor.getVendorId());
+            Written<Vendor> written = writeVersioned(() -> {
+                SqlRowSet rowSet = jdbcTemplate.queryForRowSet(statement, args.toArray());
+                return rowSet.next() ? mapRowToVendor(rowSet) : null;
+            });
+            nearCache.invalidate(TABLE);
+            Vendor vendor = written.result();
+            if (vendor != null) {
+                publishChange(vendor.getVendorId(), vendor, written.tableVersion());
+                return vendor;
             }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         } catch (DataIntegrityViolationException e) {
             throw new DaoException("Data Integrity Violation", e);
         }
-        return updatedVendor;
+        if (expectedVersion != null && getVendorById(updatedVendor.getVendorId()) != null) {
+            throw new VersionConflictException("Vendor " + updatedVendor.getVendorId() + " has been modified");
+        }
+        throw new DaoException("Zero rows affected");
     }
 
     /**
@@ -138,7 +240,12 @@ public class VendorDao {
         int numberOfRows = 0;
         String sql = "DELETE FROM vendor WHERE vendor_id = ?";
         try {
-            numberOfRows = jdbcTemplate.update(sql, vendorId);
+            Written<Integer> written = writeVersioned(() -> jdbcTemplate.update(sql, vendorId));
+            nearCache.invalidate(TABLE);
+            numberOfRows = written.result();
+            if (numberOfRows > 0) {
+                publishChange(vendorId, null, written.tableVersion());
+            }
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database");
         } catch (DataIntegrityViolationException e) {
@@ -147,6 +254,40 @@ public class VendorDao {
         return numberOfRows;
     }
 
+    /**
+     * Runs a write in a transaction together with a read of the vendor table version it produced.
+     * The cache_version row is locked by the write's trigger until commit, so the version read is the
+     * one the write's cache_invalidation notification will carry.
+     *
+     * @param write The write
+     * @return The result of the write and the table version
+     */
+    private <T> Written<T> writeVersioned(Supplier<T> write) {
+        return transactionTemplate.execute(status -> {
+            T result = write.get();
+            Long tableVersion = jdbcTemplate.queryForObject(
+                    "SELECT version FROM cache_version WHERE table_name = ?;", Long.class, TABLE);
+            return new Written<>(result, tableVersion);
+        });
+    }
+
+    /**
+     * Announces a written vendor to listeners of the current store
+     *
+     * @param vendorId The id of the vendor
+     * @param vendor The vendor as written, or null if it was deleted
+     * @param tableVersion The vendor table version the write produced
+     */
+    private void publishChange(int vendorId, Vendor vendor, long tableVersion) {
+        eventPublisher.publishEvent(new VendorChangedEvent(StoreContext.current(), vendorId, vendor, tableVersion));
+    }
+
+    /**
+     * Result of a write and the vendor table version it produced
+     */
+    private record Written<T>(T result, long tableVersion) {
+    }
+
     /**
      * Maps a row in the result set to vendor
      *
@@ -161,6 +302,7 @@ public class VendorDao {
         vendor.setAddress(rowSet.getString("address"));
         vendor.setPhoneNumber(rowSet.getString("phone_number"));
         vendor.setDepartmentId(rowSet.getInt("department_id"));
+        vendor.setVersion(rowSet.getLong("version"));
         return vendor;
     }
 }
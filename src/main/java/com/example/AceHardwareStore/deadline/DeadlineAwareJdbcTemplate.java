@@ -0,0 +1,56 @@
+package com.example.AceHardwareStore.deadline;
+
+import com.example.AceHardwareStore.exceptions.DeadlineExceededException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JdbcTemplate that gives every statement run for a request the time left until the request's deadline
+ * as its query timeout. When the timeout fires the driver cancels the statement on the server, and the
+ * failure surfaces as a {@link DeadlineExceededException} instead of a generic data access error.
+ * Statements run outside of a request are not limited.
+ */
+public class DeadlineAwareJdbcTemplate extends JdbcTemplate {
+    /**
+     * SQL state of a statement cancelled on the server
+     */
+    private static final String QUERY_CANCELED = "57014";
+
+    /**
+     * Creates a new DeadlineAwareJdbcTemplate
+     *
+     * @param dataSource The data source to connect to
+     */
+    public DeadlineAwareJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        Long remaining = RequestDeadline.remainingMillis();
+        if (remaining == null) {
+            return;
+        }
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded before the statement ran");
+        }
+        // JDBC timeouts are whole seconds, round up so a statement never gets less than the time left
+        int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+        int configured = stmt.getQueryTimeout();
+        stmt.setQueryTimeout(configured > 0 ? Math.min(configured, seconds) : seconds);
+    }
+
+    @Override
+    protected DataAccessException translateException(String task, String sql, SQLException ex) {
+        Long remaining = RequestDeadline.remainingMillis();
+        if (remaining != null && (remaining <= 0 || QUERY_CANCELED.equals(ex.getSQLState()))) {
+            throw new DeadlineExceededException("Request deadline exceeded during " + task, ex);
+        }
+        return super.translateException(task, sql, ex);
+    }
+}
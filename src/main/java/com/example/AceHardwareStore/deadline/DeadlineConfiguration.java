@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.deadline;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the request deadlines
+ */
+@Configuration
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class DeadlineConfiguration {
+    /**
+     * Order of the deadline filter, ahead of the Spring Security filter chain so the deadline covers authentication
+     */
+    private static final int DEADLINE_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER - 5;
+
+    /**
+     * Registers the filter that gives each request its deadline
+     *
+     * @param properties The deadline configuration
+     * @return The filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<DeadlineFilter> deadlineFilter(DeadlineProperties properties) {
+        FilterRegistrationBean<DeadlineFilter> registration = new FilterRegistrationBean<>(new DeadlineFilter(properties));
+        registration.setOrder(DEADLINE_FILTER_ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.AceHardwareStore.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gives each request a deadline, the one configured for its endpoint or the shorter one its client asked for
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+    /**
+     * Deadline configuration
+     */
+    private final DeadlineProperties properties;
+
+    /**
+     * Configured endpoint deadlines with their parsed patterns, in configuration order
+     */
+    private final Map<PathPattern, Duration> endpoints = new LinkedHashMap<>();
+
+    /**
+     * Creates a new DeadlineFilter
+     *
+     * @param properties The deadline configuration
+     */
+    public DeadlineFilter(DeadlineProperties properties) {
+        this.properties = properties;
+        properties.getEndpoints().forEach((pattern, timeout) ->
+                endpoints.put(PathPatternParser.defaultInstance.parse(pattern), timeout));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        long timeout = endpointTimeout(request).toNanos();
+        String header = request.getHeader(properties.getHeader());
+        if (header != null && !header.isBlank()) {
+            long requested;
+            try {
+                requested = Long.parseLong(header.trim());
+            } catch (NumberFormatException e) {
+                requested = -1;
+            }
+            if (requested <= 0) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), properties.getHeader() + " must be a positive number of milliseconds");
+                return;
+            }
+            timeout = Math.min(timeout, Duration.ofMillis(requested).toNanos());
+        }
+        RequestDeadline.set(start + timeout);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private Duration endpointTimeout(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Map.Entry<PathPattern, Duration> endpoint : endpoints.entrySet()) {
+            if (endpoint.getKey().matches(path)) {
+                return endpoint.getValue();
+            }
+        }
+        return properties.getDefaultTimeout();
+    }
+}
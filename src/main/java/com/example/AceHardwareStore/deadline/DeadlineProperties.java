@@ -0,0 +1,37 @@
+package com.example.AceHardwareStore.deadline;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of request deadlines, bound from ace.deadlines.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.deadlines")
+public class DeadlineProperties {
+    /**
+     * Whether requests get a deadline that bounds their statements
+     */
+    private boolean enabled = true;
+
+    /**
+     * Deadline of requests no endpoint entry matches
+     */
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Request header in which a client may ask for a shorter deadline, in milliseconds
+     */
+    private String header = "X-Request-Timeout";
+
+    /**
+     * Deadlines keyed by path pattern, the first matching one applies, e.g. ace.deadlines.endpoints.[/employee/name/**]=2s
+     */
+    private Map<String, Duration> endpoints = new LinkedHashMap<>();
+}
@@ -0,0 +1,56 @@
+package com.example.AceHardwareStore.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the deadline of the request the current thread is serving, as a System.nanoTime() value.
+ * The deadline aware JDBC template reads it to time out statements.
+ */
+public final class RequestDeadline {
+    /**
+     * Deadline bound to the current thread
+     */
+    private static final ThreadLocal<Long> CURRENT_DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Returns the deadline bound to the current thread
+     *
+     * @return The deadline in System.nanoTime() terms, or null if the thread has none
+     */
+    public static Long current() {
+        return CURRENT_DEADLINE.get();
+    }
+
+    /**
+     * Returns the time left until the deadline of the current thread
+     *
+     * @return The remaining milliseconds, negative once the deadline has passed, or null if the thread has none
+     */
+    public static Long remainingMillis() {
+        Long deadline = CURRENT_DEADLINE.get();
+        return deadline == null ? null : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * Binds a deadline to the current thread
+     *
+     * @param deadline The deadline in System.nanoTime() terms, or null for none
+     */
+    public static void set(Long deadline) {
+        if (deadline == null) {
+            CURRENT_DEADLINE.remove();
+        } else {
+            CURRENT_DEADLINE.set(deadline);
+        }
+    }
+
+    /**
+     * Removes the deadline from the current thread
+     */
+    public static void clear() {
+        CURRENT_DEADLINE.remove();
+    }
+}
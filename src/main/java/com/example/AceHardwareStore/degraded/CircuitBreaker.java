@@ -0,0 +1,212 @@
+package com.example.AceHardwareStore.degraded;
+
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker in front of the connection pools of each store. After a run of failed connection
+ * attempts the circuit opens and requests fail at once instead of each waiting out the pool's
+ * connection timeout. While it is open a background probe tries the store with jittered exponential
+ * backoff, and closes the circuit once a connection succeeds again.
+ */
+@Component
+@EnableConfigurationProperties(DegradedModeProperties.class)
+public class CircuitBreaker implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Seconds a probe connection has to answer
+     */
+    private static final int PROBE_TIMEOUT_SECONDS = 2;
+
+    private final DegradedModeProperties properties;
+
+    /**
+     * Routing data source, looked up lazily because it depends on this breaker
+     */
+    private final ObjectProvider<StoreRoutingDataSource> dataSource;
+
+    /**
+     * Circuits keyed by store id
+     */
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Callbacks run with the store id when a circuit closes again
+     */
+    private final List<Consumer<String>> closeListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "circuit-breaker-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a new CircuitBreaker
+     *
+     * @param properties The degraded mode configuration
+     * @param dataSource The routing data source probes connect through
+     */
+    public CircuitBreaker(DegradedModeProperties properties, ObjectProvider<StoreRoutingDataSource> dataSource) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Checks that a connection to a store may be attempted
+     *
+     * @param storeId The store id
+     * @throws SQLTransientConnectionException If the circuit of the store is open
+     */
+    public void acquirePermission(String storeId) throws SQLTransientConnectionException {
+        Circuit circuit = circuits.get(storeId);
+        if (circuit != null && circuit.open.get()) {
+            circuit.rejected.increment();
+            throw new SQLTransientConnectionException("Circuit open for store " + storeId + ", database unreachable");
+        }
+    }
+
+    /**
+     * Records a successful connection to a store
+     *
+     * @param storeId The store id
+     */
+    public void onSuccess(String storeId) {
+        Circuit circuit = circuits.get(storeId);
+        if (circuit != null) {
+            circuit.failures.set(0);
+        }
+    }
+
+    /**
+     * Records a failed connection attempt, opening the circuit when the threshold is reached.
+     * A pool that only ran out of connections is busy, not unreachable, and does not count.
+     *
+     * @param storeId The store id
+     * @param e The failure
+     */
+    public void onFailure(String storeId, SQLException e) {
+        if (e instanceof SQLTransientConnectionException && e.getCause() == null) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(storeId, id -> new Circuit());
+        if (circuit.failures.incrementAndGet() >= properties.getFailureThreshold() && circuit.open.compareAndSet(false, true)) {
+            circuit.opened.increment();
+            circuit.probes.set(0);
+            log.warn("Opening the circuit of store {} after {} failed connection attempts", storeId, circuit.failures.get(), e);
+            scheduleProbe(storeId, circuit);
+        }
+    }
+
+    /**
+     * Returns whether the circuit of a store is open
+     *
+     * @param storeId The store id
+     * @return Whether connection attempts to the store are refused
+     */
+    public boolean isOpen(String storeId) {
+        Circuit circuit = circuits.get(storeId);
+        return circuit != null && circuit.open.get();
+    }
+
+    /**
+     * Registers a callback run with the store id whenever the circuit of a store closes
+     *
+     * @param listener The callback
+     */
+    public void addCloseListener(Consumer<String> listener) {
+        closeListeners.add(listener);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        circuits.forEach((storeId, circuit) -> {
+            metrics.put(storeId + ".open", circuit.open.get());
+            metrics.put(storeId + ".consecutiveFailures", circuit.failures.get());
+            metrics.put(storeId + ".opened", circuit.opened.sum());
+            metrics.put(storeId + ".rejected", circuit.rejected.sum());
+            metrics.put(storeId + ".failedProbes", circuit.failedProbes.sum());
+        });
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedules the next probe of an open circuit, after the backoff of its attempt with equal jitter
+     */
+    private void scheduleProbe(String storeId, Circuit circuit) {
+        int attempt = Math.min(circuit.probes.getAndIncrement(), 30);
+        long backoff = Math.min(properties.getMaximumBackoff().toMillis(), properties.getInitialBackoff().toMillis() << attempt);
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        scheduler.schedule(() -> probe(storeId, circuit), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe(String storeId, Circuit circuit) {
+        try (Connection connection = dataSource.getObject().getDataSource(storeId).getConnection()) {
+            if (!connection.isValid(PROBE_TIMEOUT_SECONDS)) {
+                throw new SQLException("Probe connection is not valid");
+            }
+        } catch (SQLException | RuntimeException e) {
+            circuit.failedProbes.increment();
+            log.debug("Probe of store {} failed", storeId, e);
+            scheduleProbe(storeId, circuit);
+            return;
+        }
+        circuit.failures.set(0);
+        circuit.open.set(false);
+        log.info("Closing the circuit of store {}, the database is reachable again", storeId);
+        for (Consumer<String> listener : closeListeners) {
+            try {
+                listener.accept(storeId);
+            } catch (RuntimeException e) {
+                log.warn("Circuit close listener failed for store {}", storeId, e);
+            }
+        }
+    }
+
+    /**
+     * State of the circuit of one store
+     */
+    private static final class Circuit {
+        private final AtomicBoolean open = new AtomicBoolean();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger probes = new AtomicInteger();
+        private final LongAdder opened = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failedProbes = new LongAdder();
+    }
+}
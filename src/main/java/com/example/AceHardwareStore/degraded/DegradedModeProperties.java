@@ -0,0 +1,45 @@
+package com.example.AceHardwareStore.degraded;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the circuit breaker and the stale reads served while a store database is down, bound from ace.degraded.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.degraded")
+public class DegradedModeProperties {
+    /**
+     * Whether catalog reads fall back to their last known good result when the database cannot be reached
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of last known good results kept across all stores, the least recently read are dropped
+     */
+    private int maximumEntries = 1_000;
+
+    /**
+     * Oldest last known good result that is still served
+     */
+    private Duration maximumStaleness = Duration.ofHours(24);
+
+    /**
+     * Consecutive failed connection attempts to a store that open its circuit
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * Delay before the first probe of an open circuit, doubled after each failed probe
+     */
+    private Duration initialBackoff = Duration.ofMillis(500);
+
+    /**
+     * Longest delay between two probes of an open circuit
+     */
+    private Duration maximumBackoff = Duration.ofSeconds(30);
+}
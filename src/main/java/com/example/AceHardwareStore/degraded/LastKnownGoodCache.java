@@ -0,0 +1,186 @@
+package com.example.AceHardwareStore.degraded;
+
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Last known good results of catalog reads, served when the store database cannot be reached.
+ * Every successful read replaces the copy of its key; a read that fails to connect gets the copy
+ * instead, together with its age. When the circuit of a store closes again, the copies of the store
+ * are revalidated in the background, so they are fresh before the next outage.
+ */
+@Component
+public class LastKnownGoodCache implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(LastKnownGoodCache.class);
+
+    private final DegradedModeProperties properties;
+    private final StoreProperties storeProperties;
+
+    /**
+     * Copies keyed by store id and read key, in access order so the least recently read are dropped first
+     */
+    private final Map<String, Entry> entries;
+
+    private final ExecutorService revalidator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "last-known-good-revalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder fresh = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+
+    /**
+     * Creates a new LastKnownGoodCache
+     *
+     * @param properties The degraded mode configuration
+     * @param storeProperties The store configuration
+     * @param circuitBreaker The circuit breaker whose closing triggers revalidation
+     */
+    public LastKnownGoodCache(DegradedModeProperties properties, StoreProperties storeProperties, CircuitBreaker circuitBreaker) {
+        this.properties = properties;
+        this.storeProperties = storeProperties;
+        int maximumEntries = properties.getMaximumEntries();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maximumEntries;
+            }
+        };
+        circuitBreaker.addCloseListener(storeId -> revalidator.execute(() -> revalidate(storeId)));
+    }
+
+    /**
+     * Reads a value, falling back to its last known good copy when the database cannot be reached
+     *
+     * @param key The key of the read, unique among the reads of a store
+     * @param loader Reads the value from the database
+     * @return The value and whether it is stale
+     * @throws RuntimeException The failure of the loader if there is no copy to fall back to
+     */
+    public <T> Reading<T> read(String key, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return new Reading<>(loader.get(), -1);
+        }
+        String storeId = StoreContext.current() == null ? storeProperties.getDefaultStore() : StoreContext.current();
+        String entryKey = storeId + ':' + key;
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            if (!isUnreachable(e)) {
+                throw e;
+            }
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(entryKey);
+            }
+            long ageMillis = entry == null ? Long.MAX_VALUE : System.currentTimeMillis() - entry.loadedAt;
+            if (ageMillis > properties.getMaximumStaleness().toMillis()) {
+                unavailable.increment();
+                throw e;
+            }
+            stale.increment();
+            @SuppressWarnings("unchecked")
+            T copy = (T) entry.value;
+            return new Reading<>(copy, TimeUnit.MILLISECONDS.toSeconds(ageMillis));
+        }
+        fresh.increment();
+        if (value != null) {
+            synchronized (entries) {
+                entries.put(entryKey, new Entry(storeId, value, System.currentTimeMillis(), loader));
+            }
+        }
+        return new Reading<>(value, -1);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "lastKnownGood";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("entries", entries.size());
+        }
+        metrics.put("fresh", fresh.sum());
+        metrics.put("stale", stale.sum());
+        metrics.put("unavailable", unavailable.sum());
+        metrics.put("revalidated", revalidated.sum());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        revalidator.shutdownNow();
+    }
+
+    /**
+     * Reloads every copy of a store, stopping at the first failure since the store is then down again
+     *
+     * @param storeId The store id
+     */
+    private void revalidate(String storeId) {
+        List<Map.Entry<String, Entry>> copies = new ArrayList<>();
+        synchronized (entries) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().storeId.equals(storeId)) {
+                    copies.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        for (Map.Entry<String, Entry> copy : copies) {
+            Supplier<?> loader = copy.getValue().loader;
+            try {
+                Object value = StoreContext.callInStore(storeId, loader);
+                if (value != null) {
+                    synchronized (entries) {
+                        entries.put(copy.getKey(), new Entry(storeId, value, System.currentTimeMillis(), loader));
+                    }
+                    revalidated.increment();
+                }
+            } catch (RuntimeException e) {
+                log.debug("Revalidation of {} failed", copy.getKey(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a failure means the database could not be reached, as opposed to a bad query or request
+     */
+    private static boolean isUnreachable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CannotGetJdbcConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Last known good copy of one read
+     */
+    private record Entry(String storeId, Object value, long loadedAt, Supplier<?> loader) {
+    }
+}
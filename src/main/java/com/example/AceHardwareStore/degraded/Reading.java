@@ -0,0 +1,18 @@
+package com.example.AceHardwareStore.degraded;
+
+/**
+ * Result of a read that may have been served from the last known good copy
+ *
+ * @param value The value read
+ * @param staleSeconds How old the value is when it was served from the copy, -1 when it was read from the database
+ */
+public record Reading<T>(T value, long staleSeconds) {
+    /**
+     * Returns whether the value was served from the last known good copy
+     *
+     * @return Whether the value is stale
+     */
+    public boolean isStale() {
+        return staleSeconds >= 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.AceHardwareStore.events;
+
+import com.example.AceHardwareStore.models.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by EmployeeDao after an employee is created, updated or deleted
+ */
+@Getter
+@AllArgsConstructor
+public class EmployeeChangedEvent {
+    /**
+     * Store the employee belongs to, null for the default store
+     */
+    private final String storeId;
+    /**
+     * Id of the changed employee
+     */
+    private final int employeeId;
+    /**
+     * The employee as written, null if it was deleted
+     */
+    private final Employee employee;
+}
@@ -0,0 +1,25 @@
+package com.example.AceHardwareStore.events;
+
+import com.example.AceHardwareStore.models.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by UserDao after a user is created, updated or deleted
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    /**
+     * Store the user belongs to, null for the default store
+     */
+    private final String storeId;
+    /**
+     * Username of the changed user
+     */
+    private final String username;
+    /**
+     * The user as written, null if it was deleted
+     */
+    private final User user;
+}
@@ -0,0 +1,20 @@
+package com.example.AceHardwareStore.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by UserDao after a role is granted to or taken from a user
+ */
+@Getter
+@AllArgsConstructor
+public class UserRolesChangedEvent {
+    /**
+     * Store the user belongs to, null for the default store
+     */
+    private final String storeId;
+    /**
+     * Username of the changed user
+     */
+    private final String username;
+}
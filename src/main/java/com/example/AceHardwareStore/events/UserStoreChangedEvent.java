@@ -0,0 +1,20 @@
+package com.example.AceHardwareStore.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by UserDao after a user is bound to another store
+ */
+@Getter
+@AllArgsConstructor
+public class UserStoreChangedEvent {
+    /**
+     * Store the user belongs to, null for the default store
+     */
+    private final String storeId;
+    /**
+     * Username of the changed user
+     */
+    private final String username;
+}
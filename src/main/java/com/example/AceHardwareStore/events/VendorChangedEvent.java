@@ -0,0 +1,29 @@
+package com.example.AceHardwareStore.events;
+
+import com.example.AceHardwareStore.models.Vendor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by VendorDao after a vendor is created, updated or deleted
+ */
+@Getter
+@AllArgsConstructor
+public class VendorChangedEvent {
+    /**
+     * Store the vendor belongs to, null for the default store
+     */
+    private final String storeId;
+    /**
+     * Id of the changed vendor
+     */
+    private final int vendorId;
+    /**
+     * The vendor as written, null if it was deleted
+     */
+    private final Vendor vendor;
+    /**
+     * Version of the vendor table the write produced, the version its cache_invalidation notification carries
+     */
+    private final long tableVersion;
+}
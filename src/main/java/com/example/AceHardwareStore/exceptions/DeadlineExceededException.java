@@ -0,0 +1,17 @@
+package com.example.AceHardwareStore.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request runs out of its deadline, the statement it was waiting on has been cancelled
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+    public DeadlineExceededException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.AceHardwareStore.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a write is refused because of what the client sent, such as a value a constraint rejects
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidDataException extends DaoException {
+    public InvalidDataException(String message) {
+        super(message);
+    }
+    public InvalidDataException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
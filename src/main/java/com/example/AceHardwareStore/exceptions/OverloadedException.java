@@ -0,0 +1,17 @@
+package com.example.AceHardwareStore.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a bounded resource is saturated and the request is rejected instead of queued
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OverloadedException extends RuntimeException {
+    public OverloadedException(String message) {
+        super(message);
+    }
+    public OverloadedException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
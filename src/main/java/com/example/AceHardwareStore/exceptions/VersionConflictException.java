@@ -0,0 +1,14 @@
+package com.example.AceHardwareStore.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a conditional update finds the row at a different version than the client read
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class VersionConflictException extends DaoException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
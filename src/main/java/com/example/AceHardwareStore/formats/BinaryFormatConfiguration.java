@@ -0,0 +1,42 @@
+package com.example.AceHardwareStore.formats;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets clients exchange request and response bodies as Smile (application/x-jackson-smile) or CBOR
+ * (application/cbor) instead of JSON, chosen by their Accept and Content-Type headers. The binary
+ * mappers are built from the same Spring Boot Jackson settings as the JSON one, so every format
+ * carries the same fields, dates and numbers. JSON stays first, clients that accept anything still get it.
+ * Responses written through the converters are covered. Streamed responses pick their format themselves:
+ * department aggregates come in all three, the employee exports and payroll runs stay CSV or NDJSON.
+ */
+@Configuration
+public class BinaryFormatConfiguration {
+    /**
+     * Creates the Smile converter
+     *
+     * @param builder The Jackson settings of the application
+     * @return The converter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Creates the CBOR converter
+     *
+     * @param builder The Jackson settings of the application
+     * @return The converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
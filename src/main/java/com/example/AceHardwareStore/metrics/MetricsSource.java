@@ -0,0 +1,22 @@
+package com.example.AceHardwareStore.metrics;
+
+import java.util.Map;
+
+/**
+ * Component that publishes counters and gauges on GET /metrics
+ */
+public interface MetricsSource {
+    /**
+     * Returns the name the metrics are grouped under
+     *
+     * @return The group name
+     */
+    String getMetricsName();
+
+    /**
+     * Returns the current metric values
+     *
+     * @return The metric values keyed by metric name
+     */
+    Map<String, Object> getMetrics();
+}
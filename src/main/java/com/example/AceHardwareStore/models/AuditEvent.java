@@ -0,0 +1,39 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEvent {
+    /**
+     * Audit event id, assigned when the event is stored
+     */
+    private long auditId;
+    /**
+     * Time the mutation was made
+     */
+    private Instant occurredAt;
+    /**
+     * Username of the admin who made the mutation
+     */
+    private String actor;
+    /**
+     * Kind of mutation
+     */
+    private String action;
+    /**
+     * Record the mutation applies to, for example employee/259 or users/admin
+     */
+    private String target;
+    /**
+     * Mutation details, for example the new hourly rate
+     */
+    private String detail;
+}
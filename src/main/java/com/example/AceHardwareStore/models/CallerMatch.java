@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CallerMatch {
+    /**
+     * What kind of record the number belongs to, employee, vendor or user
+     */
+    private String type;
+
+    /**
+     * Id of the record, the username for users
+     */
+    private String id;
+
+    /**
+     * Name to show for the caller
+     */
+    private String name;
+
+    /**
+     * Phone number as stored on the record
+     */
+    private String phoneNumber;
+}
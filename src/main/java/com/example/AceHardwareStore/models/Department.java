@@ -24,6 +24,14 @@ public class Department {
     @Size(min = 2, max = 50, message =  "department name must be between 2 and 50 characters")
     private String departmentName;
 
+    /**
+     * Returns a copy of this department
+     * @return Department
+     */
+    public Department copy() {
+        return new Department(id, departmentName);
+    }
+
     /**
      * Department to String method
      * @return Department information
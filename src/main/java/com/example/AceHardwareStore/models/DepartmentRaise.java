@@ -0,0 +1,27 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepartmentRaise {
+    /**
+     * Department id
+     */
+    @Min(value = 1, message = "Department ID must be greater than 0")
+    private int departmentId;
+    /**
+     * Raise in percent, for example 3 for 3%
+     */
+    @NotNull(message = "Percent is mandatory")
+    private BigDecimal percent;
+}
@@ -46,6 +46,10 @@ public class Employee {
      */
     @Min(value = 1, message = "Department ID must be greater than 0")
     private int departmentId;
+    /**
+     * Row version, incremented by every update
+     */
+    private long version;
 
     /**
      *
@@ -79,8 +83,9 @@ public class Employee {
                 this.hireDate,
                 this.leaveDate,
                 this.phoneNumber,
-                this.hourlyRate = null,
-                this.departmentId
+                null,
+                this.departmentId,
+                this.version
         );
     }
 
@@ -0,0 +1,29 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeRate {
+    /**
+     * Employee id
+     */
+    @Min(value = 1, message = "Employee ID must be greater than 0")
+    private int employeeId;
+    /**
+     * New hourly rate
+     */
+    @NotNull(message = "Hourly rate is mandatory")
+    @DecimalMin(value = "13.00", inclusive = true, message = "Hourly rate must be greater than or equal to $13.00 minimum cook county rate")
+    private BigDecimal hourlyRate;
+}
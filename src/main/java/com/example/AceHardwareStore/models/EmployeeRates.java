@@ -0,0 +1,24 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeRates {
+    /**
+     * New hourly rates by employee
+     */
+    @NotEmpty(message = "At least one rate is required")
+    @Size(max = 10000, message = "At most 10000 rates can be set at once")
+    private List<@Valid EmployeeRate> rates;
+}
@@ -0,0 +1,28 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyRateAsOf {
+    /**
+     * Employee id
+     */
+    private int employeeId;
+    /**
+     * Hourly rate in effect at the requested time
+     */
+    private BigDecimal hourlyRate;
+    /**
+     * Time the rate took effect, the hire date for an employee's first rate
+     */
+    private Instant validFrom;
+}
@@ -0,0 +1,45 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewUser {
+    /**
+     * Username
+     */
+    @NotBlank(message = "Username is mandatory")
+    @Size(min = 5, max = 255, message = "Username must be between 5 and 255 characters")
+    private String username;
+
+    /**
+     * User password
+     */
+    @NotBlank(message = "Password is mandatory")
+    @Size(min = 5, message = "Password must be at least 5 characters")
+    private String password;
+
+    /**
+     * User phone number
+     */
+    @NotBlank(message = "phone number is mandatory")
+    @Size(min = 10, max = 13, message = "phone number must be between 10 and 13 characters")
+    private String phoneNumber;
+
+    /**
+     * Roles granted to the user
+     */
+    @NotNull(message = "Roles must not be null")
+    private List<@NotBlank(message = "Role must not be blank") String> roles = new ArrayList<>();
+}
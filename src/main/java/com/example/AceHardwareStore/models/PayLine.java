@@ -0,0 +1,51 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayLine {
+    /**
+     * Employee id
+     */
+    private int employeeId;
+    /**
+     * Employee name
+     */
+    private String name;
+    /**
+     * Department id
+     */
+    private int departmentId;
+    /**
+     * Hourly rate the pay was computed with
+     */
+    private BigDecimal hourlyRate;
+    /**
+     * Hours paid at the regular rate
+     */
+    private BigDecimal regularHours;
+    /**
+     * Hours paid at the overtime rate
+     */
+    private BigDecimal overtimeHours;
+    /**
+     * Pay for the regular hours, in dollars and cents
+     */
+    private BigDecimal regularPay;
+    /**
+     * Pay for the overtime hours, in dollars and cents
+     */
+    private BigDecimal overtimePay;
+    /**
+     * Regular plus overtime pay
+     */
+    private BigDecimal grossPay;
+}
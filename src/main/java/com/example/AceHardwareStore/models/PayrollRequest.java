@@ -0,0 +1,33 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRequest {
+    /**
+     * First day of the pay period, the first day of a workweek
+     */
+    @NotNull(message = "Start of the pay period is mandatory")
+    private LocalDate from;
+    /**
+     * Last day of the pay period, the last day of a workweek
+     */
+    @NotNull(message = "End of the pay period is mandatory")
+    private LocalDate to;
+    /**
+     * Hours worked in the period, one entry per employee and day
+     */
+    @NotNull(message = "Hours are mandatory")
+    private List<@Valid WorkedHours> hours;
+}
@@ -0,0 +1,48 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisioningResult {
+    /**
+     * Username
+     */
+    private String username;
+
+    /**
+     * Whether the user and its roles were created
+     */
+    private boolean created;
+
+    /**
+     * Why the user was not created, null if it was
+     */
+    private String error;
+
+    /**
+     * Returns a successful result
+     *
+     * @param username The created username
+     * @return The result
+     */
+    public static ProvisioningResult created(String username) {
+        return new ProvisioningResult(username, true, null);
+    }
+
+    /**
+     * Returns a failed result
+     *
+     * @param username The username that was not created
+     * @param error Why the user was not created
+     * @return The result
+     */
+    public static ProvisioningResult failed(String username, String error) {
+        return new ProvisioningResult(username, false, error);
+    }
+}
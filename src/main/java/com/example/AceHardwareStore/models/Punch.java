@@ -0,0 +1,46 @@
+package com.example.AceHardwareStore.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Punch {
+    /**
+     * Punch id, assigned when missing. A register resending a punch with the same id has it stored once.
+     */
+    private UUID punchId;
+    /**
+     * Employee id
+     */
+    private int employeeId;
+    /**
+     * Whether the employee clocked in or out
+     */
+    private Direction direction;
+    /**
+     * Time of the punch at the register, the time it was received if missing
+     */
+    private Instant punchedAt;
+    /**
+     * Time the punch was received
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant receivedAt;
+
+    /**
+     * Kinds of punches
+     */
+    public enum Direction {
+        IN,
+        OUT
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PunchResult {
+    /**
+     * Id of the punch, null if it was rejected
+     */
+    private UUID punchId;
+
+    /**
+     * Employee id
+     */
+    private int employeeId;
+
+    /**
+     * Whether the punch was logged and will be written
+     */
+    private boolean accepted;
+
+    /**
+     * Why the punch was rejected, null if it was accepted
+     */
+    private String error;
+
+    /**
+     * Returns a successful result
+     *
+     * @param punch The logged punch
+     * @return The result
+     */
+    public static PunchResult accepted(Punch punch) {
+        return new PunchResult(punch.getPunchId(), punch.getEmployeeId(), true, null);
+    }
+
+    /**
+     * Returns a failed result
+     *
+     * @param employeeId The employee of the rejected punch
+     * @param error Why the punch was rejected
+     * @return The result
+     */
+    public static PunchResult rejected(int employeeId, String error) {
+        return new PunchResult(null, employeeId, false, error);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.AceHardwareStore.models;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -20,8 +21,9 @@ public class User {
     private String username;
 
     /**
-     * User password
+     * User password, accepted in requests but never written to a response
      */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Min(value = 5, message = "Password must be at least 5 characters")
     private String password;
 
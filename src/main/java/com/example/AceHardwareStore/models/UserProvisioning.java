@@ -0,0 +1,23 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProvisioning {
+    /**
+     * Users to create, each validated separately so one bad entry does not fail the others
+     */
+    @NotEmpty(message = "At least one user is required")
+    @Size(max = 1000, message = "At most 1000 users can be provisioned at once")
+    private List<NewUser> users;
+}
@@ -0,0 +1,30 @@
+package com.example.AceHardwareStore.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserWithRoles {
+    /**
+     * Username
+     */
+    private String username;
+
+    /**
+     * User phone number
+     */
+    private String phoneNumber;
+
+    /**
+     * Roles granted to the user, in name order
+     */
+    private List<String> roles = new ArrayList<>();
+}
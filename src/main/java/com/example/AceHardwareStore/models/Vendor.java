@@ -44,6 +44,18 @@ public class Vendor {
      */
     @Min(value = 1, message = "Department ID must be greater than 0")
     private int departmentId;
+    /**
+     * Row version, incremented by every update
+     */
+    private long version;
+
+    /**
+     * Returns a copy of this vendor
+     * @return Vendor
+     */
+    public Vendor copy() {
+        return new Vendor(vendorId, vendorName, contact, address, phoneNumber, departmentId, version);
+    }
 
     /**
      * Vendor to String method
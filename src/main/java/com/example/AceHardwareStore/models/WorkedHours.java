@@ -0,0 +1,31 @@
+package com.example.AceHardwareStore.models;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkedHours {
+    /**
+     * Employee id
+     */
+    private int employeeId;
+    /**
+     * Day the hours were worked
+     */
+    @NotNull(message = "Work date is mandatory")
+    private LocalDate workDate;
+    /**
+     * Hours worked that day
+     */
+    @NotNull(message = "Hours are mandatory")
+    private BigDecimal hours;
+}
@@ -0,0 +1,211 @@
+package com.example.AceHardwareStore.payroll;
+
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.PayLine;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Computes gross pay for a pay period on a fork-join pool. Employees are partitioned by department,
+ * and a department larger than a leaf is split in halves until each piece is small enough, so one
+ * large department keeps every thread busy as well as many small ones do. Pay lines are handed to
+ * the caller department by department, in department order, while later departments are computed;
+ * only a few departments are in flight at once, which bounds the lines held in memory.
+ *
+ * <p>Hours beyond the weekly threshold are overtime at the configured multiple of the hourly rate.
+ * Pay is computed exactly with BigDecimal and only rounded to cents, half up, per line item.
+ */
+@Component
+@EnableConfigurationProperties(PayrollProperties.class)
+public class PayrollEngine implements MetricsSource, DisposableBean {
+    /**
+     * Most employees computed by one task without splitting
+     */
+    private static final int LEAF_SIZE = 512;
+
+    /**
+     * Departments in flight per thread
+     */
+    private static final int DEPARTMENTS_PER_THREAD = 2;
+
+    private final PayrollProperties properties;
+    private final ForkJoinPool pool;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder linesComputed = new LongAdder();
+    private volatile long lastRunMillis;
+
+    /**
+     * Creates a new PayrollEngine and its pool
+     *
+     * @param properties The payroll configuration
+     */
+    public PayrollEngine(PayrollProperties properties) {
+        this.properties = properties;
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("payroll-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Creates an empty time sheet for a pay period with the configured workweek
+     *
+     * @param from The first day of the pay period
+     * @param to The last day of the pay period
+     * @return The sheet
+     * @throws IllegalArgumentException If the period is invalid
+     */
+    public TimeSheet newTimeSheet(LocalDate from, LocalDate to) {
+        return new TimeSheet(from, to, properties.getWeekStart());
+    }
+
+    /**
+     * Computes the pay of every employee with hours on a sheet
+     *
+     * @param employees The employees, those without hours are skipped
+     * @param sheet The hours worked
+     * @param consumer Receives the pay lines on the calling thread, by department id and then in the given order
+     */
+    public void run(List<Employee> employees, TimeSheet sheet, Consumer<PayLine> consumer) {
+        long start = System.nanoTime();
+        Map<Integer, List<Employee>> byDepartment = new TreeMap<>();
+        for (Employee employee : employees) {
+            if (sheet.getWeeklyHours(employee.getEmployeeId()) != null) {
+                byDepartment.computeIfAbsent(employee.getDepartmentId(), id -> new ArrayList<>()).add(employee);
+            }
+        }
+        Iterator<List<Employee>> departments = byDepartment.values().iterator();
+        Deque<DepartmentTask> inFlight = new ArrayDeque<>();
+        int window = pool.getParallelism() * DEPARTMENTS_PER_THREAD;
+        try {
+            while (departments.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < window && departments.hasNext()) {
+                    List<Employee> department = departments.next();
+                    DepartmentTask task = new DepartmentTask(department, sheet, new PayLine[department.size()],
+                            0, department.size());
+                    pool.execute(task);
+                    inFlight.add(task);
+                }
+                DepartmentTask task = inFlight.poll();
+                task.join();
+                for (PayLine line : task.lines) {
+                    consumer.accept(line);
+                }
+                linesComputed.add(task.lines.length);
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(false));
+        }
+        runs.increment();
+        lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Computes the pay of one employee from their weekly hours
+     *
+     * @param employee The employee
+     * @param weeklyHours The hours of each workweek, null for weeks without hours
+     * @return The pay line
+     */
+    PayLine pay(Employee employee, BigDecimal[] weeklyHours) {
+        BigDecimal threshold = properties.getOvertimeThresholdHours();
+        BigDecimal regularHours = BigDecimal.ZERO;
+        BigDecimal overtimeHours = BigDecimal.ZERO;
+        for (BigDecimal hours : weeklyHours) {
+            if (hours == null) {
+                continue;
+            }
+            if (hours.compareTo(threshold) > 0) {
+                regularHours = regularHours.add(threshold);
+                overtimeHours = overtimeHours.add(hours.subtract(threshold));
+            } else {
+                regularHours = regularHours.add(hours);
+            }
+        }
+        BigDecimal rate = employee.getHourlyRate() == null ? BigDecimal.ZERO : employee.getHourlyRate();
+        BigDecimal regularPay = rate.multiply(regularHours).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal overtimePay = rate.multiply(properties.getOvertimeMultiplier()).multiply(overtimeHours)
+                .setScale(2, RoundingMode.HALF_UP);
+        return new PayLine(employee.getEmployeeId(), employee.getName(), employee.getDepartmentId(), rate,
+                regularHours, overtimeHours, regularPay, overtimePay, regularPay.add(overtimePay));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "payroll";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("parallelism", pool.getParallelism());
+        metrics.put("runs", runs.sum());
+        metrics.put("linesComputed", linesComputed.sum());
+        metrics.put("lastRunMillis", lastRunMillis);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Computes a range of a department's employees into the matching range of its lines,
+     * splitting the range in halves while it is larger than a leaf
+     */
+    private final class DepartmentTask extends RecursiveAction {
+        private final List<Employee> employees;
+        private final TimeSheet sheet;
+        private final PayLine[] lines;
+        private final int from;
+        private final int to;
+
+        DepartmentTask(List<Employee> employees, TimeSheet sheet, PayLine[] lines, int from, int to) {
+            this.employees = employees;
+            this.sheet = sheet;
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    Employee employee = employees.get(i);
+                    lines[i] = pay(employee, sheet.getWeeklyHours(employee.getEmployeeId()));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ForkJoinTask.invokeAll(new DepartmentTask(employees, sheet, lines, from, middle),
+                    new DepartmentTask(employees, sheet, lines, middle, to));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.AceHardwareStore.payroll;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+
+/**
+ * Configuration of payroll runs, bound from ace.payroll.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.payroll")
+public class PayrollProperties {
+    /**
+     * Threads computing a run, 0 for one per available processor
+     */
+    private int parallelism = 0;
+
+    /**
+     * First day of the workweek overtime is counted over
+     */
+    private DayOfWeek weekStart = DayOfWeek.SUNDAY;
+
+    /**
+     * Hours of a workweek paid at the regular rate, hours beyond are overtime
+     */
+    private BigDecimal overtimeThresholdHours = new BigDecimal("40");
+
+    /**
+     * Factor applied to the hourly rate for overtime hours
+     */
+    private BigDecimal overtimeMultiplier = new BigDecimal("1.5");
+
+    /**
+     * Largest CSV sheet accepted by a run, larger uploads are refused with 413
+     */
+    private DataSize maxUploadSize = DataSize.ofMegabytes(512);
+}
@@ -0,0 +1,139 @@
+package com.example.AceHardwareStore.payroll;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hours worked in a pay period, summed per employee and workweek as they are added, since overtime
+ * is counted per workweek. A pay period is made of whole workweeks: a workweek split between two runs
+ * would have its hours summed in neither, and its overtime paid as regular hours.
+ * A sheet is filled by one thread and then only read.
+ */
+public class TimeSheet {
+    /**
+     * Longest pay period accepted
+     */
+    private static final long MAXIMUM_DAYS = 366;
+
+    private static final BigDecimal HOURS_PER_DAY = BigDecimal.valueOf(24);
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long firstWeekDay;
+    private final int weeks;
+
+    /**
+     * Hours of each employee, indexed by workweek of the period
+     */
+    private final Map<Integer, BigDecimal[]> hoursByEmployee = new HashMap<>();
+
+    /**
+     * Creates an empty sheet
+     *
+     * @param from The first day of the pay period
+     * @param to The last day of the pay period
+     * @param weekStart The first day of a workweek
+     * @throws IllegalArgumentException If the period is empty, longer than a year or not made of whole workweeks
+     */
+    public TimeSheet(LocalDate from, LocalDate to, DayOfWeek weekStart) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The pay period ends before it starts");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAXIMUM_DAYS) {
+            throw new IllegalArgumentException("The pay period is longer than " + MAXIMUM_DAYS + " days");
+        }
+        if (from.getDayOfWeek() != weekStart || to.plusDays(1).getDayOfWeek() != weekStart) {
+            throw new IllegalArgumentException("The pay period must start on a " + weekStart
+                    + " and end on the day before one, so no workweek is split between runs");
+        }
+        this.from = from;
+        this.to = to;
+        this.firstWeekDay = from.toEpochDay();
+        this.weeks = (int) ((to.toEpochDay() - firstWeekDay) / 7) + 1;
+    }
+
+    /**
+     * Reads a sheet from CSV lines of employee_id,work_date,hours with ISO dates. A header line and
+     * blank lines are skipped.
+     *
+     * @param reader The CSV text
+     * @param from The first day of the pay period
+     * @param to The last day of the pay period
+     * @param weekStart The first day of a workweek
+     * @return The sheet
+     * @throws IllegalArgumentException If a line is malformed, naming its line number
+     * @throws IOException If the text cannot be read
+     */
+    public static TimeSheet fromCsv(Reader reader, LocalDate from, LocalDate to, DayOfWeek weekStart)
+            throws IOException {
+        TimeSheet sheet = new TimeSheet(from, to, weekStart);
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            if (line.isBlank() || (number == 1 && line.startsWith("employee_id"))) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Line " + number + ": expected employee_id,work_date,hours");
+            }
+            try {
+                sheet.add(Integer.parseInt(fields[0].trim()), LocalDate.parse(fields[1].trim()),
+                        new BigDecimal(fields[2].trim()));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Line " + number + ": " + e.getMessage());
+            }
+        }
+        return sheet;
+    }
+
+    /**
+     * Adds hours worked by an employee on a day
+     *
+     * @param employeeId The id of the employee
+     * @param workDate The day, within the pay period
+     * @param hours The hours, between 0 and 24
+     * @throws IllegalArgumentException If the day is outside the period or the hours out of range
+     */
+    public void add(int employeeId, LocalDate workDate, BigDecimal hours) {
+        if (workDate.isBefore(from) || workDate.isAfter(to)) {
+            throw new IllegalArgumentException(workDate + " is outside the pay period");
+        }
+        if (hours.signum() < 0 || hours.compareTo(HOURS_PER_DAY) > 0) {
+            throw new IllegalArgumentException("Hours must be between 0 and 24");
+        }
+        BigDecimal[] weeklyHours = hoursByEmployee.computeIfAbsent(employeeId, id -> new BigDecimal[weeks]);
+        int week = (int) ((workDate.toEpochDay() - firstWeekDay) / 7);
+        weeklyHours[week] = weeklyHours[week] == null ? hours : weeklyHours[week].add(hours);
+    }
+
+    /**
+     * Returns the hours of an employee per workweek
+     *
+     * @param employeeId The id of the employee
+     * @return The hours of each week, null for weeks without hours, or null if the employee has no hours
+     */
+    public BigDecimal[] getWeeklyHours(int employeeId) {
+        return hoursByEmployee.get(employeeId);
+    }
+
+    /**
+     * Returns the employees with hours on the sheet
+     *
+     * @return The employee ids
+     */
+    public Set<Integer> getEmployeeIds() {
+        return hoursByEmployee.keySet();
+    }
+}
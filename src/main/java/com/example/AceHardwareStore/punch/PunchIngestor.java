@@ -0,0 +1,449 @@
+package com.example.AceHardwareStore.punch;
+
+import com.example.AceHardwareStore.daos.PunchDao;
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.exceptions.OverloadedException;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.Punch;
+import com.example.AceHardwareStore.models.PunchResult;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import com.example.AceHardwareStore.stores.StoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accepts time-clock punches and writes them to the punch table in batches. A request returns once
+ * its punches are forced to the write-ahead log, and a background thread inserts whatever has been
+ * logged in one transaction per store, so a shift change costs a few commits instead of one per punch.
+ * Punches logged but not yet written when the application stops are replayed from the log on the next start.
+ */
+@Component
+@EnableConfigurationProperties(PunchProperties.class)
+public class PunchIngestor implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(PunchIngestor.class);
+
+    /**
+     * How long shutdown waits for the queue to be written
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Window over which the throughput metrics are computed
+     */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final PunchDao punchDao;
+    private final EmployeeReadModel employeeReadModel;
+    private final PunchProperties properties;
+
+    /**
+     * The write-ahead log, null when ingestion is disabled
+     */
+    private final PunchWal wal;
+
+    /**
+     * Logged punches waiting to be written
+     */
+    private final Queue<PunchWal.Entry> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of punches in the queue, reserved before punches are logged so the capacity is never exceeded
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Requests whose employees were checked against the read model because the database could not be reached
+     */
+    private final LongAdder readModelChecks = new LongAdder();
+
+    private volatile double receivedPerSecond;
+    private volatile double committedPerSecond;
+    private volatile long lastBatchLagMillis;
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new PunchIngestor, replays its log and starts its writer thread
+     *
+     * @param punchDao The punch data access object
+     * @param employeeReadModel The employee reads used to refuse punches while the database cannot be reached
+     * @param properties The ingestion configuration
+     * @throws IOException If the log cannot be opened
+     */
+    public PunchIngestor(PunchDao punchDao, EmployeeReadModel employeeReadModel, PunchProperties properties)
+            throws IOException {
+        this.punchDao = punchDao;
+        this.employeeReadModel = employeeReadModel;
+        this.properties = properties;
+        if (!properties.isEnabled()) {
+            this.wal = null;
+            this.flusher = null;
+            return;
+        }
+        this.wal = PunchWal.open(Path.of(properties.getDirectory()), properties.getSegmentSize().toBytes(), entry -> {
+            queued.incrementAndGet();
+            queue.offer(entry);
+            replayed.increment();
+        });
+        if (replayed.sum() > 0) {
+            log.info("Replaying {} punches from the write-ahead log", replayed.sum());
+        }
+        this.flusher = new Thread(this::flushLoop, "punch-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Logs the punches of the current store that belong to current employees. Punches without an id
+     * or a time get them here. Each punch is checked on its own, a rejected one does not stop the others.
+     *
+     * @param punches The punches
+     * @return One result per punch, in request order
+     * @throws OverloadedException If ingestion is disabled, the queue is full or the log cannot be written
+     */
+    public List<PunchResult> ingest(List<Punch> punches) {
+        if (wal == null) {
+            throw new OverloadedException("Punch ingestion is disabled");
+        }
+        Instant now = Instant.now();
+        PunchResult[] results = new PunchResult[punches.size()];
+        List<Punch> accepted = new ArrayList<>(punches.size());
+        Map<Integer, String> employeeErrors = checkEmployees(punches);
+        for (int i = 0; i < punches.size(); i++) {
+            Punch punch = punches.get(i);
+            String error;
+            if (punch == null) {
+                results[i] = PunchResult.rejected(0, "Punch must not be null");
+                continue;
+            } else if (punch.getDirection() == null) {
+                error = "Direction is mandatory";
+            } else {
+                error = employeeErrors.get(punch.getEmployeeId());
+            }
+            if (!error.isEmpty()) {
+                results[i] = PunchResult.rejected(punch.getEmployeeId(), error);
+                continue;
+            }
+            if (punch.getPunchId() == null) {
+                punch.setPunchId(UUID.randomUUID());
+            }
+            if (punch.getPunchedAt() == null) {
+                punch.setPunchedAt(now);
+            }
+            punch.setReceivedAt(now);
+            accepted.add(punch);
+            results[i] = PunchResult.accepted(punch);
+        }
+        rejected.add(punches.size() - accepted.size());
+        if (!accepted.isEmpty()) {
+            log(accepted);
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "punches";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long syncs = wal == null ? 0 : wal.getSyncCount();
+        metrics.put("enabled", wal != null);
+        metrics.put("received", received.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("replayed", replayed.sum());
+        metrics.put("committed", committed.sum());
+        metrics.put("discarded", discarded.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("readModelChecks", readModelChecks.sum());
+        metrics.put("walSyncs", syncs);
+        metrics.put("punchesPerSync", syncs == 0 ? 0.0 : (double) received.sum() / syncs);
+        metrics.put("walSegments", wal == null ? 0 : wal.getSegmentCount());
+        metrics.put("receivedPerSecond", receivedPerSecond);
+        metrics.put("committedPerSecond", committedPerSecond);
+        metrics.put("queueDepth", queued.get());
+        PunchWal.Entry oldest = queue.peek();
+        metrics.put("lagMillis", oldest == null ? 0
+                : Math.max(0, Duration.between(oldest.punch().getReceivedAt(), Instant.now()).toMillis()));
+        metrics.put("lastBatchLagMillis", lastBatchLagMillis);
+        return metrics;
+    }
+
+    /**
+     * Stops the writer after it has written what is queued, anything left is replayed on the next start
+     */
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        if (wal == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+        wal.close();
+    }
+
+    /**
+     * Tells why the employees of some punches may not punch. Departures are read from the database in
+     * one query, so a departure recorded on another instance is seen at once. While the database cannot
+     * be reached an enabled employee read model that holds the store answers instead, so punches are
+     * still logged, but a departure recorded on another instance since the read model's last rebuild
+     * is then missed. Without the read model the punches are refused until the database is back.
+     *
+     * @param punches The punches
+     * @return The reason by employee id, empty if the employee may punch
+     * @throws OverloadedException If neither the database nor the read model can answer
+     */
+    private Map<Integer, String> checkEmployees(List<Punch> punches) {
+        Set<Integer> employeeIds = new HashSet<>();
+        for (Punch punch : punches) {
+            if (punch != null) {
+                employeeIds.add(punch.getEmployeeId());
+            }
+        }
+        Map<Integer, Boolean> departures;
+        try {
+            departures = punchDao.getDepartures(employeeIds);
+        } catch (DaoException | DataAccessException e) {
+            if (!employeeReadModel.isEnabled()) {
+                throw new OverloadedException("Unable to check employees", e);
+            }
+            departures = readModelDepartures(employeeIds, e);
+        }
+        Map<Integer, String> errors = new HashMap<>();
+        for (int employeeId : employeeIds) {
+            Boolean left = departures.get(employeeId);
+            errors.put(employeeId, left == null ? "Employee not found" : left ? "Employee has left" : "");
+        }
+        return errors;
+    }
+
+    /**
+     * Tells which employees have left from the read model, loading the store if it does not hold it yet
+     *
+     * @param employeeIds The ids of the employees
+     * @param databaseFailure Why the database could not answer
+     * @return Whether each existing employee has a leave date, by id
+     * @throws OverloadedException If the store is not loaded and cannot be
+     */
+    private Map<Integer, Boolean> readModelDepartures(Set<Integer> employeeIds, RuntimeException databaseFailure) {
+        Map<Integer, Boolean> departures = new HashMap<>();
+        try {
+            for (int employeeId : employeeIds) {
+                Employee employee = employeeReadModel.getEmployeeById(employeeId);
+                if (employee != null) {
+                    departures.put(employeeId, employee.getLeaveDate() != null);
+                }
+            }
+        } catch (DaoException | DataAccessException e) {
+            e.addSuppressed(databaseFailure);
+            throw new OverloadedException("Unable to check employees", e);
+        }
+        readModelChecks.increment();
+        return departures;
+    }
+
+    /**
+     * Forces punches to the log and queues them for writing
+     *
+     * @param punches The accepted punches
+     */
+    private void log(List<Punch> punches) {
+        if (!reserveSlots(punches.size())) {
+            throw new OverloadedException("Too many punches are waiting to be written");
+        }
+        List<PunchWal.Entry> entries;
+        try {
+            entries = wal.append(StoreContext.current(), punches);
+        } catch (IOException e) {
+            queued.addAndGet(-punches.size());
+            throw new OverloadedException("Unable to log punches", e);
+        }
+        queue.addAll(entries);
+        received.add(punches.size());
+        if (queued.get() >= properties.getBatchSize()) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private boolean reserveSlots(int count) {
+        while (true) {
+            int current = queued.get();
+            if (current + count > properties.getQueueCapacity()) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes queued punches until shutdown. A failed batch is kept and retried, new punches wait in the queue.
+     */
+    private void flushLoop() {
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        List<PunchWal.Entry> batch = new ArrayList<>(properties.getBatchSize());
+        long windowStart = System.nanoTime();
+        long windowReceived = 0;
+        long windowCommitted = 0;
+        while (true) {
+            PunchWal.Entry next;
+            while (batch.size() < properties.getBatchSize() && (next = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(next);
+            }
+            long now = System.nanoTime();
+            if (now - windowStart >= RATE_WINDOW_NANOS) {
+                long receivedNow = received.sum();
+                long committedNow = committed.sum();
+                receivedPerSecond = (receivedNow - windowReceived) * 1e9 / (now - windowStart);
+                committedPerSecond = (committedNow - windowCommitted) * 1e9 / (now - windowStart);
+                windowStart = now;
+                windowReceived = receivedNow;
+                windowCommitted = committedNow;
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.warn("Writing {} punches failed, retrying", batch.size(), e);
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Writes punches to the punch table of the store each was logged in, one transaction per store.
+     * Punches are removed from the batch as their store's transaction commits, so a retry only
+     * writes what is left.
+     *
+     * @param batch The punches to write
+     */
+    private void write(List<PunchWal.Entry> batch) {
+        Map<String, List<PunchWal.Entry>> byStore = new LinkedHashMap<>();
+        for (PunchWal.Entry entry : batch) {
+            byStore.computeIfAbsent(entry.storeId(), storeId -> new ArrayList<>()).add(entry);
+        }
+        try {
+            Iterator<Map.Entry<String, List<PunchWal.Entry>>> stores = byStore.entrySet().iterator();
+            while (stores.hasNext()) {
+                Map.Entry<String, List<PunchWal.Entry>> store = stores.next();
+                try {
+                    insert(store.getKey(), store.getValue());
+                    done(store.getValue());
+                } catch (DaoException e) {
+                    if (!(e.getCause() instanceof DataIntegrityViolationException)) {
+                        throw e;
+                    }
+                    insertOneByOne(store.getKey(), store.getValue());
+                }
+                stores.remove();
+            }
+            batches.increment();
+        } finally {
+            batch.clear();
+            byStore.values().forEach(batch::addAll);
+        }
+    }
+
+    /**
+     * Writes punches separately after their batch was refused, discarding those the database refuses,
+     * e.g. of an employee deleted since the punch was logged
+     *
+     * @param storeId The store of the punches
+     * @param entries The punches, emptied as they are written or discarded
+     */
+    private void insertOneByOne(String storeId, List<PunchWal.Entry> entries) {
+        Iterator<PunchWal.Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            PunchWal.Entry entry = iterator.next();
+            try {
+                insert(storeId, List.of(entry));
+                done(List.of(entry));
+            } catch (DaoException e) {
+                if (!(e.getCause() instanceof DataIntegrityViolationException)) {
+                    throw e;
+                }
+                log.warn("Discarding punch {} of employee {}: {}", entry.punch().getPunchId(),
+                        entry.punch().getEmployeeId(), e.getCause().getMessage());
+                discarded.increment();
+                wal.release(entry.segment(), 1);
+            }
+            iterator.remove();
+        }
+    }
+
+    private void insert(String storeId, List<PunchWal.Entry> entries) {
+        List<Punch> punches = new ArrayList<>(entries.size());
+        for (PunchWal.Entry entry : entries) {
+            punches.add(entry.punch());
+        }
+        StoreContext.callInStore(storeId, () -> {
+            punchDao.addPunches(punches);
+            return null;
+        });
+    }
+
+    /**
+     * Counts written punches and releases them from the log
+     *
+     * @param entries The punches just committed
+     */
+    private void done(List<PunchWal.Entry> entries) {
+        Instant now = Instant.now();
+        Map<Long, Integer> bySegment = new HashMap<>();
+        for (PunchWal.Entry entry : entries) {
+            bySegment.merge(entry.segment(), 1, Integer::sum);
+        }
+        bySegment.forEach(wal::release);
+        committed.add(entries.size());
+        lastBatchLagMillis = Duration.between(entries.get(0).punch().getReceivedAt(), now).toMillis();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.AceHardwareStore.punch;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration of punch ingestion, bound from ace.punch.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.punch")
+public class PunchProperties {
+    /**
+     * Whether punches are accepted, the log directory is only created when they are
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory of the write-ahead log segments, relative to the working directory unless absolute.
+     * Each instance needs its own, an instance finding it locked by another fails to start.
+     */
+    private String directory = "punch-wal";
+
+    /**
+     * Size after which the log moves on to a new segment. A segment is deleted once all its punches are written.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Maximum number of logged punches waiting to be written, requests are refused with 503 beyond it
+     */
+    private int queueCapacity = 100_000;
+
+    /**
+     * Maximum number of punches written by one transaction
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * Longest time a logged punch waits before its batch is written
+     */
+    private Duration flushInterval = Duration.ofMillis(50);
+}
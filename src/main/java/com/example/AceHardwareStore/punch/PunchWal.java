@@ -0,0 +1,411 @@
+package com.example.AceHardwareStore.punch;
+
+import com.example.AceHardwareStore.models.Punch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of accepted punches, kept in numbered segment files. A record is its length,
+ * a CRC32 of its payload and the payload, so a record torn by a crash is recognised and ends the
+ * replay of its segment. Appends are made durable by group commit: a thread that finds its bytes
+ * not yet forced forces everything written so far, so threads arriving meanwhile share the next
+ * force instead of each paying for one. A segment is deleted once it is full and all its punches
+ * have been released as written to the database. The log holds an exclusive lock on its directory
+ * while open, so a second instance pointed at the same directory fails to start instead of replaying
+ * and deleting the segments of the first.
+ */
+class PunchWal implements Closeable {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{16})\\.wal");
+
+    /**
+     * Length and checksum in front of every payload
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * File in the directory locked by the instance that owns the log
+     */
+    private static final String LOCK_FILE = "punch-wal.lock";
+
+    private final Path directory;
+    private final long segmentSize;
+
+    /**
+     * Lock on the directory, released when the log is closed
+     */
+    private final FileChannel lockChannel;
+
+    /**
+     * Serialises writes and segment changes
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Serialises forces, taken after writeLock when both are needed
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * Open segment, replaced under both locks
+     */
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+
+    /**
+     * Bytes written to all segments since the log was opened
+     */
+    private volatile long written;
+
+    /**
+     * Bytes known to be on disk, guarded by syncLock
+     */
+    private long synced;
+
+    /**
+     * Punches of each segment not yet released
+     */
+    private final Map<Long, AtomicLong> outstanding = new ConcurrentHashMap<>();
+
+    /**
+     * Segments that take no more appends
+     */
+    private final Set<Long> sealed = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder syncs = new LongAdder();
+
+    private PunchWal(Path directory, long segmentSize, FileChannel lockChannel) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Opens the log in a directory, replaying the punches its segments still hold
+     *
+     * @param directory The directory of the segments, created if missing
+     * @param segmentSize The size after which a new segment is started
+     * @param replay Receives every punch found in the existing segments, in log order
+     * @return The log, positioned on a new segment
+     * @throws IOException If the directory is locked by another log, cannot be read or the new segment created
+     */
+    static PunchWal open(Path directory, long segmentSize, Consumer<Entry> replay) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            PunchWal wal = new PunchWal(directory, segmentSize, lockChannel);
+            wal.replay(replay);
+            return wal;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the exclusive lock on a log directory
+     *
+     * @return The channel holding the lock
+     * @throws IOException If another log holds the lock
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Punch log directory " + directory.toAbsolutePath() + " is in use by another instance");
+        }
+        return channel;
+    }
+
+    /**
+     * Replays the segments found on disk and opens the next one
+     */
+    private void replay(Consumer<Entry> replay) throws IOException {
+        Map<Long, Path> segments = new TreeMap<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        long next = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long id = segment.getKey();
+            AtomicLong count = new AtomicLong();
+            outstanding.put(id, count);
+            sealed.add(id);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment.getValue()));
+            Entry entry;
+            while ((entry = readRecord(id, buffer)) != null) {
+                count.incrementAndGet();
+                replay.accept(entry);
+            }
+            deleteIfDone(id);
+            next = id + 1;
+        }
+        synchronized (writeLock) {
+            synchronized (syncLock) {
+                openSegment(next);
+            }
+        }
+    }
+
+    /**
+     * Appends punches and returns once they are on disk
+     *
+     * @param storeId The store the punches belong to, null for the default store
+     * @param punches The punches
+     * @return The logged punches, in order
+     * @throws IOException If the punches could not be written or forced
+     */
+    List<Entry> append(String storeId, List<Punch> punches) throws IOException {
+        ByteBuffer records = encode(storeId, punches);
+        int size = records.remaining();
+        long end;
+        long id;
+        synchronized (writeLock) {
+            if (segmentBytes > 0 && segmentBytes + size > segmentSize) {
+                roll();
+            }
+            id = segment;
+            AtomicLong count = outstanding.get(id);
+            count.addAndGet(punches.size());
+            try {
+                while (records.hasRemaining()) {
+                    segmentBytes += channel.write(records);
+                }
+            } catch (IOException e) {
+                count.addAndGet(-punches.size());
+                // a torn record ends its segment on replay, so nothing may follow it there
+                roll();
+                throw e;
+            }
+            written += size;
+            end = written;
+        }
+        sync(end);
+        List<Entry> entries = new ArrayList<>(punches.size());
+        for (Punch punch : punches) {
+            entries.add(new Entry(id, storeId, punch));
+        }
+        return entries;
+    }
+
+    /**
+     * Marks punches of a segment as written to the database, deleting the segment once it is full and all are
+     *
+     * @param segment The segment the punches were logged in
+     * @param count The number of punches
+     */
+    void release(long segment, int count) {
+        AtomicLong outstandingCount = outstanding.get(segment);
+        if (outstandingCount != null && outstandingCount.addAndGet(-count) == 0) {
+            deleteIfDone(segment);
+        }
+    }
+
+    /**
+     * Returns the number of forces made by appends
+     *
+     * @return The force count
+     */
+    long getSyncCount() {
+        return syncs.sum();
+    }
+
+    /**
+     * Returns the number of segments on disk
+     *
+     * @return The segment count
+     */
+    int getSegmentCount() {
+        return outstanding.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (writeLock) {
+                synchronized (syncLock) {
+                    channel.force(false);
+                    channel.close();
+                }
+            }
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Forces the log up to at least a position, unless another thread's force already covered it
+     *
+     * @param end The position that must be on disk
+     */
+    private void sync(long end) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= end) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            synced = target;
+            syncs.increment();
+        }
+    }
+
+    /**
+     * Seals the open segment and starts the next one, called holding writeLock
+     */
+    private void roll() throws IOException {
+        long previous = segment;
+        synchronized (syncLock) {
+            try {
+                channel.force(false);
+                channel.close();
+            } finally {
+                synced = written;
+                openSegment(previous + 1);
+            }
+        }
+        sealed.add(previous);
+        deleteIfDone(previous);
+    }
+
+    /**
+     * Creates a segment and makes it the open one, called holding both locks
+     */
+    private void openSegment(long id) throws IOException {
+        outstanding.put(id, new AtomicLong());
+        channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segment = id;
+        segmentBytes = 0;
+    }
+
+    private void deleteIfDone(long id) {
+        AtomicLong count = outstanding.get(id);
+        if (count == null || count.get() != 0 || !sealed.contains(id)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segmentPath(id));
+            outstanding.remove(id);
+            sealed.remove(id);
+        } catch (IOException e) {
+            // left for the next start, its punches are replayed and skipped as duplicates
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%016d.wal", id));
+    }
+
+    private static ByteBuffer encode(String storeId, List<Punch> punches) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(punches.size() * 64);
+        DataOutputStream out = new DataOutputStream(records);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        CRC32 crc = new CRC32();
+        for (Punch punch : punches) {
+            payloadBytes.reset();
+            payload.writeBoolean(storeId != null);
+            if (storeId != null) {
+                payload.writeUTF(storeId);
+            }
+            payload.writeLong(punch.getPunchId().getMostSignificantBits());
+            payload.writeLong(punch.getPunchId().getLeastSignificantBits());
+            payload.writeInt(punch.getEmployeeId());
+            payload.writeByte(punch.getDirection().ordinal());
+            payload.writeLong(punch.getPunchedAt().getEpochSecond());
+            payload.writeInt(punch.getPunchedAt().getNano());
+            payload.writeLong(punch.getReceivedAt().getEpochSecond());
+            payload.writeInt(punch.getReceivedAt().getNano());
+            crc.reset();
+            crc.update(payloadBytes.toByteArray());
+            out.writeInt(payloadBytes.size());
+            out.writeInt((int) crc.getValue());
+            payloadBytes.writeTo(out);
+        }
+        return ByteBuffer.wrap(records.toByteArray());
+    }
+
+    /**
+     * Reads the next record of a segment
+     *
+     * @return The punch, or null at the end of the segment or at a torn record
+     */
+    private static Entry readRecord(long segment, ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        try {
+            String storeId = in.readBoolean() ? in.readUTF() : null;
+            Punch punch = new Punch();
+            punch.setPunchId(new UUID(in.readLong(), in.readLong()));
+            punch.setEmployeeId(in.readInt());
+            punch.setDirection(Punch.Direction.values()[in.readByte()]);
+            punch.setPunchedAt(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+            punch.setReceivedAt(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+            return new Entry(segment, storeId, punch);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A logged punch with the store it belongs to and the segment holding it
+     */
+    record Entry(long segment, String storeId, Punch punch) {
+    }
+}
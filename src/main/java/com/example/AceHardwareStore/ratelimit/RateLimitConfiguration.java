@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.ratelimit;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the per-client rate limiting of public endpoints
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfiguration {
+    /**
+     * Order of the rate limit filter, after the Spring Security filter chain so signed-in clients are limited by user
+     */
+    private static final int RATE_LIMIT_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER + 10;
+
+    /**
+     * Registers the filter that rejects clients over their limit
+     *
+     * @param rateLimiter The buckets requests are counted against
+     * @return The filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimiter rateLimiter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(new RateLimitFilter(rateLimiter));
+        registration.setOrder(RATE_LIMIT_FILTER_ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.AceHardwareStore.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects GET requests of a client that exceeds the limit of the route, before they reach the database.
+ * Signed-in clients are told apart by their username, so colleagues sharing an address do not share a limit.
+ * Anonymous clients are told apart by their address; behind a proxy set server.forward-headers-strategy so it
+ * is the real one.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    /**
+     * The buckets requests are counted against
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Creates a new RateLimitFilter
+     *
+     * @param rateLimiter The buckets requests are counted against
+     */
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long wait = rateLimiter.acquire(path, client(request));
+        if (wait > 0) {
+            long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, try again later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Returns the key a request is limited under
+     *
+     * @param request The request
+     * @return The authenticated username, or the client address for anonymous requests
+     */
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.AceHardwareStore.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the per-client rate limits of public endpoints, bound from ace.rate-limit.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.rate-limit")
+public class RateLimitProperties {
+    /**
+     * Whether requests are limited at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Most clients tracked at once, the least recently limited ones are evicted beyond it
+     */
+    private int maximumClients = 65_536;
+
+    /**
+     * Limited routes, the first one matching a GET request applies
+     */
+    private List<Route> routes = new ArrayList<>(List.of(
+            new Route("vendor-typeahead", "/vendor/typeahead", 20, 40),
+            new Route("vendor-by-id", "/vendor/{id}", 20, 40),
+            new Route("vendor-list", "/vendor", 5, 10)
+    ));
+
+    /**
+     * Limit of one route, applied to each signed-in user and each anonymous address separately
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Route {
+        /**
+         * Name the route's counters are published under
+         */
+        private String name;
+        /**
+         * Path pattern of the route
+         */
+        private String pattern;
+        /**
+         * Sustained requests per second allowed to one client
+         */
+        private double requestsPerSecond;
+        /**
+         * Requests one client may send at once after being idle
+         */
+        private int burst;
+    }
+}
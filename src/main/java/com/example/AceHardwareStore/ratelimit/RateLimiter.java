@@ -0,0 +1,204 @@
+package com.example.AceHardwareStore.ratelimit;
+
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets per client and route, implemented as the generic cell rate algorithm: a bucket is a
+ * single theoretical arrival time that requests advance with compare-and-set, so checking a request
+ * takes no lock. Buckets live in a fixed-size table; a new client takes a slot whose bucket is full
+ * again, or evicts the bucket that would refill soonest, so memory stays bounded under any number of clients.
+ */
+@Component
+public class RateLimiter implements MetricsSource {
+    /**
+     * Slots probed for a client before one is evicted
+     */
+    private static final int PROBES = 8;
+
+    private final RateLimitProperties properties;
+    private final List<LimitedRoute> routes = new ArrayList<>();
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new RateLimiter
+     *
+     * @param properties The rate limit configuration
+     */
+    public RateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            routes.add(new LimitedRoute(route));
+        }
+        int capacity = Integer.highestOneBit(Math.max(PROBES, properties.getMaximumClients() - 1)) << 1;
+        this.buckets = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Counts a GET request against its client's bucket for the route it matches
+     *
+     * @param path The request path
+     * @param client The client key, the username or address
+     * @return 0 if the request may proceed or no route matches, otherwise the nanoseconds until it would be allowed
+     */
+    public long acquire(String path, String client) {
+        return acquire(path, client, System.nanoTime());
+    }
+
+    /**
+     * Counts a GET request at a given time
+     *
+     * @param path The request path
+     * @param client The client key
+     * @param now The current System.nanoTime()
+     * @return 0 if the request may proceed or no route matches, otherwise the nanoseconds until it would be allowed
+     */
+    long acquire(String path, String client, long now) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        LimitedRoute route = match(path);
+        if (route == null) {
+            return 0;
+        }
+        AtomicLong arrival = bucket(route.name + ' ' + client, now);
+        while (true) {
+            long theoretical = arrival.get();
+            long next = Math.max(theoretical, now) + route.interval;
+            long wait = next - route.tolerance - now;
+            if (wait > 0) {
+                route.rejected.increment();
+                return wait;
+            }
+            if (arrival.compareAndSet(theoretical, next)) {
+                route.allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "rateLimit";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (LimitedRoute route : routes) {
+            metrics.put(route.name + ".allowed", route.allowed.sum());
+            metrics.put(route.name + ".rejected", route.rejected.sum());
+        }
+        metrics.put("evictions", evictions.sum());
+        return metrics;
+    }
+
+    private LimitedRoute match(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (LimitedRoute route : routes) {
+            if (route.pattern.matches(container)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the arrival time of a client's bucket, creating the bucket if the client has none
+     *
+     * @param key The route and client
+     * @param now The current time
+     * @return The bucket's theoretical arrival time
+     */
+    private AtomicLong bucket(String key, long now) {
+        int home = spread(key.hashCode());
+        for (int attempt = 0; attempt < PROBES; attempt++) {
+            int victim = -1;
+            long victimArrival = Long.MAX_VALUE;
+            for (int probe = 0; probe < PROBES; probe++) {
+                int slot = (home + probe) & mask;
+                Bucket bucket = buckets.get(slot);
+                if (bucket == null) {
+                    victim = slot;
+                    victimArrival = Long.MIN_VALUE;
+                    break;
+                }
+                if (bucket.key.equals(key)) {
+                    return bucket.arrival;
+                }
+                long arrival = bucket.arrival.get();
+                if (arrival < victimArrival) {
+                    victim = slot;
+                    victimArrival = arrival;
+                }
+            }
+            Bucket current = buckets.get(victim);
+            Bucket created = new Bucket(key, now);
+            if (buckets.compareAndSet(victim, current, created)) {
+                // a bucket whose arrival time has passed is full, replacing it loses nothing
+                if (current != null && current.arrival.get() > now) {
+                    evictions.increment();
+                }
+                return created.arrival;
+            }
+        }
+        // the slots kept changing under us, limit this request on its own
+        return new AtomicLong(now);
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+    }
+
+    /**
+     * State of one client on one route
+     */
+    private static final class Bucket {
+        private final String key;
+        private final AtomicLong arrival;
+
+        Bucket(String key, long now) {
+            this.key = key;
+            this.arrival = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * A configured route with its limit in nanoseconds and its counters
+     */
+    private static final class LimitedRoute {
+        private final String name;
+        private final PathPattern pattern;
+        /**
+         * Time one request uses up
+         */
+        private final long interval;
+        /**
+         * How far ahead of now the arrival time may run, which allows the burst
+         */
+        private final long tolerance;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        LimitedRoute(RateLimitProperties.Route route) {
+            this.name = route.getName();
+            this.pattern = PathPatternParser.defaultInstance.parse(route.getPattern());
+            this.interval = (long) (1_000_000_000L / route.getRequestsPerSecond());
+            this.tolerance = interval * Math.max(1, route.getBurst());
+        }
+    }
+}
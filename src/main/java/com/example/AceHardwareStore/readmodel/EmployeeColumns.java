@@ -0,0 +1,302 @@
+package com.example.AceHardwareStore.readmodel;
+
+import com.example.AceHardwareStore.models.Employee;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Employee table of one store held column by column in primitive arrays sorted by employee id.
+ * Dates are epoch days and rates are unscaled longs with their scale, so a row costs a few dozen
+ * bytes plus its two strings instead of an Employee with a BigDecimal and two LocalDates.
+ * Employee objects are only created for the rows a query returns.
+ */
+class EmployeeColumns {
+    /**
+     * Marks a missing date
+     */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Marks a missing rate
+     */
+    private static final byte NO_RATE = Byte.MIN_VALUE;
+
+    /**
+     * Marks a rate whose unscaled value or scale does not fit, kept in overflowRates instead
+     */
+    private static final byte OVERFLOW_RATE = Byte.MIN_VALUE + 1;
+
+    /**
+     * Approximate bytes of a String header, its array header and its hash
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    /**
+     * Orders employees of a department close to the database's ORDER BY name
+     */
+    private static final Comparator<Employee> BY_NAME =
+            Comparator.comparing(Employee::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(Employee::getName);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private int[] ids;
+    private int[] departmentIds;
+    private int[] hireDays;
+    private int[] leaveDays;
+    private long[] rates;
+    private byte[] rateScales;
+    private long[] versions;
+    private String[] names;
+    private String[] phoneNumbers;
+    private final Map<Integer, BigDecimal> overflowRates = new HashMap<>();
+
+    /**
+     * Creates empty columns
+     *
+     * @param capacity The number of rows to allocate for
+     */
+    EmployeeColumns(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    /**
+     * Inserts or replaces the row of an employee, unless the row already holds a newer version
+     *
+     * @param employee The employee as written
+     */
+    void upsert(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, employee.getEmployeeId());
+            if (row < 0) {
+                row = -row - 1;
+                openRow(row);
+            } else if (versions[row] > employee.getVersion()) {
+                return;
+            }
+            setRow(row, employee);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the row of an employee
+     *
+     * @param employeeId The id of the employee
+     */
+    void remove(int employeeId) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, employeeId);
+            if (row < 0) {
+                return;
+            }
+            int tail = size - row - 1;
+            System.arraycopy(ids, row + 1, ids, row, tail);
+            System.arraycopy(departmentIds, row + 1, departmentIds, row, tail);
+            System.arraycopy(hireDays, row + 1, hireDays, row, tail);
+            System.arraycopy(leaveDays, row + 1, leaveDays, row, tail);
+            System.arraycopy(rates, row + 1, rates, row, tail);
+            System.arraycopy(rateScales, row + 1, rateScales, row, tail);
+            System.arraycopy(versions, row + 1, versions, row, tail);
+            System.arraycopy(names, row + 1, names, row, tail);
+            System.arraycopy(phoneNumbers, row + 1, phoneNumbers, row, tail);
+            size--;
+            names[size] = null;
+            phoneNumbers[size] = null;
+            overflowRates.remove(employeeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns an employee by id
+     *
+     * @param employeeId The id of the employee
+     * @return The employee, or null if there is none
+     */
+    Employee get(int employeeId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, employeeId);
+            return row < 0 ? null : toEmployee(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every employee ordered by id
+     *
+     * @return The employees
+     */
+    List<Employee> all() {
+        lock.readLock().lock();
+        try {
+            List<Employee> employees = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                employees.add(toEmployee(row));
+            }
+            return employees;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the employees of a department ordered by name. Only the department column is scanned,
+     * objects are created for the matching rows alone.
+     *
+     * @param departmentId The id of the department
+     * @return The employees
+     */
+    List<Employee> byDepartment(int departmentId) {
+        List<Employee> employees = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                if (departmentIds[row] == departmentId) {
+                    employees.add(toEmployee(row));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        employees.sort(BY_NAME);
+        return employees;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return The number of rows
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap held by the columns, counting allocated capacity and string contents
+     *
+     * @return The estimated size in bytes
+     */
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            int capacity = ids.length;
+            // four int columns, two long columns, one byte column and two reference columns
+            long bytes = capacity * (4L * Integer.BYTES + 2L * Long.BYTES + 1 + 2L * 4);
+            for (int row = 0; row < size; row++) {
+                bytes += stringBytes(names[row]) + stringBytes(phoneNumbers[row]);
+            }
+            return bytes + overflowRates.size() * 64L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setRow(int row, Employee employee) {
+        ids[row] = employee.getEmployeeId();
+        departmentIds[row] = employee.getDepartmentId();
+        hireDays[row] = employee.getHireDate() == null ? NO_DATE : (int) employee.getHireDate().toEpochDay();
+        leaveDays[row] = employee.getLeaveDate() == null ? NO_DATE : (int) employee.getLeaveDate().toEpochDay();
+        versions[row] = employee.getVersion();
+        names[row] = employee.getName();
+        phoneNumbers[row] = employee.getPhoneNumber();
+        overflowRates.remove(employee.getEmployeeId());
+        BigDecimal rate = employee.getHourlyRate();
+        if (rate == null) {
+            rateScales[row] = NO_RATE;
+        } else if (rate.unscaledValue().bitLength() < Long.SIZE && rate.scale() >= 0 && rate.scale() <= Byte.MAX_VALUE) {
+            rates[row] = rate.unscaledValue().longValue();
+            rateScales[row] = (byte) rate.scale();
+        } else {
+            rateScales[row] = OVERFLOW_RATE;
+            overflowRates.put(employee.getEmployeeId(), rate);
+        }
+    }
+
+    private Employee toEmployee(int row) {
+        BigDecimal rate = switch (rateScales[row]) {
+            case NO_RATE -> null;
+            case OVERFLOW_RATE -> overflowRates.get(ids[row]);
+            default -> BigDecimal.valueOf(rates[row], rateScales[row]);
+        };
+        return new Employee(
+                ids[row],
+                names[row],
+                hireDays[row] == NO_DATE ? null : LocalDate.ofEpochDay(hireDays[row]),
+                leaveDays[row] == NO_DATE ? null : LocalDate.ofEpochDay(leaveDays[row]),
+                phoneNumbers[row],
+                rate,
+                departmentIds[row],
+                versions[row]
+        );
+    }
+
+    /**
+     * Makes room for a new row, growing the columns when they are full
+     */
+    private void openRow(int row) {
+        if (size == ids.length) {
+            grow(ids.length * 2);
+        }
+        int tail = size - row;
+        if (tail > 0) {
+            System.arraycopy(ids, row, ids, row + 1, tail);
+            System.arraycopy(departmentIds, row, departmentIds, row + 1, tail);
+            System.arraycopy(hireDays, row, hireDays, row + 1, tail);
+            System.arraycopy(leaveDays, row, leaveDays, row + 1, tail);
+            System.arraycopy(rates, row, rates, row + 1, tail);
+            System.arraycopy(rateScales, row, rateScales, row + 1, tail);
+            System.arraycopy(versions, row, versions, row + 1, tail);
+            System.arraycopy(names, row, names, row + 1, tail);
+            System.arraycopy(phoneNumbers, row, phoneNumbers, row + 1, tail);
+        }
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        departmentIds = new int[capacity];
+        hireDays = new int[capacity];
+        leaveDays = new int[capacity];
+        rates = new long[capacity];
+        rateScales = new byte[capacity];
+        versions = new long[capacity];
+        names = new String[capacity];
+        phoneNumbers = new String[capacity];
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        departmentIds = Arrays.copyOf(departmentIds, capacity);
+        hireDays = Arrays.copyOf(hireDays, capacity);
+        leaveDays = Arrays.copyOf(leaveDays, capacity);
+        rates = Arrays.copyOf(rates, capacity);
+        rateScales = Arrays.copyOf(rateScales, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        names = Arrays.copyOf(names, capacity);
+        phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
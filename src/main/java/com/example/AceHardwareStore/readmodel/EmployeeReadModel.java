@@ -0,0 +1,278 @@
+package com.example.AceHardwareStore.readmodel;
+
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.events.EmployeeChangedEvent;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional read side for employees. When enabled, the list, by-id and by-department reads are answered
+ * from a columnar copy of each store's employee table instead of the database. EmployeeDao write paths
+ * update the copy as they commit, and a periodic reload picks up writes made by other instances.
+ * Local writes applied while a reload reads the table are replayed onto the new copy before it
+ * replaces the old one. When disabled, every read goes to EmployeeDao as before.
+ */
+@Component
+@EnableConfigurationProperties(ReadModelProperties.class)
+public class EmployeeReadModel implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeReadModel.class);
+
+    private final EmployeeDao employeeDao;
+    private final StoreRoutingDataSource dataSource;
+    private final StoreProperties storeProperties;
+    private final ReadModelProperties properties;
+
+    /**
+     * Columns keyed by store id
+     */
+    private final Map<String, EmployeeColumns> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Local writes made while the columns of a store are being loaded, keyed by store id
+     */
+    private final Map<String, List<EmployeeChangedEvent>> changesDuringLoad = new ConcurrentHashMap<>();
+
+    /**
+     * Reloads the columns off the request threads, null when the model is disabled
+     */
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    /**
+     * Creates a new EmployeeReadModel
+     *
+     * @param employeeDao The employee data access object the model is loaded from
+     * @param dataSource The routing data source, used to list the stores
+     * @param storeProperties The store configuration
+     * @param properties The read model configuration
+     */
+    public EmployeeReadModel(EmployeeDao employeeDao, StoreRoutingDataSource dataSource,
+                             StoreProperties storeProperties, ReadModelProperties properties) {
+        this.employeeDao = employeeDao;
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "employee-read-model-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getRebuildInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::reloadAll, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Loads the columns of every store once the application is up. A store that cannot be read now
+     * is loaded on its first read instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        if (properties.isEnabled()) {
+            reloadAll();
+        }
+    }
+
+    /**
+     * Returns a list of all employees ordered by id
+     *
+     * @return The list of employees
+     */
+    public List<Employee> getAllEmployees() {
+        if (!properties.isEnabled()) {
+            return employeeDao.getAllEmployees();
+        }
+        return columns().all();
+    }
+
+    /**
+     * Returns an employee by their id
+     *
+     * @param id The id of the employee
+     * @return The employee, or null if there is none
+     */
+    public Employee getEmployeeById(int id) {
+        if (!properties.isEnabled()) {
+            return employeeDao.getEmployeeById(id);
+        }
+        return columns().get(id);
+    }
+
+    /**
+     * Returns the employees of a department ordered by name
+     *
+     * @param departmentId The id of the department
+     * @return The list of employees
+     */
+    public List<Employee> getEmployeesByDepartmentId(int departmentId) {
+        if (!properties.isEnabled()) {
+            return employeeDao.getEmployeesByDepartmentId(departmentId);
+        }
+        return columns().byDepartment(departmentId);
+    }
+
+    /**
+     * Applies a local employee write to the columns of its store
+     *
+     * @param event The employee change
+     */
+    @EventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        String storeId = storeId(event.getStoreId());
+        // recorded before applying, so a load that swaps in between still replays it
+        List<EmployeeChangedEvent> changes = changesDuringLoad.get(storeId);
+        if (changes != null) {
+            synchronized (changes) {
+                changes.add(event);
+            }
+        }
+        EmployeeColumns columns = stores.get(storeId);
+        if (columns != null) {
+            apply(columns, event);
+        }
+    }
+
+    /**
+     * Tells whether reads are answered from memory rather than passed to the database
+     *
+     * @return True if the read model is enabled
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Estimates the heap held by the columns of a store
+     *
+     * @param storeId The store, null for the default store
+     * @return The estimated size in bytes, 0 if the store is not loaded
+     */
+    public long estimatedBytes(String storeId) {
+        EmployeeColumns columns = stores.get(storeId(storeId));
+        return columns == null ? 0 : columns.estimatedBytes();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "employeeReadModel";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("reads", reads.sum());
+        metrics.put("reloads", reloads.sum());
+        stores.forEach((storeId, columns) -> {
+            metrics.put(storeId + ".rows", columns.size());
+            metrics.put(storeId + ".estimatedBytes", columns.estimatedBytes());
+        });
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private EmployeeColumns columns() {
+        reads.increment();
+        String storeId = storeId(StoreContext.current());
+        EmployeeColumns columns = stores.get(storeId);
+        if (columns == null) {
+            columns = loadIfMissing(storeId);
+        }
+        return columns;
+    }
+
+    /**
+     * Loads a store on its first read, unless a read that held the lock first already loaded it
+     *
+     * @param storeId The store to load
+     * @return The columns
+     */
+    private synchronized EmployeeColumns loadIfMissing(String storeId) {
+        EmployeeColumns columns = stores.get(storeId);
+        return columns != null ? columns : load(storeId);
+    }
+
+    private void reloadAll() {
+        for (String storeId : dataSource.getStoreIds()) {
+            try {
+                load(storeId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to load the employee read model of store {}", storeId, e);
+            }
+        }
+    }
+
+    /**
+     * Streams the employee table of a store into new columns and swaps them in. The stream may read
+     * rows before local writes made meanwhile commit, so those writes are replayed onto the new
+     * columns first; a replayed write older than the row read is ignored by its version. Loads run
+     * one at a time.
+     *
+     * @param storeId The store to load
+     * @return The columns
+     */
+    private synchronized EmployeeColumns load(String storeId) {
+        List<EmployeeChangedEvent> changes = new ArrayList<>();
+        changesDuringLoad.put(storeId, changes);
+        try {
+            EmployeeColumns previous = stores.get(storeId);
+            EmployeeColumns columns = new EmployeeColumns(previous == null ? 0 : previous.size());
+            StoreContext.callInStore(storeId, () -> {
+                employeeDao.streamEmployees(null, columns::upsert);
+                return null;
+            });
+            synchronized (changes) {
+                changes.forEach(event -> apply(columns, event));
+                stores.put(storeId, columns);
+                changesDuringLoad.remove(storeId);
+            }
+            reloads.increment();
+            return columns;
+        } finally {
+            changesDuringLoad.remove(storeId, changes);
+        }
+    }
+
+    private static void apply(EmployeeColumns columns, EmployeeChangedEvent event) {
+        if (event.getEmployee() == null) {
+            columns.remove(event.getEmployeeId());
+        } else {
+            columns.upsert(event.getEmployee());
+        }
+    }
+
+    private String storeId(String storeId) {
+        return storeId == null ? storeProperties.getDefaultStore() : storeId;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.AceHardwareStore.readmodel;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the in-memory employee read model, bound from ace.read-model.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.read-model")
+public class ReadModelProperties {
+    /**
+     * Whether employee reads are served from memory instead of the database
+     */
+    private boolean enabled = false;
+
+    /**
+     * How often the model is reloaded, which picks up employees changed by other instances
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,445 @@
+package com.example.AceHardwareStore.search;
+
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.events.EmployeeChangedEvent;
+import com.example.AceHardwareStore.events.UserChangedEvent;
+import com.example.AceHardwareStore.events.VendorChangedEvent;
+import com.example.AceHardwareStore.models.CallerMatch;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Resolves phone numbers to the employees, vendors and users that have them, for caller ID.
+ * Numbers are encoded as longs and kept in an open-addressing map per store, so a lookup is a
+ * few array reads under an optimistic lock. DAO writes update the map as they happen. Numbers
+ * changed by other instances are picked up by reloading one record type at a time into the live
+ * map: vendors whenever the near cache announces a vendor change, employees and users periodically.
+ */
+@Component
+@EnableConfigurationProperties(CallerIdProperties.class)
+public class CallerIdDirectory implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(CallerIdDirectory.class);
+
+    public static final String EMPLOYEE = "employee";
+    public static final String VENDOR = "vendor";
+    public static final String USER = "user";
+
+    private final EmployeeDao employeeDao;
+    private final VendorDao vendorDao;
+    private final UserDao userDao;
+    private final StoreRoutingDataSource dataSource;
+    private final StoreProperties storeProperties;
+
+    /**
+     * Directories keyed by store id
+     */
+    private final Map<String, StoreDirectory> directories = new ConcurrentHashMap<>();
+
+    /**
+     * Reloads directories off the request threads
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Record types of stores with a reload queued but not started
+     */
+    private final Set<Reload> pendingReloads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new CallerIdDirectory
+     *
+     * @param employeeDao The employee data access object
+     * @param vendorDao The vendor data access object
+     * @param userDao The user data access object
+     * @param dataSource The routing data source, used to list the stores
+     * @param storeProperties The store configuration
+     * @param properties The directory configuration
+     * @param nearCache The near cache announcing vendor changes
+     */
+    public CallerIdDirectory(EmployeeDao employeeDao, VendorDao vendorDao, UserDao userDao,
+                             StoreRoutingDataSource dataSource, StoreProperties storeProperties,
+                             CallerIdProperties properties, NearCache nearCache) {
+        this.employeeDao = employeeDao;
+        this.vendorDao = vendorDao;
+        this.userDao = userDao;
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caller-id-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRebuildInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> directories.keySet().forEach(storeId -> {
+            scheduleReload(storeId, EMPLOYEE);
+            scheduleReload(storeId, USER);
+        }), interval, interval, TimeUnit.MILLISECONDS);
+        nearCache.addChangeListener(VendorDao.TABLE, (storeId, fromVersion, toVersion) -> scheduleReload(storeId, VENDOR));
+    }
+
+    /**
+     * Loads the directory of every store once the application is up. A store that cannot be read now
+     * is loaded on its first lookup instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAll() {
+        for (String storeId : dataSource.getStoreIds()) {
+            try {
+                directories.put(storeId, build(storeId));
+            } catch (RuntimeException e) {
+                log.warn("Unable to build the caller-ID directory of store {}", storeId, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the records of the current store with a phone number, however it is formatted
+     *
+     * @param phoneNumber The number to resolve
+     * @return The matching records, empty if the number is unknown or invalid
+     */
+    public List<CallerMatch> lookup(String phoneNumber) {
+        long number = PhoneNumbers.encode(phoneNumber);
+        if (number == PhoneNumbers.INVALID) {
+            return List.of();
+        }
+        String storeId = storeId(StoreContext.current());
+        StoreDirectory directory = directories.get(storeId);
+        if (directory == null) {
+            directory = directories.computeIfAbsent(storeId, this::build);
+        }
+        CallerMatch[] matches = directory.get(number);
+        return matches == null ? List.of() : List.of(matches);
+    }
+
+    /**
+     * Applies a local employee write to the directory of its store
+     *
+     * @param event The employee change
+     */
+    @EventListener
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        Employee employee = event.getEmployee();
+        update(event.getStoreId(), EMPLOYEE, String.valueOf(event.getEmployeeId()),
+                employee == null ? null : match(employee));
+    }
+
+    /**
+     * Applies a local vendor write to the directory of its store
+     *
+     * @param event The vendor change
+     */
+    @EventListener
+    public void onVendorChanged(VendorChangedEvent event) {
+        Vendor vendor = event.getVendor();
+        update(event.getStoreId(), VENDOR, String.valueOf(event.getVendorId()),
+                vendor == null ? null : match(vendor));
+    }
+
+    /**
+     * Applies a local user write to the directory of its store
+     *
+     * @param event The user change
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        User user = event.getUser();
+        update(event.getStoreId(), USER, event.getUsername(), user == null ? null : match(user));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Moves a record to its new number in its store's directory, if that directory is loaded
+     *
+     * @param storeId The store of the record, null for the default store
+     * @param type The record type
+     * @param id The record id
+     * @param match The record as written, or null if it was deleted
+     */
+    private void update(String storeId, String type, String id, CallerMatch match) {
+        StoreDirectory directory = directories.get(storeId(storeId));
+        if (directory != null) {
+            directory.update(type + ':' + id, match);
+        }
+    }
+
+    /**
+     * Queues a reload of one record type of a loaded store's directory unless one is already waiting
+     *
+     * @param storeId The store to reload
+     * @param type The record type to reload
+     */
+    private void scheduleReload(String storeId, String type) {
+        Reload reload = new Reload(storeId, type);
+        if (!directories.containsKey(storeId) || !pendingReloads.add(reload)) {
+            return;
+        }
+        scheduler.execute(() -> {
+            pendingReloads.remove(reload);
+            try {
+                StoreDirectory directory = directories.get(storeId);
+                long since = directory.sequence();
+                directory.replace(type, StoreContext.callInStore(storeId, () -> load(type)), since);
+            } catch (RuntimeException e) {
+                log.warn("Unable to reload the {} numbers of the caller-ID directory of store {}", type, storeId, e);
+            }
+        });
+    }
+
+    /**
+     * Reads every record of a type from the current store
+     *
+     * @param type The record type
+     * @return The records keyed by type and id
+     */
+    private Map<String, CallerMatch> load(String type) {
+        Map<String, CallerMatch> records = new HashMap<>();
+        switch (type) {
+            case EMPLOYEE -> employeeDao.getAllEmployees()
+                    .forEach(employee -> records.put(EMPLOYEE + ':' + employee.getEmployeeId(), match(employee)));
+            case VENDOR -> vendorDao.getAllVendors()
+                    .forEach(vendor -> records.put(VENDOR + ':' + vendor.getVendorId(), match(vendor)));
+            case USER -> userDao.getAllUsers()
+                    .forEach(user -> records.put(USER + ':' + user.getUsername(), match(user)));
+            default -> throw new IllegalArgumentException("Unknown record type " + type);
+        }
+        return records;
+    }
+
+    /**
+     * Loads every employee, vendor and user of a store into a new directory
+     *
+     * @param storeId The store to load
+     * @return The directory
+     */
+    private StoreDirectory build(String storeId) {
+        return StoreContext.callInStore(storeId, () -> {
+            List<Employee> employees = employeeDao.getAllEmployees();
+            List<Vendor> vendors = vendorDao.getAllVendors();
+            List<User> users = userDao.getAllUsers();
+            StoreDirectory directory = new StoreDirectory(employees.size() + vendors.size() + users.size());
+            employees.forEach(employee -> directory.move(EMPLOYEE + ':' + employee.getEmployeeId(), match(employee)));
+            vendors.forEach(vendor -> directory.move(VENDOR + ':' + vendor.getVendorId(), match(vendor)));
+            users.forEach(user -> directory.move(USER + ':' + user.getUsername(), match(user)));
+            return directory;
+        });
+    }
+
+    private String storeId(String storeId) {
+        return storeId == null ? storeProperties.getDefaultStore() : storeId;
+    }
+
+    private static CallerMatch match(Employee employee) {
+        return new CallerMatch(EMPLOYEE, String.valueOf(employee.getEmployeeId()), employee.getName(),
+                employee.getPhoneNumber());
+    }
+
+    private static CallerMatch match(Vendor vendor) {
+        return new CallerMatch(VENDOR, String.valueOf(vendor.getVendorId()), vendor.getVendorName(),
+                vendor.getPhoneNumber());
+    }
+
+    private static CallerMatch match(User user) {
+        return new CallerMatch(USER, user.getUsername(), user.getUsername(), user.getPhoneNumber());
+    }
+
+    /**
+     * A record type of one store to reload
+     */
+    private record Reload(String storeId, String type) {
+    }
+
+    /**
+     * Phone numbers of one store. Lookups read optimistically and retry under the read lock only
+     * if a write happened meanwhile.
+     */
+    static class StoreDirectory {
+        private final StampedLock lock = new StampedLock();
+        private final LongObjectMap<CallerMatch[]> byNumber;
+        /**
+         * Current number of each record, keyed by type and id, so an update can leave its old number
+         */
+        private final Map<String, Long> numberByRecord;
+        /**
+         * Counts local writes, so a reload can tell which records were written after it started reading
+         */
+        private long sequence;
+        /**
+         * Sequence of the last local write of each record, kept until a reload of its type no longer needs it
+         */
+        private final Map<String, Long> writtenAt = new HashMap<>();
+
+        StoreDirectory(int expectedSize) {
+            byNumber = new LongObjectMap<>(expectedSize);
+            numberByRecord = new HashMap<>(expectedSize * 2);
+        }
+
+        CallerMatch[] get(long number) {
+            long stamp = lock.tryOptimisticRead();
+            CallerMatch[] matches = byNumber.get(number);
+            if (lock.validate(stamp)) {
+                return matches;
+            }
+            stamp = lock.readLock();
+            try {
+                return byNumber.get(number);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Applies a local write of a record
+         *
+         * @param record The record type and id
+         * @param match The record as written, or null if it was deleted
+         */
+        void update(String record, CallerMatch match) {
+            long stamp = lock.writeLock();
+            try {
+                writtenAt.put(record, ++sequence);
+                move(record, match);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Returns the sequence of the last local write, to pass to replace once a reload has read its records
+         *
+         * @return The sequence
+         */
+        long sequence() {
+            long stamp = lock.readLock();
+            try {
+                return sequence;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Makes the records of a type those reloaded from the database. Records written locally after
+         * the reload started reading keep their local state, since the reload may have read before
+         * those writes committed.
+         *
+         * @param type The record type
+         * @param records The reloaded records, keyed by type and id
+         * @param since The sequence taken before the reload started reading
+         */
+        void replace(String type, Map<String, CallerMatch> records, long since) {
+            String prefix = type + ':';
+            long stamp = lock.writeLock();
+            try {
+                for (String record : new ArrayList<>(numberByRecord.keySet())) {
+                    if (record.startsWith(prefix) && !records.containsKey(record) && !writtenSince(record, since)) {
+                        move(record, null);
+                    }
+                }
+                records.forEach((record, match) -> {
+                    if (!writtenSince(record, since) && !holds(record, match)) {
+                        move(record, match);
+                    }
+                });
+                writtenAt.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix) && entry.getValue() <= since);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private boolean writtenSince(String record, long since) {
+            Long sequence = writtenAt.get(record);
+            return sequence != null && sequence > since;
+        }
+
+        /**
+         * Returns whether a record is already filed under the same number, name and phone number
+         */
+        private boolean holds(String record, CallerMatch match) {
+            Long number = numberByRecord.get(record);
+            if (number == null) {
+                return PhoneNumbers.encode(match.getPhoneNumber()) == PhoneNumbers.INVALID;
+            }
+            CallerMatch[] existing = byNumber.get(number);
+            if (number != PhoneNumbers.encode(match.getPhoneNumber()) || existing == null) {
+                return false;
+            }
+            for (CallerMatch current : existing) {
+                if (record.equals(current.getType() + ':' + current.getId())) {
+                    return Objects.equals(current.getName(), match.getName())
+                            && Objects.equals(current.getPhoneNumber(), match.getPhoneNumber());
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Files a record under its new number, the caller holds the write lock or owns the directory
+         *
+         * @param record The record type and id
+         * @param match The record, or null to remove it
+         */
+        void move(String record, CallerMatch match) {
+            long number = match == null ? PhoneNumbers.INVALID : PhoneNumbers.encode(match.getPhoneNumber());
+            Long previous = number == PhoneNumbers.INVALID ? numberByRecord.remove(record) : numberByRecord.put(record, number);
+            if (previous != null) {
+                detach(previous, record);
+            }
+            if (number != PhoneNumbers.INVALID) {
+                CallerMatch[] existing = byNumber.get(number);
+                CallerMatch[] matches = existing == null ? new CallerMatch[1] : Arrays.copyOf(existing, existing.length + 1);
+                matches[matches.length - 1] = match;
+                byNumber.put(number, matches);
+            }
+        }
+
+        /**
+         * Removes a record from the matches of a number
+         */
+        private void detach(long number, String record) {
+            CallerMatch[] existing = byNumber.get(number);
+            if (existing == null) {
+                return;
+            }
+            CallerMatch[] remaining = Arrays.stream(existing)
+                    .filter(match -> !record.equals(match.getType() + ':' + match.getId()))
+                    .toArray(CallerMatch[]::new);
+            if (remaining.length == 0) {
+                byNumber.remove(number);
+            } else {
+                byNumber.put(number, remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.AceHardwareStore.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the caller-ID phone directory, bound from ace.caller-id.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.caller-id")
+public class CallerIdProperties {
+    /**
+     * How often employee and user numbers are reloaded, which picks up numbers changed by other instances.
+     * Vendor numbers are reloaded whenever the near cache announces a vendor change instead.
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+}
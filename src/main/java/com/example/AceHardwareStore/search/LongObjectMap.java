@@ -0,0 +1,156 @@
+package com.example.AceHardwareStore.search;
+
+/**
+ * Hash map from nonzero long keys to objects, stored in two flat arrays with linear probing,
+ * so lookups neither box the key nor chase entry objects. Not thread-safe; a reader racing a
+ * writer may see a wrong answer but never fails, so callers can validate optimistic reads.
+ *
+ * @param <V> The value type
+ */
+class LongObjectMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Keys and values are swapped together on resize, so a racing reader never mixes two tables
+     */
+    private volatile Table table;
+    private int size;
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    /**
+     * Creates a map sized for an expected number of entries
+     *
+     * @param expectedSize The expected number of entries
+     */
+    LongObjectMap(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key The key, not zero
+     * @return The value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        Table current = table;
+        long[] keys = current.keys;
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask), probes = 0; probes < keys.length; i = (i + 1) & mask, probes++) {
+            long candidate = keys[i];
+            if (candidate == key) {
+                return (V) current.values[i];
+            }
+            if (candidate == 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of a key
+     *
+     * @param key The key, not zero
+     * @param value The value, not null
+     */
+    void put(long key, V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero is reserved for empty slots");
+        }
+        if (size + 1 > table.keys.length * LOAD_FACTOR) {
+            resize(table.keys.length * 2);
+        }
+        Table current = table;
+        int mask = current.keys.length - 1;
+        int i = slot(key, mask);
+        while (current.keys[i] != 0 && current.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (current.keys[i] == 0) {
+            size++;
+        }
+        current.values[i] = value;
+        current.keys[i] = key;
+    }
+
+    /**
+     * Removes a key, shifting later entries of its probe run back so no tombstones are needed
+     *
+     * @param key The key
+     */
+    void remove(long key) {
+        Table current = table;
+        long[] keys = current.keys;
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        size--;
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            // move the entry into the gap unless its home slot lies cyclically in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                current.values[gap] = current.values[j];
+                keys[gap] = keys[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        current.values[gap] = null;
+    }
+
+    /**
+     * Returns the number of entries
+     *
+     * @return The number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table resized = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != 0) {
+                int j = slot(old.keys[i], mask);
+                while (resized.keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                resized.keys[j] = old.keys[i];
+                resized.values[j] = old.values[i];
+            }
+        }
+        table = resized;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.AceHardwareStore.search;
+
+/**
+ * Encodes phone numbers as longs so differently formatted copies of a number compare equal
+ */
+public final class PhoneNumbers {
+    /**
+     * Returned for text that is not a usable phone number
+     */
+    public static final long INVALID = 0;
+
+    /**
+     * Most digits a number may have, one less than a long holds so the leading marker digit fits
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Encodes the digits of a phone number, ignoring punctuation and a leading +1 country code.
+     * A marker digit in front keeps leading zeros significant, so the result is never zero for a valid number.
+     *
+     * @param text The number as entered, may be null
+     * @return The encoded number, or INVALID if it has no digits or too many
+     */
+    public static long encode(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+        long value = 1;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            if (++digits > MAX_DIGITS) {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (digits == 0) {
+            return INVALID;
+        }
+        // 1 555 123 4567 and 555 123 4567 are the same North American number
+        if (digits == 11 && value / 10_000_000_000L == 11) {
+            value -= 100_000_000_000L;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.AceHardwareStore.search;
+
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.events.VendorChangedEvent;
+import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory prefix index over vendor names and contacts, so a typeahead never queries the database.
+ * Every word of a name or contact starts a sorted key, so a lookup is one seek into a skip list
+ * followed by reading the first matches. Local writes update the index in place from their change
+ * events. The near cache announces every change of the vendor table with the versions it spans; only
+ * a span holding a version no local write produced, so a write of another instance or outside the
+ * application, rebuilds the index in the background.
+ */
+@Component
+public class VendorTypeahead implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(VendorTypeahead.class);
+
+    /**
+     * Most matches a single lookup returns
+     */
+    public static final int MAX_RESULTS = 50;
+
+    /**
+     * Separates the term from the vendor id in an index key, sorts before any character of a term
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final VendorDao vendorDao;
+    private final StoreRoutingDataSource dataSource;
+    private final StoreProperties storeProperties;
+
+    /**
+     * Indexes keyed by store id
+     */
+    private final Map<String, VendorIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Stores with a rebuild queued but not started, so a burst of changes rebuilds once
+     */
+    private final Set<String> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Vendor table versions produced by local writes and not yet announced by the near cache, keyed by store id
+     */
+    private final Map<String, NavigableSet<Long>> localVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Local writes applied while an index of the store is being built, replayed onto it before it is
+     * published, keyed by store id
+     */
+    private final Map<String, List<VendorChangedEvent>> changesDuringBuild = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuilds indexes off the near-cache listener thread
+     */
+    private final ExecutorService rebuilder;
+
+    /**
+     * Creates a new VendorTypeahead
+     *
+     * @param vendorDao The vendor data access object the index is loaded from
+     * @param dataSource The routing data source, used to list the stores
+     * @param storeProperties The store configuration
+     * @param nearCache The near cache announcing vendor changes
+     */
+    public VendorTypeahead(VendorDao vendorDao, StoreRoutingDataSource dataSource, StoreProperties storeProperties,
+                           NearCache nearCache) {
+        this.vendorDao = vendorDao;
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vendor-typeahead-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        nearCache.addChangeListener(VendorDao.TABLE, this::onTableChanged);
+    }
+
+    /**
+     * Builds the index of every store once the application is up. A store that cannot be read now
+     * is built on its first lookup instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAll() {
+        for (String storeId : dataSource.getStoreIds()) {
+            try {
+                rebuild(storeId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to build the vendor typeahead index of store {}", storeId, e);
+            }
+        }
+    }
+
+    /**
+     * Returns vendors of the current store whose name or contact has a word starting with the query
+     *
+     * @param query The text typed so far
+     * @param limit The most matches to return, capped at MAX_RESULTS
+     * @return The matching vendors, in alphabetical order of their matching term
+     */
+    public List<Vendor> search(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        String storeId = storeId(StoreContext.current());
+        VendorIndex index = indexes.get(storeId);
+        if (index == null) {
+            index = rebuild(storeId);
+        }
+        return index.search(prefix, Math.min(limit, MAX_RESULTS));
+    }
+
+    /**
+     * Applies a local vendor write to the index of its store and remembers its table version, so its
+     * announcement by the near cache does not rebuild the index
+     *
+     * @param event The vendor change
+     */
+    @EventListener
+    public void onVendorChanged(VendorChangedEvent event) {
+        String storeId = storeId(event.getStoreId());
+        localVersions.computeIfAbsent(storeId, id -> new ConcurrentSkipListSet<>()).add(event.getTableVersion());
+        // recorded before applying, so a build that publishes in between still replays it
+        List<VendorChangedEvent> changes = changesDuringBuild.get(storeId);
+        if (changes != null) {
+            synchronized (changes) {
+                changes.add(event);
+            }
+        }
+        VendorIndex index = indexes.get(storeId);
+        if (index != null) {
+            index.apply(event);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Rebuilds a store's index unless every version of the change was produced by a local write,
+     * which the index already holds
+     *
+     * @param storeId The store whose vendors changed
+     * @param fromVersion The vendor table version last announced, or null if unknown
+     * @param toVersion The vendor table version now announced, or null if unknown
+     */
+    private void onTableChanged(String storeId, Long fromVersion, Long toVersion) {
+        NavigableSet<Long> local = localVersions.computeIfAbsent(storeId, id -> new ConcurrentSkipListSet<>());
+        boolean onlyLocal = onlyLocal(local, fromVersion, toVersion);
+        if (toVersion != null) {
+            local.headSet(toVersion, true).clear();
+        }
+        if (!onlyLocal) {
+            scheduleRebuild(storeId);
+        }
+    }
+
+    /**
+     * Returns whether every version after fromVersion up to toVersion is a local one
+     *
+     * @param local The versions produced by local writes
+     * @param fromVersion The version last announced, or null if unknown
+     * @param toVersion The version now announced, or null if unknown
+     * @return True if no version of the span was written elsewhere
+     */
+    static boolean onlyLocal(NavigableSet<Long> local, Long fromVersion, Long toVersion) {
+        if (fromVersion == null || toVersion == null) {
+            return false;
+        }
+        if (toVersion <= fromVersion) {
+            // an older announcement arriving late, its changes were already handled
+            return true;
+        }
+        if (toVersion - fromVersion > local.size()) {
+            return false;
+        }
+        for (long version = fromVersion + 1; version <= toVersion; version++) {
+            if (!local.contains(version)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues a rebuild of a store's index unless one is already waiting
+     *
+     * @param storeId The store whose vendors changed
+     */
+    private void scheduleRebuild(String storeId) {
+        if (!indexes.containsKey(storeId) || !pendingRebuilds.add(storeId)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            // changes announced from here on queue another rebuild
+            pendingRebuilds.remove(storeId);
+            try {
+                rebuild(storeId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to rebuild the vendor typeahead index of store {}", storeId, e);
+            }
+        });
+    }
+
+    /**
+     * Loads every vendor of a store into a new index and publishes it. Local writes applied during
+     * the load are replayed onto the new index first, since the load may have read before they
+     * committed. Builds of the same instance run one at a time.
+     *
+     * @param storeId The store to load
+     * @return The index
+     */
+    private synchronized VendorIndex rebuild(String storeId) {
+        List<VendorChangedEvent> changes = new ArrayList<>();
+        changesDuringBuild.put(storeId, changes);
+        try {
+            VendorIndex index = new VendorIndex();
+            for (Vendor vendor : StoreContext.callInStore(storeId, vendorDao::getAllVendors)) {
+                index.put(vendor);
+            }
+            synchronized (changes) {
+                changes.forEach(index::apply);
+                indexes.put(storeId, index);
+                changesDuringBuild.remove(storeId);
+            }
+            return index;
+        } finally {
+            changesDuringBuild.remove(storeId, changes);
+        }
+    }
+
+    private String storeId(String storeId) {
+        return storeId == null ? storeProperties.getDefaultStore() : storeId;
+    }
+
+    /**
+     * Lower-cases text and collapses its whitespace, so queries and terms compare alike
+     *
+     * @param text The text, may be null
+     * @return The normalized text
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the searchable terms of a vendor, one per word of its name and contact, each running
+     * to the end of the field so multi-word queries match too
+     *
+     * @param vendor The vendor
+     * @return The terms
+     */
+    static Set<String> terms(Vendor vendor) {
+        Set<String> terms = new HashSet<>();
+        for (String field : new String[]{vendor.getVendorName(), vendor.getContact()}) {
+            String normalized = normalize(field);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            terms.add(normalized);
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                terms.add(normalized.substring(i + 1));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Prefix index of one store
+     */
+    static class VendorIndex {
+        /**
+         * Keys are a term, the separator and the vendor id, so equal terms of different vendors do not collide
+         */
+        private final NavigableMap<String, Integer> terms = new ConcurrentSkipListMap<>();
+        private final Map<Integer, Vendor> vendors = new ConcurrentHashMap<>();
+
+        /**
+         * Applies a vendor change
+         *
+         * @param event The change
+         */
+        void apply(VendorChangedEvent event) {
+            if (event.getVendor() == null) {
+                remove(event.getVendorId());
+            } else {
+                put(event.getVendor());
+            }
+        }
+
+        /**
+         * Adds or replaces a vendor, unless the index already holds a newer version of it
+         *
+         * @param vendor The vendor
+         */
+        synchronized void put(Vendor vendor) {
+            Vendor current = vendors.get(vendor.getVendorId());
+            if (current != null && current.getVersion() > vendor.getVersion()) {
+                return;
+            }
+            remove(vendor.getVendorId());
+            vendors.put(vendor.getVendorId(), vendor);
+            for (String term : terms(vendor)) {
+                terms.put(term + KEY_SEPARATOR + vendor.getVendorId(), vendor.getVendorId());
+            }
+        }
+
+        synchronized void remove(int vendorId) {
+            Vendor removed = vendors.remove(vendorId);
+            if (removed != null) {
+                for (String term : terms(removed)) {
+                    terms.remove(term + KEY_SEPARATOR + vendorId);
+                }
+            }
+        }
+
+        List<Vendor> search(String prefix, int limit) {
+            Set<Integer> matches = new LinkedHashSet<>();
+            for (Integer vendorId : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                matches.add(vendorId);
+                if (matches.size() == limit) {
+                    break;
+                }
+            }
+            List<Vendor> result = new ArrayList<>(matches.size());
+            for (Integer vendorId : matches) {
+                Vendor vendor = vendors.get(vendorId);
+                if (vendor != null) {
+                    result.add(vendor);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+
+/**
+ * Password encoder that can hash several passwords at once, for example in parallel
+ */
+public interface BatchPasswordEncoder extends PasswordEncoder {
+    /**
+     * Hashes several passwords
+     *
+     * @param rawPasswords The passwords to hash
+     * @return The hashes, in input order
+     */
+    List<String> encodeAll(List<? extends CharSequence> rawPasswords);
+
+    /**
+     * Hashes several passwords with any encoder, as a batch if the encoder supports it and one by one otherwise
+     *
+     * @param encoder The encoder
+     * @param rawPasswords The passwords to hash
+     * @return The hashes, in input order
+     */
+    static List<String> encodeAll(PasswordEncoder encoder, List<? extends CharSequence> rawPasswords) {
+        if (encoder instanceof BatchPasswordEncoder batchEncoder) {
+            return batchEncoder.encodeAll(rawPasswords);
+        }
+        return rawPasswords.stream().map(encoder::encode).toList();
+    }
+}
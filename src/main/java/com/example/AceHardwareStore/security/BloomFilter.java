@@ -0,0 +1,110 @@
+package com.example.AceHardwareStore.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of strings that answers "maybe present" or "definitely absent" from a bit array. Each string
+ * sets k bits chosen by double hashing a seeded 64-bit hash, so a string whose bits are not all set
+ * was never added. The seed is random per filter, which keeps outsiders from crafting names that
+ * collide. Bits are set with compare-and-set and read without a lock.
+ */
+class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long seed;
+
+    /**
+     * Creates an empty filter sized for a number of strings
+     *
+     * @param expectedEntries The number of strings it should hold at the given rate
+     * @param falsePositiveRate The share of absent strings it may report as present
+     * @param seed The hash seed
+     */
+    BloomFilter(int expectedEntries, double falsePositiveRate, long seed) {
+        int entries = Math.max(1, expectedEntries);
+        double rate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long optimalBits = (long) Math.ceil(-entries * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / entries * Math.log(2))));
+        this.seed = seed;
+    }
+
+    /**
+     * Adds a string
+     *
+     * @param value The string
+     */
+    void put(String value) {
+        long hash = hash(value);
+        long step = mix(hash ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a string may have been added
+     *
+     * @param value The string
+     * @return false only if the string was certainly never added
+     */
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = mix(hash ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the current false positive rate from how full the bit array is
+     *
+     * @return The chance that an absent string is reported as present
+     */
+    double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashes);
+    }
+
+    /**
+     * Returns the size of the bit array
+     *
+     * @return The number of bits
+     */
+    long bits() {
+        return bits;
+    }
+
+    private long hash(String value) {
+        // FNV-1a over the chars, finished with a full avalanche
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.AceHardwareStore.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.SignedJWT;
+import eu.fraho.spring.securityJwt.base.dto.AccessToken;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Token service that answers repeated verifications of the same access token from the verified token cache
+ */
+public class CachingJwtTokenService implements JwtTokenService {
+    /**
+     * Service doing the actual signing and verification
+     */
+    private final JwtTokenService delegate;
+
+    /**
+     * Cache, looked up on first use because the token service is created early
+     */
+    private final ObjectProvider<VerifiedTokenCache> cache;
+
+    /**
+     * Creates a new CachingJwtTokenService
+     *
+     * @param delegate The service doing the actual signing and verification
+     * @param cache The verified token cache
+     */
+    public CachingJwtTokenService(JwtTokenService delegate, ObjectProvider<VerifiedTokenCache> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public <T extends JwtUser> Optional<T> parseUser(String token) {
+        return cache.getObject().parseUser(token, delegate::parseUser);
+    }
+
+    @Override
+    public <T extends JwtUser> AccessToken generateToken(T user) throws JOSEException {
+        return delegate.generateToken(user);
+    }
+
+    @Override
+    public boolean validateToken(String token) {
+        return delegate.validateToken(token);
+    }
+
+    @Override
+    public boolean validateToken(SignedJWT signedJWT) {
+        return delegate.validateToken(signedJWT);
+    }
+
+    @Override
+    public boolean validateToken(AccessToken token) {
+        return delegate.validateToken(token);
+    }
+
+    /**
+     * Forwards the deprecated lookup, which the interface still requires
+     *
+     * @deprecated Use {@link #getAccessToken(HttpServletRequest)}, as the delegate's interface does
+     */
+    @Override
+    @Deprecated
+    public Optional<String> getToken(HttpServletRequest request) {
+        return delegate.getToken(request);
+    }
+
+    @Override
+    public Optional<String> getAccessToken(HttpServletRequest request) {
+        return delegate.getAccessToken(request);
+    }
+
+    @Override
+    public Optional<String> getRefreshToken(HttpServletRequest request) {
+        return delegate.getRefreshToken(request);
+    }
+
+    @Override
+    public boolean isRefreshTokenSupported() {
+        return delegate.isRefreshTokenSupported();
+    }
+
+    @Override
+    public RefreshToken generateRefreshToken(JwtUser user) {
+        return delegate.generateRefreshToken(user);
+    }
+
+    @Override
+    public <T extends JwtUser> Optional<T> useRefreshToken(String token) {
+        return delegate.useRefreshToken(token);
+    }
+
+    @Override
+    public <T extends JwtUser> Optional<T> useRefreshToken(RefreshToken token) {
+        return delegate.useRefreshToken(token);
+    }
+
+    @Override
+    public Map<Long, List<RefreshToken>> listRefreshTokens() {
+        return delegate.listRefreshTokens();
+    }
+
+    @Override
+    public List<RefreshToken> listRefreshTokens(JwtUser user) {
+        return delegate.listRefreshTokens(user);
+    }
+
+    @Override
+    public boolean revokeRefreshToken(RefreshToken token) {
+        return delegate.revokeRefreshToken(token);
+    }
+
+    @Override
+    public boolean revokeRefreshToken(String token) {
+        return delegate.revokeRefreshToken(token);
+    }
+
+    @Override
+    public int revokeRefreshTokens(JwtUser user) {
+        return delegate.revokeRefreshTokens(user);
+    }
+
+    @Override
+    public int clearTokens() {
+        return delegate.clearTokens();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.AceHardwareStore.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Password encoder that runs the wrapped encoder on the password hashing executor
+ */
+public class OffloadingPasswordEncoder implements BatchPasswordEncoder {
+    /**
+     * Encoder doing the actual hashing
+     */
+    private final PasswordEncoder delegate;
+
+    /**
+     * Executor, looked up on first use because encoders are created early
+     */
+    private final ObjectProvider<PasswordHashingExecutor> executor;
+
+    /**
+     * Creates a new OffloadingPasswordEncoder
+     *
+     * @param delegate The encoder doing the actual hashing
+     * @param executor The password hashing executor
+     */
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, ObjectProvider<PasswordHashingExecutor> executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.getObject().run(() -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Hashes several passwords in parallel across the hashing threads
+     *
+     * @param rawPasswords The passwords to hash
+     * @return The hashes, in input order
+     */
+    @Override
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<Callable<String>> tasks = rawPasswords.stream()
+                .<Callable<String>>map(rawPassword -> () -> delegate.encode(rawPassword))
+                .toList();
+        return executor.getObject().runAll(tasks);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.getObject().run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Moves every use of the password encoder, including login, onto the password hashing executor
+ */
+@Configuration
+public class PasswordHashingConfiguration {
+    /**
+     * Wraps the password encoder bean so it runs on the password hashing executor
+     *
+     * @param executor The password hashing executor
+     * @return The post processor
+     */
+    @Bean
+    public static BeanPostProcessor offloadingPasswordEncoderPostProcessor(ObjectProvider<PasswordHashingExecutor> executor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof PasswordEncoder passwordEncoder && !(bean instanceof OffloadingPasswordEncoder)) {
+                    return new OffloadingPasswordEncoder(passwordEncoder, executor);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.AceHardwareStore.security;
+
+import com.example.AceHardwareStore.exceptions.OverloadedException;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password hashing and verification on a CPU-sized pool with a bounded queue, so a burst of
+ * logins cannot occupy every request thread. Work that does not fit in the queue is rejected at once.
+ */
+@Component
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+public class PasswordHashingExecutor implements MetricsSource, DisposableBean {
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    /**
+     * Creates a new PasswordHashingExecutor
+     *
+     * @param properties The hashing configuration
+     */
+    public PasswordHashingExecutor(PasswordHashingProperties properties) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, properties.getThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs one hashing task and waits for its result
+     *
+     * @param task The hashing task
+     * @return The result of the task
+     * @throws OverloadedException If the queue is full
+     */
+    public <T> T run(Callable<T> task) {
+        return await(submit(task));
+    }
+
+    /**
+     * Runs several hashing tasks in parallel and waits for all of them. At most one task per hashing
+     * thread is queued at a time, so a large batch does not fill the queue that logins rely on.
+     *
+     * @param tasks The hashing tasks
+     * @return The results, in task order
+     * @throws OverloadedException If the queue cannot take the next tasks
+     */
+    public <T> List<T> runAll(List<? extends Callable<T>> tasks) {
+        int window = executor.getMaximumPoolSize();
+        List<T> results = new ArrayList<>(tasks.size());
+        for (int start = 0; start < tasks.size(); start += window) {
+            List<Future<T>> futures = new ArrayList<>(window);
+            try {
+                for (Callable<T> task : tasks.subList(start, Math.min(start + window, tasks.size()))) {
+                    futures.add(submit(task));
+                }
+            } catch (OverloadedException e) {
+                futures.forEach(future -> future.cancel(false));
+                throw e;
+            }
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "passwordHashing";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long count = completed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("completed", count);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("meanHashMillis", count == 0 ? 0.0 : totalHashNanos.sum() / (double) count / 1_000_000);
+        metrics.put("maxHashMillis", maxHashNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new OverloadedException("Too many password checks in progress, try again later", e);
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            completed.increment();
+            totalHashNanos.add(elapsed);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.AceHardwareStore.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the password hashing executor, bound from ace.password-hashing.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.password-hashing")
+public class PasswordHashingProperties {
+    /**
+     * Number of hashing threads, defaults to the number of processors
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of hashing requests that may wait for a thread before new ones are rejected with 503
+     */
+    private int queueCapacity = 64;
+}
@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.security;
+
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts the verified token cache in front of the JWT token service used by the authentication filter
+ */
+@Configuration
+public class TokenCacheConfiguration {
+    /**
+     * Wraps the token service bean so repeated tokens skip signature verification
+     *
+     * @param cache The verified token cache
+     * @return The post processor
+     */
+    @Bean
+    public static BeanPostProcessor cachingJwtTokenServicePostProcessor(ObjectProvider<VerifiedTokenCache> cache) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JwtTokenService jwtTokenService && !(bean instanceof CachingJwtTokenService)) {
+                    return new CachingJwtTokenService(jwtTokenService, cache);
+                }
+                return bean;
+            }
+        };
+    }
+}
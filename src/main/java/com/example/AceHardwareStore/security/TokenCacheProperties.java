@@ -0,0 +1,32 @@
+package com.example.AceHardwareStore.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cache of verified access tokens, bound from ace.token-cache.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.token-cache")
+public class TokenCacheProperties {
+    /**
+     * Whether verified tokens are cached at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of cached tokens, expired ones are dropped and then the cache is cleared when it is exceeded
+     */
+    private int maximumEntries = 100_000;
+
+    /**
+     * Longest time a verification is reused even if the token lives longer. Role changes and deletions
+     * refuse earlier tokens only on the instance that made them; elsewhere those tokens keep their old
+     * roles until they expire, as with any signed token
+     */
+    private Duration maximumAge = Duration.ofMinutes(5);
+}
@@ -0,0 +1,406 @@
+package com.example.AceHardwareStore.security;
+
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.events.UserChangedEvent;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bloom filter over the usernames of each store, so a login for a username that certainly does not
+ * exist is refused without a database query. A refusal waits as long as a database lookup of an
+ * unknown username recently took, drawn from measured samples, so refused and looked-up failures
+ * cannot be told apart by their timing. Local creations are added as they happen. Every write to the
+ * users table, by any instance or directly in the database, is announced on the near-cache channel and
+ * reloads the usernames; from the announcement until that reload completes, and whenever the channel is
+ * down, the filter may be stale and every username is let through, as it is until a store is first loaded.
+ * A refusal checks again after its delay, so a user announced meanwhile is looked up.
+ */
+@Component
+@EnableConfigurationProperties(UsernameFilterProperties.class)
+public class UsernameFilter implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(UsernameFilter.class);
+
+    /**
+     * Smallest number of usernames a filter is sized for
+     */
+    private static final int MINIMUM_ENTRIES = 1024;
+
+    /**
+     * Lookups of unknown usernames timed on every load, to keep the latency samples current
+     */
+    private static final int PROBES = 4;
+
+    /**
+     * Lookup latencies kept per store
+     */
+    private static final int SAMPLES = 32;
+
+    private final UserDao userDao;
+    private final NearCache nearCache;
+    private final StoreRoutingDataSource dataSource;
+    private final StoreProperties storeProperties;
+    private final UsernameFilterProperties properties;
+    private final SecureRandom seeds = new SecureRandom();
+
+    /**
+     * Filters keyed by store id
+     */
+    private final Map<String, StoreFilter> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Loads filters off the request threads, one store at a time, null when the filter is disabled
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Stores with a load queued but not started
+     */
+    private final Set<String> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * Creates a new UsernameFilter
+     *
+     * @param userDao The user data access object the usernames are loaded from
+     * @param nearCache The near cache announcing writes to the users table
+     * @param dataSource The routing data source, used to list the stores
+     * @param storeProperties The store configuration
+     * @param properties The filter configuration
+     */
+    public UsernameFilter(UserDao userDao, NearCache nearCache, StoreRoutingDataSource dataSource,
+                          StoreProperties storeProperties, UsernameFilterProperties properties) {
+        this.userDao = userDao;
+        this.nearCache = nearCache;
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "username-filter-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getRebuildInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::scheduleAll, interval, interval, TimeUnit.MILLISECONDS);
+            nearCache.addChangeListener(UserDao.TABLE, (storeId, fromVersion, toVersion) -> onUsersChanged(storeId));
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Loads the usernames of every store once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        if (properties.isEnabled()) {
+            scheduleAll();
+        }
+    }
+
+    /**
+     * Tells whether a login for a username of the current store is refused without a database lookup.
+     * A refusal first takes as long as the lookup would, so it does not reveal the filter, and then
+     * checks again, since a user created elsewhere may have been announced meanwhile.
+     *
+     * @param username The username
+     * @return true only if the username certainly does not exist
+     */
+    public boolean refuse(String username) {
+        if (mightExist(username)) {
+            return false;
+        }
+        awaitLookupTime();
+        if (mightExist(username)) {
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * Tells whether a username of the current store may exist
+     *
+     * @param username The username
+     * @return false only if the username certainly does not exist
+     */
+    public boolean mightExist(String username) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String storeId = storeId(StoreContext.current());
+        StoreFilter store = stores.get(storeId);
+        BloomFilter filter = store == null ? null : store.filter;
+        if (filter == null) {
+            scheduleRebuild(storeId);
+            return true;
+        }
+        return store.isStale() || !nearCache.isListening(storeId) || filter.mightContain(username);
+    }
+
+    /**
+     * Blocks for about as long as a database lookup of an unknown username takes in the current store
+     */
+    private void awaitLookupTime() {
+        StoreFilter store = stores.get(storeId(StoreContext.current()));
+        long delay = store == null ? 0 : store.sampleLatency();
+        long until = System.nanoTime() + delay;
+        for (long remaining = delay; remaining > 0; remaining = until - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Records a database lookup that found no user, both as a latency sample and, if the filter
+     * let the username through, as a false positive
+     *
+     * @param username The username that was looked up
+     * @param nanos How long the lookup took
+     */
+    public void recordMiss(String username, long nanos) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        StoreFilter store = stores.get(storeId(StoreContext.current()));
+        if (store == null) {
+            return;
+        }
+        store.recordLatency(nanos);
+        BloomFilter filter = store.filter;
+        if (filter != null && filter.mightContain(username)) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Adds a locally created user to the filter of its store, and reloads the store after a deletion
+     * since a Bloom filter cannot forget a username
+     *
+     * @param event The user change
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String storeId = storeId(event.getStoreId());
+        if (event.getUser() == null) {
+            scheduleRebuild(storeId);
+            return;
+        }
+        stores.computeIfAbsent(storeId, id -> new StoreFilter()).add(event.getUsername());
+    }
+
+    /**
+     * Marks a store's filter stale and reloads it after a write to its users table was announced
+     *
+     * @param storeId The store
+     */
+    private void onUsersChanged(String storeId) {
+        StoreFilter store = stores.get(storeId);
+        if (store != null) {
+            store.changes.incrementAndGet();
+        }
+        scheduleRebuild(storeId);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "usernameFilter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long rejections = rejected.sum();
+        long misses = falsePositives.sum();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("rejected", rejections);
+        metrics.put("falsePositives", misses);
+        metrics.put("falsePositiveRate", rejections + misses == 0 ? 0.0 : (double) misses / (rejections + misses));
+        metrics.put("rebuilds", rebuilds.sum());
+        stores.forEach((storeId, store) -> {
+            BloomFilter filter = store.filter;
+            if (filter != null) {
+                metrics.put(storeId + ".stale", store.isStale() || !nearCache.isListening(storeId));
+                metrics.put(storeId + ".entries", store.entries);
+                metrics.put(storeId + ".bits", filter.bits());
+                metrics.put(storeId + ".expectedFalsePositiveRate", filter.expectedFalsePositiveRate());
+            }
+        });
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void scheduleAll() {
+        dataSource.getStoreIds().forEach(this::scheduleRebuild);
+    }
+
+    /**
+     * Queues a load of a store's usernames unless one is already waiting
+     *
+     * @param storeId The store to load
+     */
+    private void scheduleRebuild(String storeId) {
+        if (scheduler == null || !pendingRebuilds.add(storeId)) {
+            return;
+        }
+        scheduler.execute(() -> {
+            pendingRebuilds.remove(storeId);
+            try {
+                rebuild(storeId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to load the usernames of store {}", storeId, e);
+            }
+        });
+    }
+
+    /**
+     * Loads every username of a store into a new filter and times a few lookups of unknown usernames
+     *
+     * @param storeId The store to load
+     */
+    private void rebuild(String storeId) {
+        nearCache.watch(storeId);
+        StoreFilter store = stores.computeIfAbsent(storeId, id -> new StoreFilter());
+        long changes = store.changes.get();
+        store.startRebuild();
+        try {
+            List<String> usernames = new ArrayList<>();
+            StoreContext.callInStore(storeId, () -> {
+                userDao.forEachUsername(usernames::add);
+                for (int i = 0; i < PROBES; i++) {
+                    long start = System.nanoTime();
+                    if (userDao.getUser(UUID.randomUUID().toString()) == null) {
+                        store.recordLatency(System.nanoTime() - start);
+                    }
+                }
+                return null;
+            });
+            BloomFilter filter = new BloomFilter(Math.max(MINIMUM_ENTRIES, usernames.size() + usernames.size() / 4),
+                    properties.getFalsePositiveRate(), seeds.nextLong());
+            usernames.forEach(filter::put);
+            store.finishRebuild(filter, usernames.size(), changes);
+            rebuilds.increment();
+        } finally {
+            store.endRebuild();
+        }
+    }
+
+    private String storeId(String storeId) {
+        return storeId == null ? storeProperties.getDefaultStore() : storeId;
+    }
+
+    /**
+     * Filter of one store with the latencies of its recent lookups of unknown usernames
+     */
+    private static final class StoreFilter {
+        /**
+         * Current filter, null until the store is first loaded
+         */
+        private volatile BloomFilter filter;
+        private volatile int entries;
+
+        /**
+         * Announced writes to the users table, and how many of them the current filter was loaded after
+         */
+        private final AtomicLong changes = new AtomicLong();
+        private volatile long loadedChanges;
+
+        /**
+         * Usernames added while no filter is loaded or a load is running, applied to the next filter
+         * so a user created during a load is never missing from it. Guarded by this.
+         */
+        private List<String> pending = new ArrayList<>();
+
+        private final AtomicLongArray latencies = new AtomicLongArray(SAMPLES);
+        private final AtomicLong recorded = new AtomicLong();
+
+        synchronized void add(String username) {
+            if (filter != null && !filter.mightContain(username)) {
+                filter.put(username);
+                entries++;
+            }
+            if (pending != null) {
+                pending.add(username);
+            }
+        }
+
+        synchronized void startRebuild() {
+            if (pending == null) {
+                pending = new ArrayList<>();
+            }
+        }
+
+        synchronized void finishRebuild(BloomFilter loaded, int loadedEntries, long changesBefore) {
+            pending.forEach(loaded::put);
+            entries = loadedEntries + pending.size();
+            loadedChanges = changesBefore;
+            filter = loaded;
+        }
+
+        /**
+         * Tells whether a write was announced after the current filter started loading
+         */
+        boolean isStale() {
+            return changes.get() != loadedChanges;
+        }
+
+        synchronized void endRebuild() {
+            // names created before the first load must survive a failed load
+            if (filter != null) {
+                pending = null;
+            }
+        }
+
+        void recordLatency(long nanos) {
+            latencies.set((int) (recorded.getAndIncrement() % SAMPLES), nanos);
+        }
+
+        /**
+         * Returns one of the recorded latencies at random, so delays follow their distribution
+         *
+         * @return A latency in nanoseconds, 0 if none was recorded
+         */
+        long sampleLatency() {
+            long count = Math.min(recorded.get(), SAMPLES);
+            return count == 0 ? 0 : latencies.get(ThreadLocalRandom.current().nextInt((int) count));
+        }
+    }
+}
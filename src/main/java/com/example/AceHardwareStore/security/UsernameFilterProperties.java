@@ -0,0 +1,31 @@
+package com.example.AceHardwareStore.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the username filter consulted at login, bound from ace.username-filter.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.username-filter")
+public class UsernameFilterProperties {
+    /**
+     * Whether unknown usernames are rejected before the database is asked
+     */
+    private boolean enabled = true;
+
+    /**
+     * Share of unknown usernames the filter may let through to the database, used to size it
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * Time between reloads of each store's usernames. Writes to the users table are announced and
+     * reload the usernames right away; this periodic reload is the fallback.
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,361 @@
+package com.example.AceHardwareStore.security;
+
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.events.UserChangedEvent;
+import com.example.AceHardwareStore.events.UserRolesChangedEvent;
+import com.example.AceHardwareStore.events.UserStoreChangedEvent;
+import com.example.AceHardwareStore.metrics.MetricsSource;
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import eu.fraho.spring.securityJwt.base.config.TokenProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Access tokens whose signature has already been verified, keyed by the SHA-256 digest of the token so
+ * the tokens themselves are not kept. An entry is reused until the token expires or the maximum age
+ * passes, whichever comes first. Granting or removing a role, binding the user to another store, or
+ * deleting the user, drops every cached token of that user and refuses its tokens issued before the
+ * change, since they still carry the old roles or store; the user signs in again for a token with the
+ * new ones. A change is remembered for the token lifetime, after which every token issued before it
+ * has expired anyway. Logins are checked in the default store, so only user changes made there concern
+ * tokens, whatever store the tokens name.
+ * <p>
+ * Changes made on this instance apply at once. Those made on other instances are recorded in the
+ * token_revocation table by triggers and announced on the cache invalidation channel, upon which the
+ * recent revocations are read again; while the channel is down they arrive once it reconnects.
+ * Token issue times are whole seconds, so a token is refused if it was issued in a second before
+ * the change; one issued in the second of the change is accepted.
+ */
+@Component
+@EnableConfigurationProperties(TokenCacheProperties.class)
+public class VerifiedTokenCache implements MetricsSource, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final TokenCacheProperties properties;
+    private final StoreProperties storeProperties;
+    private final TokenProperties tokenProperties;
+    private final UserDao userDao;
+    private final NearCache nearCache;
+
+    /**
+     * Reads the revocations of other instances, off the near cache listener thread; null when disabled
+     */
+    private final ExecutorService reloader;
+
+    /**
+     * Whether a read of the revocations is queued and not started yet
+     */
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+
+    /**
+     * Verified tokens keyed by digest
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Change count of each user keyed by username, a cached token of an older count is stale
+     */
+    private final Map<String, Long> userEpochs = new ConcurrentHashMap<>();
+
+    /**
+     * Time in epoch milliseconds of the last role or store change or deletion of users keyed by username,
+     * tokens issued in a second before it are refused
+     */
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder clears = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    /**
+     * Creates a new VerifiedTokenCache
+     *
+     * @param properties The token cache configuration
+     * @param storeProperties The store configuration, naming the default store
+     * @param tokenProperties The access token configuration, giving the token lifetime
+     * @param userDao The user data access object the revocations are read from
+     * @param nearCache The near cache announcing revocations made on other instances
+     */
+    public VerifiedTokenCache(TokenCacheProperties properties, StoreProperties storeProperties,
+                              TokenProperties tokenProperties, UserDao userDao, NearCache nearCache) {
+        this.properties = properties;
+        this.storeProperties = storeProperties;
+        this.tokenProperties = tokenProperties;
+        this.userDao = userDao;
+        this.nearCache = nearCache;
+        if (properties.isEnabled()) {
+            this.reloader = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-revocation-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            nearCache.addChangeListener(UserDao.REVOCATION_TABLE, (storeId, fromVersion, toVersion) -> {
+                if (isDefaultStore(storeId)) {
+                    scheduleReload();
+                }
+            });
+        } else {
+            this.reloader = null;
+        }
+    }
+
+    /**
+     * Starts listening for the revocations of other instances once the application is up. The
+     * listener reads them as soon as it is connected.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void watchRevocations() {
+        if (reloader != null) {
+            nearCache.watch(storeProperties.getDefaultStore());
+        }
+    }
+
+    /**
+     * Returns the user of a token, verifying the token only if it is not cached
+     *
+     * @param token The access token
+     * @param verifier Verifies the token and reads its user
+     * @return The user, empty if the token is invalid or was issued before its user's roles changed or the user was deleted
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends JwtUser> Optional<T> parseUser(String token, Function<String, Optional<T>> verifier) {
+        if (!properties.isEnabled()) {
+            return verifier.apply(token);
+        }
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now && entry.epoch == epoch(entry.userKey)) {
+                hits.increment();
+                return Optional.of((T) entry.user);
+            }
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        Optional<T> user = verifier.apply(token);
+        if (user.isEmpty()) {
+            return user;
+        }
+        JWTClaimsSet claims;
+        try {
+            claims = SignedJWT.parse(token).getJWTClaimsSet();
+        } catch (ParseException e) {
+            // verified by the delegate, so this does not happen; serve it without caching
+            return user;
+        }
+        String userKey = user.get().getUsername();
+        long epoch = epoch(userKey);
+        Long revokedAt = revokedUsers.get(userKey);
+        if (revokedAt != null && (claims.getIssueTime() == null || issuedBefore(claims.getIssueTime(), revokedAt))) {
+            refused.increment();
+            return Optional.empty();
+        }
+        long expiresAt = now + properties.getMaximumAge().toMillis();
+        Date expiration = claims.getExpirationTime();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        entries.put(key, new Entry(user.get(), userKey, epoch, expiresAt));
+        if (entries.size() > properties.getMaximumEntries()) {
+            entries.values().removeIf(cached -> cached.expiresAt <= now);
+            if (entries.size() > properties.getMaximumEntries()) {
+                entries.clear();
+                clears.increment();
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Drops the cached tokens of a created, updated or deleted user, and refuses the earlier tokens of a deleted one
+     *
+     * @param event The user change
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!isDefaultStore(event.getStoreId())) {
+            return;
+        }
+        String userKey = event.getUsername();
+        if (event.getUser() == null) {
+            revoke(userKey);
+        }
+        invalidate(userKey);
+    }
+
+    /**
+     * Drops the cached tokens of a user whose roles changed and refuses its earlier tokens
+     *
+     * @param event The role change
+     */
+    @EventListener
+    public void onUserRolesChanged(UserRolesChangedEvent event) {
+        if (isDefaultStore(event.getStoreId())) {
+            revoke(event.getUsername());
+            invalidate(event.getUsername());
+        }
+    }
+
+    /**
+     * Drops the cached tokens of a user bound to another store and refuses its earlier tokens
+     *
+     * @param event The store change
+     */
+    @EventListener
+    public void onUserStoreChanged(UserStoreChangedEvent event) {
+        if (isDefaultStore(event.getStoreId())) {
+            revoke(event.getUsername());
+            invalidate(event.getUsername());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "tokenCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("entries", entries.size());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        metrics.put("invalidations", invalidations.sum());
+        metrics.put("revokedUsers", revokedUsers.size());
+        metrics.put("refusedRevoked", refused.sum());
+        metrics.put("clears", clears.sum());
+        metrics.put("revocationReloads", reloads.sum());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Tells whether a token was issued in a second before a revocation. Issue times are whole seconds,
+     * so a token of the same second cannot be told apart from one issued after the change and is kept.
+     *
+     * @param issueTime The issue time of the token
+     * @param revokedAt The time of the revocation in epoch milliseconds
+     * @return true if the token is refused
+     */
+    static boolean issuedBefore(Date issueTime, long revokedAt) {
+        return issueTime.getTime() / 1000 < revokedAt / 1000;
+    }
+
+    private void scheduleReload() {
+        if (reloadPending.compareAndSet(false, true)) {
+            reloader.execute(() -> {
+                reloadPending.set(false);
+                try {
+                    reloadRevocations();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to read the token revocations", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the revocations of the token lifetime from the default store and applies the ones not seen yet
+     */
+    void reloadRevocations() {
+        long since = System.currentTimeMillis() - tokenProperties.getExpiration().toMillis();
+        Map<String, Instant> revocations = StoreContext.callInStore(null,
+                () -> userDao.getTokenRevocations(Instant.ofEpochMilli(since)));
+        revocations.forEach((username, revokedAt) -> {
+            long millis = revokedAt.toEpochMilli();
+            Long known = revokedUsers.get(username);
+            if (known == null || known < millis) {
+                revokedUsers.merge(username, millis, Math::max);
+                invalidate(username);
+            }
+        });
+        revokedUsers.values().removeIf(revokedAt -> revokedAt < since);
+        reloads.increment();
+    }
+
+    /**
+     * Refuses the tokens of a user issued until now, and forgets changes older than the token lifetime
+     *
+     * @param userKey The username of the user
+     */
+    private void revoke(String userKey) {
+        long now = System.currentTimeMillis();
+        revokedUsers.put(userKey, now);
+        long expired = now - tokenProperties.getExpiration().toMillis();
+        revokedUsers.values().removeIf(revokedAt -> revokedAt < expired);
+    }
+
+    private void invalidate(String userKey) {
+        userEpochs.merge(userKey, 1L, Long::sum);
+        invalidations.increment();
+    }
+
+    private long epoch(String userKey) {
+        return userEpochs.getOrDefault(userKey, 0L);
+    }
+
+    private boolean isDefaultStore(String storeId) {
+        return storeId == null || storeId.equals(storeProperties.getDefaultStore());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A verified token
+     *
+     * @param user The user read from the token
+     * @param userKey The username of the user
+     * @param epoch The change count of the user when the token was verified
+     * @param expiresAt When the entry stops being used, in epoch milliseconds
+     */
+    private record Entry(JwtUser user, String userKey, long epoch, long expiresAt) {
+    }
+}
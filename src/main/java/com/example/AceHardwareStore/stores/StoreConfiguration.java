@@ -0,0 +1,72 @@
+package com.example.AceHardwareStore.stores;
+
+import com.example.AceHardwareStore.bulkhead.BulkheadProperties;
+import com.example.AceHardwareStore.degraded.CircuitBreaker;
+import com.zaxxer.hikari.HikariDataSource;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Wires the per-store data source routing
+ */
+@Configuration
+@EnableConfigurationProperties(StoreProperties.class)
+public class StoreConfiguration {
+    /**
+     * Order of the store routing filter, right after the Spring Security filter chain
+     */
+    private static final int STORE_FILTER_ORDER = 0;
+
+    /**
+     * Creates the pool of the default store from spring.datasource.*
+     *
+     * @param dataSourceProperties The spring.datasource settings
+     * @return The pool of the default store
+     */
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource defaultStoreDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates the data source used by every DAO
+     *
+     * @param dataSourceProperties The spring.datasource settings
+     * @param storeProperties The store configuration
+     * @param bulkheadProperties The bulkhead configuration
+     * @param circuitBreaker The circuit breaker tracking which stores are unreachable
+     * @return The routing data source
+     */
+    @Bean
+    @Primary
+    public StoreRoutingDataSource dataSource(DataSourceProperties dataSourceProperties, StoreProperties storeProperties,
+                                             BulkheadProperties bulkheadProperties, CircuitBreaker circuitBreaker) {
+        return new StoreRoutingDataSource(defaultStoreDataSource(dataSourceProperties), storeProperties,
+                dataSourceProperties, bulkheadProperties, circuitBreaker);
+    }
+
+    /**
+     * Registers the filter that binds each request to its store
+     *
+     * @param dataSource The routing data source
+     * @param storeProperties The store configuration
+     * @param jwtTokenService The service used to read the access token
+     * @return The filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<StoreRoutingFilter> storeRoutingFilter(StoreRoutingDataSource dataSource,
+                                                                         StoreProperties storeProperties,
+                                                                         JwtTokenService jwtTokenService) {
+        FilterRegistrationBean<StoreRoutingFilter> registration =
+                new FilterRegistrationBean<>(new StoreRoutingFilter(dataSource, storeProperties, jwtTokenService));
+        registration.setOrder(STORE_FILTER_ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.AceHardwareStore.stores;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the id of the store the current thread is working for.
+ * The store routing data source reads it to pick the database to connect to.
+ */
+public final class StoreContext {
+    /**
+     * Store id bound to the current thread
+     */
+    private static final ThreadLocal<String> CURRENT_STORE = new ThreadLocal<>();
+
+    private StoreContext() {
+    }
+
+    /**
+     * Returns the store id bound to the current thread
+     *
+     * @return The store id, or null if the default store should be used
+     */
+    public static String current() {
+        return CURRENT_STORE.get();
+    }
+
+    /**
+     * Binds a store id to the current thread
+     *
+     * @param storeId The store id, or null for the default store
+     */
+    public static void set(String storeId) {
+        if (storeId == null) {
+            CURRENT_STORE.remove();
+        } else {
+            CURRENT_STORE.set(storeId);
+        }
+    }
+
+    /**
+     * Removes the store id from the current thread
+     */
+    public static void clear() {
+        CURRENT_STORE.remove();
+    }
+
+    /**
+     * Runs an action against the given store and restores the previous store afterwards
+     *
+     * @param storeId The store id to run against
+     * @param action The action to run
+     * @return The result of the action
+     */
+    public static <T> T callInStore(String storeId, Supplier<T> action) {
+        String previous = current();
+        set(storeId);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.AceHardwareStore.stores;
+
+import com.example.AceHardwareStore.bulkhead.BulkheadContext;
+import com.example.AceHardwareStore.bulkhead.EndpointClass;
+import com.example.AceHardwareStore.deadline.RequestDeadline;
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.example.AceHardwareStore.exceptions.DeadlineExceededException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the same query against every store in parallel and merges the results
+ */
+@Component
+public class StoreFanOut implements DisposableBean {
+    /**
+     * Routing data source, used to list the stores
+     */
+    private final StoreRoutingDataSource dataSource;
+
+    /**
+     * Threads that run the per-store queries
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new StoreFanOut
+     *
+     * @param dataSource The routing data source
+     * @param storeProperties The store configuration
+     */
+    public StoreFanOut(StoreRoutingDataSource dataSource, StoreProperties storeProperties) {
+        this.dataSource = dataSource;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, storeProperties.getFanOutParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "store-fan-out-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a query against every store and returns the results keyed by store id
+     *
+     * @param query The query to run, called once per store with that store and the caller's deadline and
+     *              endpoint class bound to the thread, so it uses the caller's bulkhead pool
+     * @return The results of every store, in store order
+     * @throws DaoException If the query fails for any store
+     * @throws DeadlineExceededException If the caller's deadline passes while a store is queried
+     */
+    public <T> Map<String, List<T>> queryAllStores(Supplier<List<T>> query) {
+        Long deadline = RequestDeadline.current();
+        EndpointClass endpointClass = BulkheadContext.current();
+        Map<String, CompletableFuture<List<T>>> futures = new LinkedHashMap<>();
+        for (String storeId : dataSource.getStoreIds()) {
+            futures.put(storeId, CompletableFuture.supplyAsync(() -> {
+                RequestDeadline.set(deadline);
+                BulkheadContext.set(endpointClass);
+                try {
+                    return StoreContext.callInStore(storeId, query);
+                } finally {
+                    BulkheadContext.clear();
+                    RequestDeadline.clear();
+                }
+            }, executor));
+        }
+        Map<String, List<T>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<List<T>>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof DeadlineExceededException deadlineExceeded) {
+                    throw deadlineExceeded;
+                }
+                throw new DaoException("Query failed for store " + entry.getKey(), e);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.AceHardwareStore.stores;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+
+/**
+ * User whose access tokens name the store the user is bound to, read back by StoreRoutingFilter
+ */
+public class StoreJwtUser extends JwtUser {
+    /**
+     * JWT claim naming the store
+     */
+    private final String claim;
+
+    /**
+     * Store of the user, null for the default store
+     */
+    private final String storeId;
+
+    /**
+     * Creates a new StoreJwtUser
+     *
+     * @param claim The JWT claim naming the store
+     * @param storeId The store of the user, null for the default store
+     */
+    public StoreJwtUser(String claim, String storeId) {
+        this.claim = claim;
+        this.storeId = storeId;
+    }
+
+    /**
+     * Returns the store of the user
+     *
+     * @return The store id, null for the default store
+     */
+    public String getStoreId() {
+        return storeId;
+    }
+
+    @Override
+    public JWTClaimsSet.Builder toClaims() {
+        JWTClaimsSet.Builder claims = super.toClaims();
+        if (storeId != null) {
+            claims.claim(claim, storeId);
+        }
+        return claims;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.AceHardwareStore.stores;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the per-store databases, bound from ace.stores.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ace.stores")
+public class StoreProperties {
+    /**
+     * Id of the store served by spring.datasource.*
+     */
+    private String defaultStore = "main";
+
+    /**
+     * Request header naming the store when the token has no store claim, only accepted from admins
+     */
+    private String header = "X-Store-Id";
+
+    /**
+     * JWT claim naming the store, added at login for users bound to a store
+     */
+    private String claim = "store";
+
+    /**
+     * Maximum number of connections in each lazily created store pool
+     */
+    private int maximumPoolSize = 10;
+
+    /**
+     * Maximum number of stores queried at the same time by chain-wide lists
+     */
+    private int fanOutParallelism = 8;
+
+    /**
+     * Additional stores keyed by store id
+     */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /**
+     * Connection settings of one store database
+     */
+    @Getter
+    @Setter
+    public static class Shard {
+        /**
+         * JDBC url of the store database
+         */
+        private String url;
+        /**
+         * Database user, defaults to spring.datasource.username
+         */
+        private String username;
+        /**
+         * Database password, defaults to spring.datasource.password
+         */
+        private String password;
+    }
+}
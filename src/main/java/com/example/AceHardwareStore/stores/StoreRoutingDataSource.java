@@ -0,0 +1,233 @@
+package com.example.AceHardwareStore.stores;
+
+import com.example.AceHardwareStore.bulkhead.BulkheadContext;
+import com.example.AceHardwareStore.bulkhead.BulkheadProperties;
+import com.example.AceHardwareStore.bulkhead.EndpointClass;
+import com.example.AceHardwareStore.degraded.CircuitBreaker;
+import com.example.AceHardwareStore.exceptions.DaoException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data source that sends each connection request to the database of the store bound in {@link StoreContext}.
+ * Pools for stores other than the default one are only created the first time the store is used.
+ * Requests running in a bulkhead get connections from a separate pool per store and endpoint class,
+ * so one class of endpoint cannot hold every connection of a store. Connection attempts to a store
+ * whose circuit is open fail at once.
+ */
+public class StoreRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    /**
+     * Pool of the default store
+     */
+    private final DataSource defaultDataSource;
+
+    /**
+     * Store configuration
+     */
+    private final StoreProperties storeProperties;
+
+    /**
+     * Settings of the default data source, used for credentials the shards leave out
+     */
+    private final DataSourceProperties dataSourceProperties;
+
+    /**
+     * Lazily created pools keyed by store id
+     */
+    private final Map<String, HikariDataSource> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Bulkhead configuration, giving the pool size of each endpoint class
+     */
+    private final BulkheadProperties bulkheadProperties;
+
+    /**
+     * Lazily created pools of the endpoint classes keyed by class and store id
+     */
+    private final Map<EndpointClass, Map<String, HikariDataSource>> bulkheadPools = new ConcurrentHashMap<>();
+
+    /**
+     * Circuit breaker tracking which stores are unreachable
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates a new StoreRoutingDataSource
+     *
+     * @param defaultDataSource The pool of the default store
+     * @param storeProperties The store configuration
+     * @param dataSourceProperties The settings of the default data source
+     * @param bulkheadProperties The bulkhead configuration
+     * @param circuitBreaker The circuit breaker tracking which stores are unreachable
+     */
+    public StoreRoutingDataSource(DataSource defaultDataSource, StoreProperties storeProperties,
+                                  DataSourceProperties dataSourceProperties, BulkheadProperties bulkheadProperties,
+                                  CircuitBreaker circuitBreaker) {
+        this.defaultDataSource = defaultDataSource;
+        this.storeProperties = storeProperties;
+        this.dataSourceProperties = dataSourceProperties;
+        this.bulkheadProperties = bulkheadProperties;
+        this.circuitBreaker = circuitBreaker;
+        setTargetDataSources(Collections.emptyMap());
+        setDefaultTargetDataSource(defaultDataSource);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Returns the ids of every store this instance can route to, default store first
+     *
+     * @return The store ids
+     */
+    public Set<String> getStoreIds() {
+        Set<String> storeIds = new LinkedHashSet<>();
+        storeIds.add(storeProperties.getDefaultStore());
+        storeIds.addAll(storeProperties.getShards().keySet());
+        return storeIds;
+    }
+
+    /**
+     * Returns true if the store id is known
+     *
+     * @param storeId The store id
+     * @return Whether requests can be routed to the store
+     */
+    public boolean isKnownStore(String storeId) {
+        return storeProperties.getDefaultStore().equals(storeId) || storeProperties.getShards().containsKey(storeId);
+    }
+
+    /**
+     * Returns the pool of a store, creating it if this is the first use of the store
+     *
+     * @param storeId The store id, or null for the default store
+     * @return The pool of the store
+     * @throws DaoException If the store is unknown
+     */
+    public DataSource getDataSource(String storeId) {
+        if (storeId == null || storeId.equals(storeProperties.getDefaultStore())) {
+            return defaultDataSource;
+        }
+        StoreProperties.Shard shard = storeProperties.getShards().get(storeId);
+        if (shard == null) {
+            throw new DaoException("Unknown store " + storeId);
+        }
+        return pools.computeIfAbsent(storeId, id -> createPool("store-" + id, shard.getUrl(),
+                shard.getUsername(), shard.getPassword(), storeProperties.getMaximumPoolSize()));
+    }
+
+    /**
+     * Returns the pool a class of endpoint uses for a store, creating it on first use
+     *
+     * @param storeId The store id, or null for the default store
+     * @param endpointClass The endpoint class, or null for the shared pool of the store
+     * @return The pool of the class, or the shared pool of the store if the class has none
+     * @throws DaoException If the store is unknown
+     */
+    public DataSource getDataSource(String storeId, EndpointClass endpointClass) {
+        if (endpointClass == null || !bulkheadProperties.isEnabled()) {
+            return getDataSource(storeId);
+        }
+        int poolSize = bulkheadProperties.getLimit(endpointClass).getPoolSize();
+        if (poolSize <= 0) {
+            return getDataSource(storeId);
+        }
+        String id = storeId == null ? storeProperties.getDefaultStore() : storeId;
+        String url;
+        String username = null;
+        String password = null;
+        if (id.equals(storeProperties.getDefaultStore())) {
+            url = dataSourceProperties.determineUrl();
+        } else {
+            StoreProperties.Shard shard = storeProperties.getShards().get(id);
+            if (shard == null) {
+                throw new DaoException("Unknown store " + id);
+            }
+            url = shard.getUrl();
+            username = shard.getUsername();
+            password = shard.getPassword();
+        }
+        String poolUsername = username;
+        String poolPassword = password;
+        return bulkheadPools.computeIfAbsent(endpointClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(id, key -> createPool("store-" + key + "-" + endpointClass.name().toLowerCase(),
+                        url, poolUsername, poolPassword, poolSize));
+    }
+
+    /**
+     * Returns the pools created so far for an endpoint class
+     *
+     * @param endpointClass The endpoint class
+     * @return The pools keyed by store id
+     */
+    public Map<String, HikariDataSource> getBulkheadPools(EndpointClass endpointClass) {
+        return new LinkedHashMap<>(bulkheadPools.getOrDefault(endpointClass, Collections.emptyMap()));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return StoreContext.current();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String storeId = StoreContext.current() == null ? storeProperties.getDefaultStore() : StoreContext.current();
+        circuitBreaker.acquirePermission(storeId);
+        try {
+            Connection connection = super.getConnection();
+            circuitBreaker.onSuccess(storeId);
+            return connection;
+        } catch (SQLException e) {
+            circuitBreaker.onFailure(storeId, e);
+            throw e;
+        }
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        return getDataSource(StoreContext.current(), BulkheadContext.current());
+    }
+
+    /**
+     * Closes every store pool created by this data source
+     */
+    @Override
+    public void destroy() {
+        pools.values().forEach(HikariDataSource::close);
+        pools.clear();
+        bulkheadPools.values().forEach(classPools -> classPools.values().forEach(HikariDataSource::close));
+        bulkheadPools.clear();
+    }
+
+    /**
+     * Creates a connection pool
+     *
+     * @param poolName The name of the pool
+     * @param url The JDBC url of the store database
+     * @param username The database user, null for spring.datasource.username
+     * @param password The database password, null for spring.datasource.password
+     * @param maximumPoolSize The maximum number of connections
+     * @return The new pool
+     */
+    private HikariDataSource createPool(String poolName, String url, String username, String password, int maximumPoolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
+        config.setUsername(username != null ? username : dataSourceProperties.determineUsername());
+        config.setPassword(password != null ? password : dataSourceProperties.determinePassword());
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(1);
+        return new HikariDataSource(config);
+    }
+}
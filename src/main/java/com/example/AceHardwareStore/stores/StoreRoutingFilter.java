@@ -0,0 +1,123 @@
+package com.example.AceHardwareStore.stores;
+
+import com.nimbusds.jwt.SignedJWT;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Optional;
+
+/**
+ * Binds each request to a store, taken from the store claim of a verified token or from the store header.
+ * Tokens carry the claim when an admin has bound their user to a store through /users/{username}/store.
+ * Only admins may pick a store with the header; everyone else is bound to the store of their token,
+ * or to the default store, where logins are checked.
+ */
+public class StoreRoutingFilter extends OncePerRequestFilter {
+    /**
+     * Routing data source, used to validate store ids
+     */
+    private final StoreRoutingDataSource dataSource;
+
+    /**
+     * Store configuration
+     */
+    private final StoreProperties storeProperties;
+
+    /**
+     * Service used to read the access token of the request
+     */
+    private final JwtTokenService jwtTokenService;
+
+    /**
+     * Creates a new StoreRoutingFilter
+     *
+     * @param dataSource The routing data source
+     * @param storeProperties The store configuration
+     * @param jwtTokenService The service used to read the access token
+     */
+    public StoreRoutingFilter(StoreRoutingDataSource dataSource, StoreProperties storeProperties,
+                              JwtTokenService jwtTokenService) {
+        this.dataSource = dataSource;
+        this.storeProperties = storeProperties;
+        this.jwtTokenService = jwtTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String storeId = storeClaim(request, authentication);
+        if (storeId == null) {
+            String header = request.getHeader(storeProperties.getHeader());
+            if (header != null && !header.isBlank()) {
+                if (!isAdmin(authentication)) {
+                    response.sendError(HttpStatus.FORBIDDEN.value(), storeProperties.getHeader() + " is only accepted from admins");
+                    return;
+                }
+                storeId = header.trim();
+            }
+        }
+        if (storeId != null && !dataSource.isKnownStore(storeId)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unknown store " + storeId);
+            return;
+        }
+        StoreContext.set(storeId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StoreContext.clear();
+        }
+    }
+
+    /**
+     * Returns the store claim of the authenticated token of the request
+     *
+     * @param request The request
+     * @param authentication The authentication of the request, if any
+     * @return The store id, or null if the request has no token or the token no claim
+     */
+    private String storeClaim(HttpServletRequest request, Authentication authentication) {
+        if (authentication != null && authentication.isAuthenticated()) {
+            Optional<String> token = jwtTokenService.getAccessToken(request);
+            if (token.isPresent()) {
+                try {
+                    String claim = SignedJWT.parse(token.get()).getJWTClaimsSet().getStringClaim(storeProperties.getClaim());
+                    if (claim != null) {
+                        return claim;
+                    }
+                } catch (ParseException e) {
+                    // the token was already verified by the security filter chain, fall back to the header
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the request was authenticated as an admin
+     *
+     * @param authentication The authentication of the request, if any
+     * @return Whether the caller holds the ADMIN authority
+     */
+    private static boolean isAdmin(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if ("ADMIN".equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
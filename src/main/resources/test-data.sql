@@ -1,6 +1,6 @@
 BEGIN TRANSACTION;
 
-DROP TABLE if EXISTS department, employee, vendor CASCADE;
+DROP TABLE if EXISTS department, employee, vendor, cache_version CASCADE;
 
 CREATE TABLE department (
     department_id serial PRIMARY KEY,
@@ -14,7 +14,9 @@ CREATE TABLE employee (
     leave_date DATE,
     phone_number VARCHAR(20) NOT NULL,
     hourly_rate DECIMAL NOT NULL,
-    department_id INTEGER REFERENCES department(department_id)
+    department_id INTEGER REFERENCES department(department_id),
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT employee_minimum_hourly_rate CHECK (hourly_rate >= 13.00)
 );
 
 CREATE TABLE vendor (
@@ -23,9 +25,34 @@ CREATE TABLE vendor (
     contact_name VARCHAR(255) NOT NULL,
     address VARCHAR(255) NOT NULL,
     phone_number VARCHAR(20) NOT NULL,
-    department_id INTEGER REFERENCES department(department_id)
+    department_id INTEGER REFERENCES department(department_id),
+    version BIGINT NOT NULL DEFAULT 0
 );
 
+CREATE TABLE cache_version (
+    table_name VARCHAR(63) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO cache_version (table_name) VALUES ('department'), ('vendor');
+
+-- Bumps the table version and tells every app instance to drop its cached lookups once the write commits
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    new_version BIGINT;
+BEGIN
+    UPDATE cache_version SET version = version + 1 WHERE table_name = TG_TABLE_NAME RETURNING version INTO new_version;
+    PERFORM pg_notify('cache_invalidation', TG_TABLE_NAME || ':' || new_version);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER department_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON department
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
+CREATE TRIGGER vendor_cache_invalidation AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON vendor
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_cache_invalidation();
+
 INSERT INTO department (department_name) VALUES ('Management');
 INSERT INTO department (department_name) VALUES ('Sales');
 INSERT INTO department (department_name) VALUES ('Customer Service');
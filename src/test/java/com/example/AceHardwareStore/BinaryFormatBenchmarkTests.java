@@ -0,0 +1,125 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.Vendor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares JSON with the Smile and CBOR formats offered to internal clients: payload size and the CPU
+ * time to serialize and parse a list of employees and a list of vendors. The measurements are published
+ * to the test report; tagged perf, so it only runs with -Pperf.
+ */
+@Tag("perf")
+class BinaryFormatBenchmarkTests {
+
+	private static final int ROWS = 10_000;
+	private static final int WARMUP = 20;
+	private static final int ROUNDS = 50;
+
+	private static final TypeReference<List<Employee>> EMPLOYEES = new TypeReference<>() {
+	};
+	private static final TypeReference<List<Vendor>> VENDORS = new TypeReference<>() {
+	};
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	@Test
+	void binaryFormatsAreSmallerThanJson(TestReporter reporter) throws Exception {
+		Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+		mappers.put("json", Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+		mappers.put("smile", Jackson2ObjectMapperBuilder.smile().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+		mappers.put("cbor", Jackson2ObjectMapperBuilder.cbor().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+
+		SplittableRandom random = new SplittableRandom(42);
+		List<Employee> employees = employees(random);
+		List<Vendor> vendors = vendors(random);
+
+		StringBuilder report = new StringBuilder(ROWS + " rows        bytes   serialize us   parse us");
+		Map<String, Integer> employeeBytes = new LinkedHashMap<>();
+		Map<String, Integer> vendorBytes = new LinkedHashMap<>();
+		for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+			employeeBytes.put(mapper.getKey(), measure("employees/" + mapper.getKey(), mapper.getValue(), employees, EMPLOYEES, report));
+			vendorBytes.put(mapper.getKey(), measure("vendors/" + mapper.getKey(), mapper.getValue(), vendors, VENDORS, report));
+		}
+		reporter.publishEntry("binaryFormats", report.toString());
+		for (String format : List.of("smile", "cbor")) {
+			assertTrue(employeeBytes.get(format) < employeeBytes.get("json"),
+					() -> format + " employees should be smaller than JSON\n" + report);
+			assertTrue(vendorBytes.get(format) < vendorBytes.get("json"),
+					() -> format + " vendors should be smaller than JSON\n" + report);
+		}
+	}
+
+	/**
+	 * Adds the size of the serialized list and the median CPU time to serialize and parse it to the report
+	 *
+	 * @return The size in bytes
+	 */
+	private <T> int measure(String name, ObjectMapper mapper, List<T> rows, TypeReference<List<T>> type,
+							StringBuilder report) throws Exception {
+		byte[] payload = mapper.writeValueAsBytes(rows);
+		assertEquals(rows.size(), mapper.readValue(payload, type).size());
+		for (int i = 0; i < WARMUP; i++) {
+			mapper.readValue(mapper.writeValueAsBytes(rows), type);
+		}
+		long[] serialize = new long[ROUNDS];
+		long[] parse = new long[ROUNDS];
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = threads.getCurrentThreadCpuTime();
+			payload = mapper.writeValueAsBytes(rows);
+			long serialized = threads.getCurrentThreadCpuTime();
+			mapper.readValue(payload, type);
+			serialize[i] = serialized - start;
+			parse[i] = threads.getCurrentThreadCpuTime() - serialized;
+		}
+		report.append(String.format("%n  %-16s %10d %14.0f %10.0f", name, payload.length, median(serialize) / 1e3, median(parse) / 1e3));
+		return payload.length;
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static List<Employee> employees(SplittableRandom random) {
+		List<Employee> employees = new ArrayList<>(ROWS);
+		for (int i = 1; i <= ROWS; i++) {
+			LocalDate hired = LocalDate.of(1990, 1, 1).plusDays(random.nextInt(12_000));
+			employees.add(new Employee(i, "Employee " + i, hired, random.nextInt(5) == 0 ? hired.plusDays(random.nextInt(2_000)) : null,
+					"847" + (1_000_000 + random.nextInt(9_000_000)), BigDecimal.valueOf(1_500 + random.nextInt(3_000), 2),
+					1 + random.nextInt(12), random.nextInt(10)));
+		}
+		return employees;
+	}
+
+	private static List<Vendor> vendors(SplittableRandom random) {
+		List<Vendor> vendors = new ArrayList<>(ROWS);
+		for (int i = 1; i <= ROWS; i++) {
+			vendors.add(new Vendor(i, "Vendor " + i + " Supply", "Contact " + random.nextInt(ROWS),
+					(100 + random.nextInt(9_900)) + " Milwaukee Ave., Wheeling, IL 60090",
+					"847" + (1_000_000 + random.nextInt(9_000_000)), 1 + random.nextInt(12), random.nextInt(10)));
+		}
+		return vendors;
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.bulkhead.BulkheadInterceptor;
+import com.example.AceHardwareStore.bulkhead.Bulkheads;
+import com.example.AceHardwareStore.controllers.DepartmentController;
+import com.example.AceHardwareStore.controllers.VendorController;
+import com.example.AceHardwareStore.exceptions.OverloadedException;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saturates the public bulkhead, both its request slots and its connection pool, through the bulkhead
+ * interceptor and real controller methods, and checks that reader and admin requests still get a slot
+ * and a connection without waiting.
+ */
+@SpringBootTest(properties = {
+		"ace.bulkheads.classes.public.max-concurrent=2",
+		"ace.bulkheads.classes.public.max-wait=0ms",
+		"ace.bulkheads.classes.public.pool-size=2",
+		"ace.bulkheads.classes.reader.max-concurrent=2",
+		"ace.bulkheads.classes.reader.pool-size=2",
+		"ace.bulkheads.classes.admin.max-concurrent=2",
+		"ace.bulkheads.classes.admin.pool-size=2",
+		// the default test context owns the punch log directory
+		"ace.punch.enabled=false"
+})
+class BulkheadSaturationTests {
+
+	@Autowired
+	private Bulkheads bulkheads;
+
+	@Autowired
+	private StoreRoutingDataSource dataSource;
+
+	@Autowired
+	private VendorController vendorController;
+
+	@Autowired
+	private DepartmentController departmentController;
+
+	@Test
+	void saturatedPublicClassLeavesOtherClassesAlone() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor(bulkheads);
+		HandlerMethod publicHandler = new HandlerMethod(vendorController, VendorController.class.getMethod("listVendors"));
+		HandlerMethod readerHandler = new HandlerMethod(departmentController, DepartmentController.class.getMethod("listDepartment"));
+		HandlerMethod adminHandler = new HandlerMethod(departmentController,
+				DepartmentController.class.getMethod("deleteDepartment", int.class));
+
+		CountDownLatch holding = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService floods = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 2; i++) {
+				floods.submit(() -> {
+					MockHttpServletRequest request = new MockHttpServletRequest("GET", "/vendor");
+					MockHttpServletResponse response = new MockHttpServletResponse();
+					interceptor.preHandle(request, response, publicHandler);
+					try (Connection connection = dataSource.getConnection()) {
+						holding.countDown();
+						release.await();
+					} finally {
+						interceptor.afterCompletion(request, response, publicHandler, null);
+					}
+					return null;
+				});
+			}
+			assertTrue(holding.await(30, TimeUnit.SECONDS), "the public class should fill up");
+
+			assertThrows(OverloadedException.class, () -> interceptor.preHandle(
+					new MockHttpServletRequest("GET", "/vendor"), new MockHttpServletResponse(), publicHandler));
+			Map<String, Object> metrics = bulkheads.getMetrics();
+			assertEquals(true, metrics.get("public.saturated"));
+			assertEquals(2, metrics.get("public.main.activeConnections"));
+
+			for (HandlerMethod other : List.of(readerHandler, adminHandler)) {
+				MockHttpServletRequest request = new MockHttpServletRequest("GET", "/department");
+				MockHttpServletResponse response = new MockHttpServletResponse();
+				long start = System.nanoTime();
+				interceptor.preHandle(request, response, other);
+				try (Connection connection = dataSource.getConnection()) {
+					assertTrue(connection.isValid(1));
+				} finally {
+					interceptor.afterCompletion(request, response, other, null);
+				}
+				assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1),
+						other.getMethod().getName() + " should not wait for the public class");
+			}
+			assertEquals(false, bulkheads.getMetrics().get("reader.saturated"));
+			assertEquals(false, bulkheads.getMetrics().get("admin.saturated"));
+		} finally {
+			release.countDown();
+			floods.shutdown();
+			floods.awaitTermination(30, TimeUnit.SECONDS);
+		}
+		assertTrue((long) bulkheads.getMetrics().get("public.rejected") >= 1);
+		assertEquals(0, bulkheads.getMetrics().get("public.active"));
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.controllers.VendorController;
+import com.example.AceHardwareStore.degraded.CircuitBreaker;
+import com.example.AceHardwareStore.models.Vendor;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cuts the default store off its database by breaking the pool's credentials, and checks that vendor
+ * reads keep answering from their last known good copy with the staleness header, that the circuit
+ * opens so later reads fail fast, and that reads are fresh again once the database is back.
+ */
+@SpringBootTest(properties = {
+		"ace.cache.enabled=false",
+		"spring.datasource.hikari.connection-timeout=500",
+		"ace.degraded.failure-threshold=2",
+		"ace.degraded.initial-backoff=100ms",
+		"ace.degraded.maximum-backoff=500ms",
+		// the default test context owns the punch log directory
+		"ace.punch.enabled=false"
+})
+class DegradedModeFaultInjectionTests {
+
+	private static final String STALE_HEADER = "X-Stale-Seconds";
+
+	@Autowired
+	private VendorController vendorController;
+
+	@Autowired
+	private StoreRoutingDataSource dataSource;
+
+	@Autowired
+	private StoreProperties storeProperties;
+
+	@Autowired
+	private CircuitBreaker circuitBreaker;
+
+	@Test
+	void vendorReadsServeLastKnownGoodWhileDatabaseIsDown() throws Exception {
+		ResponseEntity<List<Vendor>> healthy = vendorController.listVendors();
+		assertNull(healthy.getHeaders().getFirst(STALE_HEADER));
+		String storeId = storeProperties.getDefaultStore();
+
+		HikariDataSource pool = (HikariDataSource) dataSource.getDataSource(storeId);
+		String password = pool.getPassword();
+		pool.getHikariConfigMXBean().setPassword("fault-injected");
+		pool.getHikariPoolMXBean().softEvictConnections();
+		try {
+			for (int i = 0; i < 3; i++) {
+				ResponseEntity<List<Vendor>> degraded = vendorController.listVendors();
+				assertNotNull(degraded.getHeaders().getFirst(STALE_HEADER), "a read during the outage should be marked stale");
+				assertEquals(healthy.getBody().size(), degraded.getBody().size());
+			}
+			assertTrue(circuitBreaker.isOpen(storeId), "repeated connection failures should open the circuit");
+
+			long start = System.nanoTime();
+			vendorController.listVendors();
+			long elapsed = System.nanoTime() - start;
+			assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(100),
+					() -> "an open circuit should not wait for the pool, took " + elapsed / 1_000_000 + " ms");
+		} finally {
+			pool.getHikariConfigMXBean().setPassword(password);
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (circuitBreaker.isOpen(storeId) && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertFalse(circuitBreaker.isOpen(storeId), "a probe should close the circuit once the database is back");
+		assertNull(vendorController.listVendors().getHeaders().getFirst(STALE_HEADER));
+	}
+}
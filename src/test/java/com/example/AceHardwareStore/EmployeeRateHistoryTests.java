@@ -0,0 +1,121 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.DepartmentDao;
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.models.Department;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.HourlyRateAsOf;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the rows the rate history trigger writes, that the history refuses changes, and the as-of
+ * lookups of one employee and of a department.
+ */
+@SpringBootTest
+class EmployeeRateHistoryTests {
+
+	private static final LocalDate HIRED = LocalDate.of(2020, 3, 2);
+
+	@Autowired
+	private EmployeeDao employeeDao;
+
+	@Autowired
+	private DepartmentDao departmentDao;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+	private Department department;
+	private Employee first;
+	private Employee second;
+
+	@BeforeEach
+	void addEmployees() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		department = departmentDao.addDepartment(new Department(0, "Rate history " + System.nanoTime()));
+		first = employeeDao.addEmployee(new Employee(0, "Rate History", HIRED, "5555550100",
+				new BigDecimal("15.00"), department.getId()));
+		second = employeeDao.addEmployee(new Employee(0, "Rate History Two", HIRED.plusYears(1), "5555550101",
+				new BigDecimal("14.00"), department.getId()));
+	}
+
+	@AfterEach
+	void deleteEmployees() {
+		departmentDao.deleteDepartment(department.getId());
+	}
+
+	@Test
+	void hireRateIsValidFromTheHireDate() {
+		assertNull(employeeDao.getHourlyRateAsOf(first.getEmployeeId(), startOf(HIRED.minusDays(1))));
+		HourlyRateAsOf rate = employeeDao.getHourlyRateAsOf(first.getEmployeeId(), startOf(HIRED.plusDays(1)));
+		assertEquals(new BigDecimal("15.00"), rate.getHourlyRate());
+		assertEquals(1, historyRows(first.getEmployeeId()));
+	}
+
+	@Test
+	void rateChangeIsValidFromTheChangeAndUnchangedRatesAddNoRow() {
+		employeeDao.updateEmployeeHourlyRateById(first.getEmployeeId(), new BigDecimal("16.00"));
+		employeeDao.updateEmployeePhoneNumberById(first.getEmployeeId(), "5555550199");
+		employeeDao.updateEmployeeHourlyRateById(first.getEmployeeId(), new BigDecimal("16.00"));
+		assertEquals(2, historyRows(first.getEmployeeId()));
+
+		HourlyRateAsOf current = employeeDao.getHourlyRateAsOf(first.getEmployeeId(), Instant.now().plusSeconds(1));
+		assertEquals(new BigDecimal("16.00"), current.getHourlyRate());
+		HourlyRateAsOf previous = employeeDao.getHourlyRateAsOf(first.getEmployeeId(), current.getValidFrom().minusNanos(1_000));
+		assertEquals(new BigDecimal("15.00"), previous.getHourlyRate());
+	}
+
+	@Test
+	void departmentLookupLeavesOutEmployeesHiredLater() {
+		List<HourlyRateAsOf> beforeSecondHire = employeeDao.getDepartmentHourlyRatesAsOf(department.getId(),
+				startOf(HIRED.plusMonths(6)));
+		assertEquals(1, beforeSecondHire.size());
+		assertEquals(first.getEmployeeId(), beforeSecondHire.get(0).getEmployeeId());
+
+		List<HourlyRateAsOf> now = employeeDao.getDepartmentHourlyRatesAsOf(department.getId(), Instant.now().plusSeconds(1));
+		assertEquals(List.of(first.getEmployeeId(), second.getEmployeeId()),
+				now.stream().map(HourlyRateAsOf::getEmployeeId).toList());
+		assertEquals(new BigDecimal("14.00"), now.get(1).getHourlyRate());
+	}
+
+	@Test
+	void historyIsAppendOnlyAndOutlivesTheEmployee() {
+		int employeeId = first.getEmployeeId();
+		assertThrows(DataAccessException.class,
+				() -> jdbcTemplate.update("UPDATE employee_rate_history SET hourly_rate = 99 WHERE employee_id = ?", employeeId));
+		assertThrows(DataAccessException.class,
+				() -> jdbcTemplate.update("DELETE FROM employee_rate_history WHERE employee_id = ?", employeeId));
+		assertThrows(DataAccessException.class, () -> jdbcTemplate.execute("TRUNCATE employee_rate_history"));
+
+		employeeDao.deleteEmployeeById(employeeId);
+		assertEquals(new BigDecimal("15.00"),
+				employeeDao.getHourlyRateAsOf(employeeId, startOf(HIRED.plusDays(1))).getHourlyRate());
+	}
+
+	private int historyRows(int employeeId) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM employee_rate_history WHERE employee_id = ?",
+				Integer.class, employeeId);
+	}
+
+	private static Instant startOf(LocalDate day) {
+		return day.atStartOfDay().toInstant(ZoneOffset.UTC);
+	}
+}
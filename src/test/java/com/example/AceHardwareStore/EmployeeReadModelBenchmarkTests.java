@@ -0,0 +1,101 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the columnar employee read model with the JDBC path it replaces: p99 latency of the list,
+ * by-id and by-department reads, and the heap each representation holds for the whole table. The
+ * measurements are published to the test report; tagged perf, so it only runs with -Pperf. Run against
+ * a large table, e.g. one loaded by the synthetic data generator, for meaningful numbers.
+ */
+@Tag("perf")
+// the default test context owns the punch log directory
+@SpringBootTest(properties = {"ace.read-model.enabled=true", "ace.punch.enabled=false"})
+class EmployeeReadModelBenchmarkTests {
+
+	private static final int WARMUP = 200;
+	private static final int SAMPLES = 1_000;
+
+	@Autowired
+	private EmployeeDao employeeDao;
+
+	@Autowired
+	private EmployeeReadModel employeeReadModel;
+
+	@Test
+	void readModelOutrunsJdbc(TestReporter reporter) {
+		List<Employee> fromDatabase = employeeDao.getAllEmployees();
+		assertFalse(fromDatabase.isEmpty(), "the benchmark needs employees");
+		int[] ids = fromDatabase.stream().mapToInt(Employee::getEmployeeId).toArray();
+		int departmentId = fromDatabase.get(0).getDepartmentId();
+
+		long jdbcById = p99Nanos(i -> employeeDao.getEmployeeById(ids[i % ids.length]));
+		long memoryById = p99Nanos(i -> employeeReadModel.getEmployeeById(ids[i % ids.length]));
+		long jdbcByDepartment = p99Nanos(i -> employeeDao.getEmployeesByDepartmentId(departmentId));
+		long memoryByDepartment = p99Nanos(i -> employeeReadModel.getEmployeesByDepartmentId(departmentId));
+		long jdbcAll = p99Nanos(i -> employeeDao.getAllEmployees());
+		long memoryAll = p99Nanos(i -> employeeReadModel.getAllEmployees());
+
+		long jdbcBytes = retainedBytes(() -> employeeDao.getAllEmployees());
+		long memoryBytes = employeeReadModel.estimatedBytes(null);
+
+		String report = String.format("%d employees, p99 JDBC vs read model", ids.length)
+				+ String.format("%n  by id:         %8.3f ms  %8.3f ms", jdbcById / 1e6, memoryById / 1e6)
+				+ String.format("%n  by department: %8.3f ms  %8.3f ms", jdbcByDepartment / 1e6, memoryByDepartment / 1e6)
+				+ String.format("%n  all:           %8.3f ms  %8.3f ms", jdbcAll / 1e6, memoryAll / 1e6)
+				+ String.format("%n  heap for the table: %d KiB as Employee objects, %d KiB as columns",
+				jdbcBytes / 1024, memoryBytes / 1024);
+		reporter.publishEntry("employeeReadModel", report);
+		assertTrue(memoryById < jdbcById, () -> "a lookup in memory should beat a round trip\n" + report);
+	}
+
+	private static long p99Nanos(IntFunction<Object> read) {
+		for (int i = 0; i < WARMUP; i++) {
+			read.apply(i);
+		}
+		long[] latencies = new long[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			long start = System.nanoTime();
+			read.apply(i);
+			latencies[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(latencies);
+		return latencies[(int) Math.ceil(SAMPLES * 0.99) - 1];
+	}
+
+	/**
+	 * Measures the heap still reachable from a loaded value, by comparing used memory after
+	 * collections with and without it
+	 */
+	private static long retainedBytes(Supplier<Object> load) {
+		long before = usedAfterGc();
+		Object value = load.get();
+		long after = usedAfterGc();
+		assertNotNull(value);
+		return Math.max(0, after - before);
+	}
+
+	private static long usedAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.DepartmentDao;
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.models.Department;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the columnar employee read model answers like the JDBC path it replaces and follows
+ * local writes, including employees removed with their department.
+ */
+// the default test context owns the punch log directory
+@SpringBootTest(properties = {"ace.read-model.enabled=true", "ace.punch.enabled=false"})
+class EmployeeReadModelTests {
+
+	@Autowired
+	private EmployeeDao employeeDao;
+
+	@Autowired
+	private DepartmentDao departmentDao;
+
+	@Autowired
+	private EmployeeReadModel employeeReadModel;
+
+	@Test
+	void readModelMatchesJdbc() {
+		List<Employee> fromDatabase = employeeDao.getAllEmployees();
+		assertFalse(fromDatabase.isEmpty(), "the comparison needs employees");
+		assertSameEmployees(fromDatabase, employeeReadModel.getAllEmployees());
+
+		Employee first = fromDatabase.get(0);
+		assertSameEmployees(List.of(first), List.of(employeeReadModel.getEmployeeById(first.getEmployeeId())));
+		assertSameEmployees(employeeDao.getEmployeesByDepartmentId(first.getDepartmentId()),
+				employeeReadModel.getEmployeesByDepartmentId(first.getDepartmentId()));
+		assertTrue(employeeReadModel.estimatedBytes(null) > 0);
+	}
+
+	@Test
+	void readModelFollowsLocalWrites() {
+		Department department = departmentDao.addDepartment(new Department(0, "Read model " + System.nanoTime()));
+		Employee added = employeeDao.addEmployee(new Employee(0, "Read Model", LocalDate.now(), "5555550100",
+				new BigDecimal("15.00"), department.getId()));
+		assertEquals(added.getVersion(), employeeReadModel.getEmployeeById(added.getEmployeeId()).getVersion());
+
+		Employee updated = employeeDao.updateEmployeeHourlyRateById(added.getEmployeeId(), new BigDecimal("16.00"));
+		Employee read = employeeReadModel.getEmployeeById(added.getEmployeeId());
+		assertEquals(updated.getVersion(), read.getVersion());
+		assertEquals(0, new BigDecimal("16.00").compareTo(read.getHourlyRate()));
+
+		departmentDao.deleteDepartment(department.getId());
+		assertNull(employeeReadModel.getEmployeeById(added.getEmployeeId()));
+		assertTrue(employeeReadModel.getEmployeesByDepartmentId(department.getId()).isEmpty());
+	}
+
+	private static void assertSameEmployees(List<Employee> expected, List<Employee> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+			assertEquals(expected.get(i).getVersion(), actual.get(i).getVersion());
+		}
+	}
+}
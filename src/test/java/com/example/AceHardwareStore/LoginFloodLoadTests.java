@@ -0,0 +1,100 @@
+package com.example.AceHardwareStore;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Floods the login endpoint with bad credentials and checks that a read endpoint keeps its latency,
+ * because password checks are confined to the small hashing pool and the overflow is rejected with 503.
+ * Needs the local database; tagged perf, so it only runs with -Pperf.
+ */
+@Tag("perf")
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"ace.password-hashing.threads=2", "ace.password-hashing.queue-capacity=8",
+				// the default test context owns the punch log directory
+				"ace.punch.enabled=false"}
+)
+class LoginFloodLoadTests {
+
+	private static final int FLOOD_THREADS = 32;
+	private static final int SAMPLES = 200;
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void readsKeepTheirLatencyDuringLoginFlood() throws Exception {
+		long baselineP99 = p99ReadLatencyNanos();
+
+		AtomicBoolean flooding = new AtomicBoolean(true);
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService flood = Executors.newFixedThreadPool(FLOOD_THREADS);
+		for (int i = 0; i < FLOOD_THREADS; i++) {
+			flood.submit(() -> {
+				HttpRequest login = HttpRequest.newBuilder(uri("/auth/login"))
+						.header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"wrong-password\"}"))
+						.build();
+				while (flooding.get()) {
+					try {
+						if (client.send(login, HttpResponse.BodyHandlers.discarding()).statusCode() == 503) {
+							rejected.incrementAndGet();
+						}
+					} catch (Exception e) {
+						return;
+					}
+				}
+			});
+		}
+		Thread.sleep(1_000);
+		long floodP99;
+		try {
+			floodP99 = p99ReadLatencyNanos();
+		} finally {
+			flooding.set(false);
+			flood.shutdown();
+			flood.awaitTermination(30, TimeUnit.SECONDS);
+		}
+
+		assertTrue(rejected.get() > 0, "the flood should overflow the hashing queue");
+		assertTrue(floodP99 < Math.max(5 * baselineP99, TimeUnit.MILLISECONDS.toNanos(250)),
+				() -> String.format("read latency should not follow the login flood: GET /vendor p99 %.2f ms idle, %.2f ms during the flood",
+						baselineP99 / 1e6, floodP99 / 1e6));
+	}
+
+	private long p99ReadLatencyNanos() throws Exception {
+		HttpRequest read = HttpRequest.newBuilder(uri("/vendor")).GET().build();
+		List<Long> latencies = new ArrayList<>(SAMPLES);
+		for (int i = 0; i < SAMPLES; i++) {
+			long start = System.nanoTime();
+			client.send(read, HttpResponse.BodyHandlers.discarding());
+			latencies.add(System.nanoTime() - start);
+		}
+		Collections.sort(latencies);
+		return latencies.get((int) Math.ceil(SAMPLES * 0.99) - 1);
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.models.Vendor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two application instances against the same local database and checks that a write on one
+ * instance evicts the cached vendor lookups of the other.
+ */
+class NearCacheMultiInstanceTests {
+
+	private static ConfigurableApplicationContext first;
+	private static ConfigurableApplicationContext second;
+
+	@BeforeAll
+	static void startInstances() {
+		first = startInstance();
+		second = startInstance();
+	}
+
+	@AfterAll
+	static void stopInstances() {
+		second.close();
+		first.close();
+	}
+
+	@Test
+	void writeOnOneInstanceInvalidatesTheOther() {
+		VendorDao writer = first.getBean(VendorDao.class);
+		VendorDao reader = second.getBean(VendorDao.class);
+		Vendor vendor = writer.addVendor(new Vendor(0, "Near Cache Supply", "Pat", "1 Test Rd. Wheeling, IL 60090", "847-000-0001", 4, 0));
+		try {
+			assertEquals("Near Cache Supply", reader.getVendorById(vendor.getVendorId()).getVendorName());
+
+			vendor.setVendorName("Near Cache Supply Renamed");
+			assertEquals("Near Cache Supply", writer.getVendorById(vendor.getVendorId()).getVendorName(),
+					"changing a returned vendor must not change the cached one");
+			writer.updateVendor(vendor);
+
+			assertEventually(() -> "Near Cache Supply Renamed".equals(reader.getVendorById(vendor.getVendorId()).getVendorName()));
+		} finally {
+			writer.deleteVendorById(vendor.getVendorId());
+		}
+	}
+
+	@Test
+	void versionCheckHealsMissedNotification() {
+		VendorDao writer = first.getBean(VendorDao.class);
+		VendorDao reader = second.getBean(VendorDao.class);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(first.getBean(DataSource.class));
+		Vendor vendor = writer.addVendor(new Vendor(0, "Quiet Supply", "Sam", "2 Test Rd. Wheeling, IL 60090", "847-000-0002", 4, 0));
+		try {
+			assertEquals("Quiet Supply", reader.getVendorById(vendor.getVendorId()).getVendorName());
+
+			// change the row without any notification, only the version moves
+			jdbcTemplate.execute("ALTER TABLE vendor DISABLE TRIGGER vendor_cache_invalidation");
+			try {
+				jdbcTemplate.update("UPDATE vendor SET vendor_name = 'Quiet Supply Renamed' WHERE vendor_id = ?", vendor.getVendorId());
+				jdbcTemplate.update("UPDATE cache_version SET version = version + 1 WHERE table_name = 'vendor'");
+			} finally {
+				jdbcTemplate.execute("ALTER TABLE vendor ENABLE TRIGGER vendor_cache_invalidation");
+			}
+
+			assertEventually(() -> "Quiet Supply Renamed".equals(reader.getVendorById(vendor.getVendorId()).getVendorName()));
+		} finally {
+			writer.deleteVendorById(vendor.getVendorId());
+		}
+	}
+
+	private static ConfigurableApplicationContext startInstance() {
+		// the instances share the working directory, and with it the punch log directory
+		return new SpringApplicationBuilder(AceHardwareStoreApplication.class)
+				.properties("server.port=0", "ace.cache.version-check-interval=1s", "ace.punch.enabled=false")
+				.run();
+	}
+
+	private static void assertEventually(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "condition not met within 10 seconds");
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
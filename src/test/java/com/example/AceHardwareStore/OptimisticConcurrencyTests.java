@@ -0,0 +1,67 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.EmployeeDao;
+import com.example.AceHardwareStore.daos.VendorDao;
+import com.example.AceHardwareStore.exceptions.VersionConflictException;
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.Vendor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the conditional updates behind If-Match against the local database: a write at the
+ * version the client read succeeds and moves the version, a write at an older version fails.
+ */
+@SpringBootTest
+class OptimisticConcurrencyTests {
+
+	@Autowired
+	private EmployeeDao employeeDao;
+
+	@Autowired
+	private VendorDao vendorDao;
+
+	@Test
+	void staleEmployeeVersionIsRejected() {
+		Employee employee = employeeDao.addEmployee(new Employee(0, "Version Test", LocalDate.now(), null,
+				"847-000-0003", new BigDecimal("15.00"), 1, 0));
+		try {
+			long read = employee.getVersion();
+			Employee updated = employeeDao.updateEmployeeHourlyRateById(employee.getEmployeeId(), new BigDecimal("16.00"), read);
+			assertEquals(read + 1, updated.getVersion());
+
+			assertThrows(VersionConflictException.class,
+					() -> employeeDao.updateEmployeePhoneNumberById(employee.getEmployeeId(), "847-000-0004", read));
+			assertEquals("847-000-0003", employeeDao.getEmployeeById(employee.getEmployeeId()).getPhoneNumber());
+
+			// no If-Match, no check
+			employeeDao.updateEmployeePhoneNumberById(employee.getEmployeeId(), "847-000-0004", null);
+			assertEquals(read + 2, employeeDao.getEmployeeById(employee.getEmployeeId()).getVersion());
+		} finally {
+			employeeDao.deleteEmployeeById(employee.getEmployeeId());
+		}
+	}
+
+	@Test
+	void staleVendorVersionIsRejected() {
+		Vendor vendor = vendorDao.addVendor(new Vendor(0, "Version Supply", "Lee", "3 Test Rd. Wheeling, IL 60090", "847-000-0005", 4, 0));
+		try {
+			long read = vendor.getVersion();
+			vendor.setContact("Lou");
+			assertEquals(read + 1, vendorDao.updateVendor(vendor, read).getVersion());
+
+			vendor.setContact("Lin");
+			assertThrows(VersionConflictException.class, () -> vendorDao.updateVendor(vendor, read));
+			assertEquals("Lou", vendorDao.getVendorById(vendor.getVendorId()).getContact());
+		} finally {
+			vendorDao.deleteVendorById(vendor.getVendorId());
+		}
+	}
+}
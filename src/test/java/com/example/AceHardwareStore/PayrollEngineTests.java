@@ -0,0 +1,70 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.models.PayLine;
+import com.example.AceHardwareStore.payroll.PayrollEngine;
+import com.example.AceHardwareStore.payroll.PayrollProperties;
+import com.example.AceHardwareStore.payroll.TimeSheet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the pay computed for small time sheets
+ */
+class PayrollEngineTests {
+
+	private static final LocalDate FROM = LocalDate.of(2024, 6, 2);
+	private static final LocalDate TO = LocalDate.of(2024, 6, 15);
+
+	private final PayrollEngine engine = new PayrollEngine(new PayrollProperties());
+
+	@AfterEach
+	void stopEngine() {
+		engine.destroy();
+	}
+
+	@Test
+	void overtimeIsPaidPerWorkweekAtTimeAndAHalf() {
+		TimeSheet sheet = engine.newTimeSheet(FROM, TO);
+		// 45 hours in the first week, 38.5 in the second
+		for (int day = 0; day < 5; day++) {
+			sheet.add(1, FROM.plusDays(day + 1), new BigDecimal("9"));
+			sheet.add(1, FROM.plusDays(day + 8), new BigDecimal("7.7"));
+		}
+		PayLine line = run(sheet, employee(1, 1)).get(0);
+		assertEquals(0, new BigDecimal("78.5").compareTo(line.getRegularHours()));
+		assertEquals(0, new BigDecimal("5").compareTo(line.getOvertimeHours()));
+		// 78.5 * 15.33 = 1203.405 and 5 * 15.33 * 1.5 = 114.975, each rounded half up
+		assertEquals(new BigDecimal("1203.41"), line.getRegularPay());
+		assertEquals(new BigDecimal("114.98"), line.getOvertimePay());
+		assertEquals(new BigDecimal("1318.39"), line.getGrossPay());
+	}
+
+	@Test
+	void employeesWithoutHoursAreSkippedAndLinesComeByDepartment() {
+		TimeSheet sheet = engine.newTimeSheet(FROM, TO);
+		sheet.add(3, FROM, new BigDecimal("8"));
+		sheet.add(1, FROM, new BigDecimal("8"));
+		List<PayLine> lines = run(sheet, employee(3, 1), employee(2, 1), employee(1, 2));
+		assertEquals(2, lines.size());
+		assertEquals(3, lines.get(0).getEmployeeId());
+		assertEquals(1, lines.get(1).getEmployeeId());
+	}
+
+	private List<PayLine> run(TimeSheet sheet, Employee... employees) {
+		List<PayLine> lines = new ArrayList<>();
+		engine.run(List.of(employees), sheet, lines::add);
+		return lines;
+	}
+
+	private static Employee employee(int id, int departmentId) {
+		return new Employee(id, "Employee " + id, FROM, null, "847-000-0000", new BigDecimal("15.33"), departmentId, 0);
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.models.Employee;
+import com.example.AceHardwareStore.payroll.PayrollEngine;
+import com.example.AceHardwareStore.payroll.PayrollProperties;
+import com.example.AceHardwareStore.payroll.TimeSheet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs payroll for a synthetic chain of 1M employees with 1, 2, 4, ... threads up to the number of
+ * cores and publishes the speedup over one thread to the test report. Department sizes are skewed
+ * like those of the synthetic data generator, so the run only scales if large departments are split
+ * across threads.
+ * Needs a few hundred MB of heap; no database is used. Tagged perf, so it only runs with -Pperf.
+ */
+@Tag("perf")
+class PayrollScalingBenchmarkTests {
+
+	private static final int EMPLOYEES = 1_000_000;
+	private static final int DEPARTMENTS = 40;
+	private static final LocalDate FROM = LocalDate.of(2024, 6, 2);
+	private static final LocalDate TO = LocalDate.of(2024, 6, 15);
+	private static final int RUNS = 3;
+
+	@Test
+	void payrollScalesWithCores(TestReporter reporter) {
+		SplittableRandom random = new SplittableRandom(42);
+		List<Employee> employees = employees(random);
+		TimeSheet sheet = new TimeSheet(FROM, TO, new PayrollProperties().getWeekStart());
+		for (Employee employee : employees) {
+			for (LocalDate day = FROM; !day.isAfter(TO); day = day.plusDays(1)) {
+				if (day.getDayOfWeek().getValue() < 6) {
+					// 7.00 to 10.75 hours in quarter hours, so some weeks go over 40
+					sheet.add(employee.getEmployeeId(), day, BigDecimal.valueOf(28 + random.nextInt(16), 0)
+							.divide(BigDecimal.valueOf(4)));
+				}
+			}
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		BigDecimal expectedTotal = null;
+		double singleThreadMillis = 0;
+		double speedup = 1;
+		StringBuilder report = new StringBuilder(String.format("%d employees in %d departments, best of %d runs%n",
+				EMPLOYEES, DEPARTMENTS, RUNS));
+		for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1 : Math.min(cores, threads * 2)) {
+			PayrollProperties properties = new PayrollProperties();
+			properties.setParallelism(threads);
+			PayrollEngine engine = new PayrollEngine(properties);
+			try {
+				long best = Long.MAX_VALUE;
+				for (int run = 0; run <= RUNS; run++) {
+					BigDecimal[] total = {BigDecimal.ZERO};
+					int[] lines = {0};
+					long start = System.nanoTime();
+					engine.run(employees, sheet, line -> {
+						total[0] = total[0].add(line.getGrossPay());
+						lines[0]++;
+					});
+					long elapsed = System.nanoTime() - start;
+					// the first run warms up
+					if (run > 0) {
+						best = Math.min(best, elapsed);
+					}
+					assertEquals(EMPLOYEES, lines[0]);
+					if (expectedTotal == null) {
+						expectedTotal = total[0];
+					}
+					assertEquals(expectedTotal, total[0], "every thread count must pay exactly the same");
+				}
+				double millis = best / 1e6;
+				if (threads == 1) {
+					singleThreadMillis = millis;
+				}
+				speedup = singleThreadMillis / millis;
+				report.append(String.format("  %2d threads: %8.1f ms  speedup %5.2f  efficiency %3.0f%%%n",
+						threads, millis, speedup, 100 * speedup / threads));
+			} finally {
+				engine.destroy();
+			}
+		}
+		reporter.publishEntry("payrollScaling", report.toString());
+		if (cores > 1) {
+			double finalSpeedup = speedup;
+			assertTrue(finalSpeedup >= cores * 0.5, () -> "expected close to linear scaling on " + cores + " cores\n" + report);
+		}
+	}
+
+	/**
+	 * Creates employees whose department sizes follow a Zipf-like distribution
+	 */
+	private static List<Employee> employees(SplittableRandom random) {
+		double[] cumulative = new double[DEPARTMENTS];
+		double sum = 0;
+		for (int i = 0; i < DEPARTMENTS; i++) {
+			sum += 1 / Math.pow(i + 1, 1.1);
+			cumulative[i] = sum;
+		}
+		List<Employee> employees = new ArrayList<>(EMPLOYEES);
+		for (int id = 1; id <= EMPLOYEES; id++) {
+			int department = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+			department = department < 0 ? -department - 1 : department;
+			BigDecimal rate = BigDecimal.valueOf(1300 + random.nextInt(2000), 2);
+			employees.add(new Employee(id, "Employee " + id, FROM.minusDays(random.nextInt(5000)), null,
+					"847-000-0000", rate, department + 1, 0));
+		}
+		return employees;
+	}
+}
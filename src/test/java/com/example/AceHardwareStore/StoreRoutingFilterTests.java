@@ -0,0 +1,108 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.stores.StoreContext;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.example.AceHardwareStore.stores.StoreRoutingDataSource;
+import com.example.AceHardwareStore.stores.StoreRoutingFilter;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks which store a request is bound to, and that only admins may pick one with the store header
+ */
+class StoreRoutingFilterTests {
+
+	private StoreRoutingFilter filter;
+	private final AtomicReference<String> routedStore = new AtomicReference<>();
+	private final FilterChain chain = (request, response) -> routedStore.set(StoreContext.current());
+
+	@BeforeEach
+	void createFilter() {
+		StoreProperties storeProperties = new StoreProperties();
+		StoreRoutingDataSource dataSource = mock(StoreRoutingDataSource.class);
+		when(dataSource.isKnownStore("main")).thenReturn(true);
+		when(dataSource.isKnownStore("wheeling")).thenReturn(true);
+		filter = new StoreRoutingFilter(dataSource, storeProperties, mock(JwtTokenService.class));
+		routedStore.set("unset");
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void requestWithoutHeaderUsesDefaultStore() throws Exception {
+		authenticate("reader", "READER");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/employee"), response, chain);
+
+		assertEquals(200, response.getStatus());
+		assertNull(routedStore.get());
+		assertNull(StoreContext.current(), "the store must not leak past the request");
+	}
+
+	@Test
+	void adminPicksStoreWithHeader() throws Exception {
+		authenticate("admin", "ADMIN");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request("wheeling"), response, chain);
+
+		assertEquals(200, response.getStatus());
+		assertEquals("wheeling", routedStore.get());
+	}
+
+	@Test
+	void nonAdminHeaderIsForbidden() throws Exception {
+		authenticate("reader", "READER");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request("wheeling"), response, chain);
+
+		assertEquals(403, response.getStatus());
+		assertEquals("unset", routedStore.get(), "the request must not reach the controller");
+	}
+
+	@Test
+	void anonymousHeaderIsForbidden() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request("wheeling"), response, chain);
+
+		assertEquals(403, response.getStatus());
+	}
+
+	@Test
+	void unknownStoreIsRejected() throws Exception {
+		authenticate("admin", "ADMIN");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request("nowhere"), response, chain);
+
+		assertEquals(400, response.getStatus());
+	}
+
+	private static MockHttpServletRequest request(String storeId) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/employee");
+		request.addHeader("X-Store-Id", storeId);
+		return request;
+	}
+
+	private static void authenticate(String username, String role) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				username, null, List.of(new SimpleGrantedAuthority(role))));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.payroll.TimeSheet;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which pay periods and hours a time sheet accepts and how it reads CSV sheets
+ */
+class TimeSheetTests {
+
+	private static final LocalDate FROM = LocalDate.of(2024, 6, 2);
+	private static final LocalDate TO = LocalDate.of(2024, 6, 15);
+
+	@Test
+	void periodMustBeMadeOfWholeWorkweeks() {
+		assertThrows(IllegalArgumentException.class, () -> new TimeSheet(FROM.plusDays(1), TO, DayOfWeek.SUNDAY));
+		assertThrows(IllegalArgumentException.class, () -> new TimeSheet(FROM, TO.minusDays(1), DayOfWeek.SUNDAY));
+		assertThrows(IllegalArgumentException.class, () -> new TimeSheet(FROM, TO, DayOfWeek.MONDAY));
+		new TimeSheet(FROM.plusDays(1), TO.plusDays(1), DayOfWeek.MONDAY);
+	}
+
+	@Test
+	void periodMustNotBeEmptyOrLongerThanAYear() {
+		assertThrows(IllegalArgumentException.class, () -> new TimeSheet(TO, FROM, DayOfWeek.SUNDAY));
+		assertThrows(IllegalArgumentException.class, () -> new TimeSheet(FROM, FROM.plusWeeks(53).minusDays(1), DayOfWeek.SUNDAY));
+		new TimeSheet(FROM, FROM.plusWeeks(52).minusDays(1), DayOfWeek.SUNDAY);
+	}
+
+	@Test
+	void hoursOutsideThePeriodOrRangeAreRejected() {
+		TimeSheet sheet = new TimeSheet(FROM, TO, DayOfWeek.SUNDAY);
+		assertThrows(IllegalArgumentException.class, () -> sheet.add(1, FROM.minusDays(1), BigDecimal.ONE));
+		assertThrows(IllegalArgumentException.class, () -> sheet.add(1, TO.plusDays(1), BigDecimal.ONE));
+		assertThrows(IllegalArgumentException.class, () -> sheet.add(1, FROM, new BigDecimal("-0.25")));
+		assertThrows(IllegalArgumentException.class, () -> sheet.add(1, FROM, new BigDecimal("24.25")));
+		assertNull(sheet.getWeeklyHours(1));
+	}
+
+	@Test
+	void hoursAreSummedPerWorkweek() {
+		TimeSheet sheet = new TimeSheet(FROM, TO, DayOfWeek.SUNDAY);
+		sheet.add(1, FROM, new BigDecimal("8"));
+		sheet.add(1, FROM.plusDays(6), new BigDecimal("4.5"));
+		sheet.add(1, FROM.plusDays(7), new BigDecimal("24"));
+		assertArrayEquals(new BigDecimal[]{new BigDecimal("12.5"), new BigDecimal("24")}, sheet.getWeeklyHours(1));
+	}
+
+	@Test
+	void csvSkipsHeaderAndBlankLines() throws IOException {
+		String csv = "employee_id,work_date,hours\n"
+				+ "1,2024-06-03,8\n"
+				+ "\n"
+				+ " 2 , 2024-06-10 , 7.5 \n"
+				+ "1,2024-06-04,8\n";
+		TimeSheet sheet = TimeSheet.fromCsv(new StringReader(csv), FROM, TO, DayOfWeek.SUNDAY);
+		assertEquals(Set.of(1, 2), sheet.getEmployeeIds());
+		assertEquals(new BigDecimal("16"), sheet.getWeeklyHours(1)[0]);
+		assertNull(sheet.getWeeklyHours(2)[0]);
+		assertEquals(new BigDecimal("7.5"), sheet.getWeeklyHours(2)[1]);
+	}
+
+	@Test
+	void csvErrorsNameTheLine() {
+		assertCsvError("1,2024-06-03\n", "Line 1");
+		assertCsvError("employee_id,work_date,hours\n1,2024-06-03,8\nx,2024-06-03,8\n", "Line 3");
+		assertCsvError("1,2024-06-31,8\n", "Line 1");
+		assertCsvError("1,2024-06-03,eight\n", "Line 1");
+		assertCsvError("1,2024-07-01,8\n", "Line 1");
+		assertCsvError("1,2024-06-03,8,extra\n", "Line 1");
+	}
+
+	private static void assertCsvError(String csv, String expected) {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> TimeSheet.fromCsv(new StringReader(csv), FROM, TO, DayOfWeek.SUNDAY));
+		assertTrue(e.getMessage().startsWith(expected), () -> "unexpected message: " + e.getMessage());
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.AceHardwareStore;
+
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.security.UsernameFilter;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two application instances against the same local database and checks that a user created on
+ * one instance can log in on the other right away, long before the periodic username reload.
+ */
+class UsernameFilterMultiInstanceTests {
+
+	private static ConfigurableApplicationContext first;
+	private static ConfigurableApplicationContext second;
+
+	@BeforeAll
+	static void startInstances() {
+		first = startInstance();
+		second = startInstance();
+	}
+
+	@AfterAll
+	static void stopInstances() {
+		second.close();
+		first.close();
+	}
+
+	@Test
+	void userCreatedOnAnotherInstanceCanLogInRightAway() throws Exception {
+		AceHardwareStoreUserDetailsService login = first.getBean(AceHardwareStoreUserDetailsService.class);
+		String username = "filter-" + UUID.randomUUID();
+		awaitFilterLoaded();
+		assertThrows(UsernameNotFoundException.class, () -> login.loadUserByUsername(username));
+
+		UserDao writer = second.getBean(UserDao.class);
+		writer.createUser(new User(username, "Password1!", "8470000003"));
+		try {
+			// the only delay left is the database announcing the insert to the first instance
+			UserDetails user = loginWithin(login, username, 1_000);
+			assertEquals(username, user.getUsername());
+		} finally {
+			writer.deleteUser(username);
+		}
+	}
+
+	private static void awaitFilterLoaded() throws InterruptedException {
+		String store = first.getBean(StoreProperties.class).getDefaultStore();
+		UsernameFilter filter = first.getBean(UsernameFilter.class);
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (true) {
+			Map<String, Object> metrics = filter.getMetrics();
+			if (Boolean.FALSE.equals(metrics.get(store + ".stale"))) {
+				return;
+			}
+			assertTrue(System.currentTimeMillis() < deadline, "the username filter did not load within 10 seconds");
+			Thread.sleep(100);
+		}
+	}
+
+	private static UserDetails loginWithin(AceHardwareStoreUserDetailsService login, String username, long millis)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + millis;
+		while (true) {
+			try {
+				return login.loadUserByUsername(username);
+			} catch (UsernameNotFoundException e) {
+				assertTrue(System.currentTimeMillis() < deadline, username + " was refused for " + millis + " ms");
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static ConfigurableApplicationContext startInstance() {
+		// the instances share the working directory, and with it the punch log directory
+		return new SpringApplicationBuilder(AceHardwareStoreApplication.class)
+				.properties("server.port=0", "ace.username-filter.rebuild-interval=1h", "ace.punch.enabled=false")
+				.run();
+	}
+}
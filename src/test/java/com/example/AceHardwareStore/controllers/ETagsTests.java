@@ -0,0 +1,43 @@
+package com.example.AceHardwareStore.controllers;
+
+import com.example.AceHardwareStore.exceptions.VersionConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks how If-Match headers are turned into expected row versions
+ */
+class ETagsTests {
+
+	@Test
+	void tagRoundTripsToVersion() {
+		assertEquals("\"42\"", ETags.of(42));
+		assertEquals(42L, ETags.expectedVersion(ETags.of(42)));
+		assertEquals(7L, ETags.expectedVersion("  \"7\" "));
+	}
+
+	@Test
+	void missingOrWildcardHeaderIsUnconditional() {
+		assertNull(ETags.expectedVersion(null));
+		assertNull(ETags.expectedVersion(""));
+		assertNull(ETags.expectedVersion("*"));
+	}
+
+	@Test
+	void malformedHeaderIsBadRequest() {
+		for (String ifMatch : new String[]{"42", "\"", "W/\"42\"", "\"1\", \"2\"", "\"42"}) {
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> ETags.expectedVersion(ifMatch), ifMatch);
+			assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), ifMatch);
+		}
+	}
+
+	@Test
+	void foreignTagIsPreconditionFailed() {
+		assertThrows(VersionConflictException.class, () -> ETags.expectedVersion("\"not-a-version\""));
+	}
+}
@@ -0,0 +1,330 @@
+package com.example.AceHardwareStore.perf;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a local database with a large, deterministic data set for performance tests and benchmarks.
+ * The same seed and volumes always produce the same rows. Departments are sized by a Zipf-like
+ * distribution, so a few departments hold most employees and vendors as in a real chain.
+ * Rows are streamed with COPY, which loads millions of rows in minutes.
+ *
+ * <p>The schema must exist already (database/AceHardwareStore.sql). Generated departments, employees
+ * with their rate history, vendors and users replace the existing ones; the admin and reader users and
+ * the audit log are kept. Everything is loaded in one transaction, so a failed run leaves the old data.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.AceHardwareStore.perf.SyntheticDataGenerator \
+ *     -Dexec.args="--employees=5000000 --vendors=200000 --users=100000"
+ * </pre>
+ *
+ * Options, with their defaults: --url, --username, --password (the local database of
+ * application.properties), --seed=42, --departments=40, --employees=5000000, --vendors=200000,
+ * --users=100000, --skew=1.1 (Zipf exponent of department sizes), --user-password=password.
+ */
+public class SyntheticDataGenerator {
+
+	private static final String[] FIRST_NAMES = {
+			"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+			"William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+			"Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra", "Steven", "Ashley",
+			"Kyler", "Noah", "Twanna", "Klay", "Makaela", "Gus", "Peter", "Dean", "Max", "Scott"
+	};
+
+	private static final String[] LAST_NAMES = {
+			"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+			"Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+			"Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson",
+			"Kowalski", "Nowak", "Wisniewski", "Spyropoulos", "Varveris", "Ragusin", "Lambert", "Walsh", "Imig", "Lech"
+	};
+
+	private static final String[] VENDOR_WORDS = {
+			"Boom", "Sharp", "Prairie", "Lakeshore", "Midwest", "Northern", "Summit", "Keystone", "Liberty", "Pioneer",
+			"Allied", "Premier", "Reliable", "Ironwood", "Cedar", "Granite", "Harbor", "Union", "Heritage", "Valley",
+			"Window", "Screen", "Lumber", "Paint", "Tool", "Fastener", "Plumbing", "Electric", "Garden", "Supply"
+	};
+
+	private static final String[] VENDOR_SUFFIXES = {"LLC", "Inc.", "Co.", "Supply", "Distributors", "& Sons", "Group"};
+
+	private static final String[] DEPARTMENT_NAMES = {
+			"Management", "Sales", "Customer Service", "Outside Vendors", "Hardware", "Paint", "Lumber", "Plumbing",
+			"Electrical", "Garden", "Tools", "Seasonal", "Receiving", "Key Cutting", "Rental", "Housewares"
+	};
+
+	private static final String[] STREETS = {"Wheeling Rd.", "S Wolf Rd.", "Milwaukee Ave.", "Dundee Rd.", "Elmhurst Rd."};
+
+	private static final String[] TOWNS = {"Wheeling, IL 60090", "Northbrook, IL 60062", "Palatine, IL 60067",
+			"Arlington Heights, IL 60004", "Buffalo Grove, IL 60089"};
+
+	private static final String[] AREA_CODES = {"847", "224", "630", "312", "773"};
+
+	/**
+	 * Rows buffered before they are handed to COPY
+	 */
+	private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+	private static final LocalDate FIRST_HIRE = LocalDate.of(1990, 1, 1);
+	private static final int HIRE_DAYS = (int) (LocalDate.of(2025, 12, 31).toEpochDay() - FIRST_HIRE.toEpochDay());
+
+	private final Map<String, String> options;
+	private final long seed;
+	private final int departments;
+	private final double[] departmentCumulative;
+
+	public static void main(String[] args) throws SQLException {
+		Map<String, String> options = new LinkedHashMap<>();
+		options.put("url", "jdbc:postgresql://localhost:5432/AceHardwareStore");
+		options.put("username", "postgres");
+		options.put("password", "postgres1");
+		options.put("seed", "42");
+		options.put("departments", "40");
+		options.put("employees", "5000000");
+		options.put("vendors", "200000");
+		options.put("users", "100000");
+		options.put("skew", "1.1");
+		options.put("user-password", "password");
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0 || !options.containsKey(arg.substring(2, separator))) {
+				throw new IllegalArgumentException("Unknown option " + arg + ", expected one of " + options.keySet());
+			}
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		new SyntheticDataGenerator(options).run();
+	}
+
+	SyntheticDataGenerator(Map<String, String> options) {
+		this.options = options;
+		this.seed = Long.parseLong(options.get("seed"));
+		this.departments = Integer.parseInt(options.get("departments"));
+		this.departmentCumulative = zipfCumulative(departments, Double.parseDouble(options.get("skew")));
+	}
+
+	void run() throws SQLException {
+		try (Connection connection = DriverManager.getConnection(
+				options.get("url"), options.get("username"), options.get("password"))) {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("TRUNCATE employee, vendor, department RESTART IDENTITY CASCADE");
+				// the history has no foreign key and refuses TRUNCATE, but the reused ids must not inherit it
+				statement.execute("ALTER TABLE employee_rate_history DISABLE TRIGGER employee_rate_history_append_only");
+				statement.execute("TRUNCATE employee_rate_history RESTART IDENTITY");
+				statement.execute("ALTER TABLE employee_rate_history ENABLE TRIGGER employee_rate_history_append_only");
+				// the hire rates are written after the copy, see recordHireRates
+				statement.execute("ALTER TABLE employee DISABLE TRIGGER employee_rate_history");
+				statement.execute("DELETE FROM roles WHERE username NOT IN ('admin', 'reader')");
+				statement.execute("DELETE FROM users WHERE username NOT IN ('admin', 'reader')");
+			}
+			timed("departments", departments, () -> copyDepartments(connection));
+			timed("employees", count("employees"), () -> copyEmployees(connection, count("employees")));
+			timed("rate history", count("employees"), () -> recordHireRates(connection));
+			timed("vendors", count("vendors"), () -> copyVendors(connection, count("vendors")));
+			timed("users", count("users"), () -> copyUsers(connection, count("users")));
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SELECT setval('department_department_id_seq', " + departments + ")");
+			}
+			connection.commit();
+			connection.setAutoCommit(true);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("ANALYZE department, employee, vendor, users, roles");
+			}
+		}
+	}
+
+	private void copyDepartments(Connection connection) throws SQLException {
+		try (Copy copy = new Copy(connection, "department (department_id, department_name)")) {
+			for (int id = 1; id <= departments; id++) {
+				String name = DEPARTMENT_NAMES[(id - 1) % DEPARTMENT_NAMES.length];
+				if (id > DEPARTMENT_NAMES.length) {
+					name += " " + ((id - 1) / DEPARTMENT_NAMES.length + 1);
+				}
+				copy.field(id).field(name).endRow();
+			}
+		}
+	}
+
+	private void copyEmployees(Connection connection, int employees) throws SQLException {
+		SplittableRandom random = new SplittableRandom(seed);
+		try (Copy copy = new Copy(connection,
+				"employee (name, hire_date, leave_date, phone_number, hourly_rate, department_id)")) {
+			for (int i = 0; i < employees; i++) {
+				LocalDate hireDate = FIRST_HIRE.plusDays(random.nextInt(HIRE_DAYS));
+				long daysSinceHire = LocalDate.of(2026, 1, 1).toEpochDay() - hireDate.toEpochDay();
+				LocalDate leaveDate = random.nextInt(100) < 15 && daysSinceHire > 1
+						? hireDate.plusDays(1 + random.nextLong(daysSinceHire - 1)) : null;
+				// mostly near the minimum with a long tail, like hourly store wages
+				long rateCents = 1300 + Math.round(Math.min(87.0, -Math.log(1 - random.nextDouble()) * 4.5) * 100);
+				copy.field(pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES))
+						.field(hireDate)
+						.field(leaveDate)
+						.field(phoneNumber(random, i))
+						.field(rateCents / 100 + "." + (rateCents % 100 < 10 ? "0" : "") + rateCents % 100)
+						.field(department(random))
+						.endRow();
+			}
+		}
+	}
+
+	/**
+	 * Writes the rate each employee was hired at, as the rate history trigger would have, in one statement
+	 * rather than one trigger call per copied row, then turns the trigger back on
+	 */
+	private static void recordHireRates(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ALTER TABLE employee ENABLE TRIGGER employee_rate_history");
+			statement.execute("INSERT INTO employee_rate_history (employee_id, hourly_rate, valid_from) "
+					+ "SELECT employee_id, hourly_rate, LEAST(hire_date::timestamptz, now()) FROM employee ORDER BY employee_id");
+		}
+	}
+
+	private void copyVendors(Connection connection, int vendors) throws SQLException {
+		SplittableRandom random = new SplittableRandom(seed + 1);
+		try (Copy copy = new Copy(connection,
+				"vendor (vendor_name, contact_name, address, phone_number, department_id)")) {
+			for (int i = 0; i < vendors; i++) {
+				copy.field(pick(random, VENDOR_WORDS) + " " + pick(random, VENDOR_WORDS) + " " + pick(random, VENDOR_SUFFIXES))
+						.field(pick(random, FIRST_NAMES))
+						.field((1 + random.nextInt(9999)) + " " + pick(random, STREETS) + " " + pick(random, TOWNS))
+						.field(phoneNumber(random, i))
+						.field(department(random))
+						.endRow();
+			}
+		}
+	}
+
+	private void copyUsers(Connection connection, int users) throws SQLException {
+		SplittableRandom random = new SplittableRandom(seed + 2);
+		// hashing once keeps the load fast, every generated user shares the password
+		String passwordHash = new BCryptPasswordEncoder().encode(options.get("user-password"));
+		try (Copy copy = new Copy(connection, "users (username, password, phone_number)")) {
+			for (int i = 0; i < users; i++) {
+				copy.field(username(i)).field(passwordHash).field(phoneNumber(random, i)).endRow();
+			}
+		}
+		try (Copy copy = new Copy(connection, "roles (username, role)")) {
+			for (int i = 0; i < users; i++) {
+				copy.field(username(i)).field("READER").endRow();
+				if (random.nextInt(100) < 2) {
+					copy.field(username(i)).field("ADMIN").endRow();
+				}
+			}
+		}
+	}
+
+	private int count(String option) {
+		return Integer.parseInt(options.get(option));
+	}
+
+	/**
+	 * Returns a department id, department 1 being the largest
+	 */
+	private int department(SplittableRandom random) {
+		int index = Arrays.binarySearch(departmentCumulative, random.nextDouble());
+		return (index < 0 ? -index - 1 : index) + 1;
+	}
+
+	private static double[] zipfCumulative(int size, double exponent) {
+		double[] cumulative = new double[size];
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			total += 1 / Math.pow(i + 1, exponent);
+			cumulative[i] = total;
+		}
+		for (int i = 0; i < size; i++) {
+			cumulative[i] /= total;
+		}
+		cumulative[size - 1] = 1.0;
+		return cumulative;
+	}
+
+	/**
+	 * Returns a phone number that is unique within a table for the first ten million rows, formatted
+	 * in a few of the ways people type them
+	 */
+	private static String phoneNumber(SplittableRandom random, int row) {
+		String areaCode = AREA_CODES[row % AREA_CODES.length];
+		int local = row / AREA_CODES.length % 10_000_000;
+		String exchange = String.format("%03d", local / 10_000);
+		String line = String.format("%04d", local % 10_000);
+		return switch (random.nextInt(3)) {
+			case 0 -> areaCode + "-" + exchange + "-" + line;
+			case 1 -> "(" + areaCode + ") " + exchange + "-" + line;
+			default -> areaCode + exchange + line;
+		};
+	}
+
+	private static String username(int i) {
+		return String.format("user%07d", i);
+	}
+
+	private static String pick(SplittableRandom random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static void timed(String table, long rows, SqlAction action) throws SQLException {
+		long start = System.nanoTime();
+		action.run();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-12s %,12d rows in %7.1f s (%,.0f rows/s)%n", table, rows, seconds, rows / Math.max(seconds, 1e-9));
+	}
+
+	private interface SqlAction {
+		void run() throws SQLException;
+	}
+
+	/**
+	 * Streams rows to COPY ... FROM STDIN in text format, buffering them in large chunks.
+	 * Generated values never contain tabs, newlines or backslashes, so no escaping is needed.
+	 */
+	private static final class Copy implements AutoCloseable {
+		private final CopyIn copyIn;
+		private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_BYTES);
+		private boolean firstField = true;
+
+		Copy(Connection connection, String target) throws SQLException {
+			copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + target + " FROM STDIN");
+		}
+
+		Copy field(Object value) {
+			if (!firstField) {
+				buffer.append('\t');
+			}
+			buffer.append(value == null ? "\\N" : value.toString());
+			firstField = false;
+			return this;
+		}
+
+		void endRow() throws SQLException {
+			buffer.append('\n');
+			firstField = true;
+			if (buffer.length() >= COPY_BUFFER_BYTES) {
+				flush();
+			}
+		}
+
+		private void flush() throws SQLException {
+			byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+			copyIn.writeToCopy(bytes, 0, bytes.length);
+			buffer.setLength(0);
+		}
+
+		@Override
+		public void close() throws SQLException {
+			flush();
+			copyIn.endCopy();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.AceHardwareStore.punch;
+
+import com.example.AceHardwareStore.daos.PunchDao;
+import com.example.AceHardwareStore.models.Punch;
+import com.example.AceHardwareStore.readmodel.EmployeeReadModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that punches replayed from the write-ahead log after they were already written are
+ * skipped by the database instead of stored twice or discarded.
+ */
+@SpringBootTest
+class PunchReplayTests {
+
+	@Autowired
+	private PunchDao punchDao;
+
+	@Autowired
+	private EmployeeReadModel employeeReadModel;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replayOfWrittenPunchIsSkippedOnConflict() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		int employeeId = jdbcTemplate.queryForObject(
+				"SELECT employee_id FROM employee WHERE leave_date IS NULL ORDER BY employee_id LIMIT 1", Integer.class);
+		Instant now = Instant.now();
+		Punch punch = new Punch(UUID.randomUUID(), employeeId, Punch.Direction.IN, now, now);
+
+		// a stop after the insert committed but before the log was released leaves the punch in both
+		punchDao.addPunches(List.of(punch));
+		try (PunchWal wal = PunchWal.open(directory, 1024 * 1024, entry -> {
+		})) {
+			wal.append(null, List.of(punch));
+		}
+
+		PunchProperties properties = new PunchProperties();
+		properties.setDirectory(directory.toString());
+		PunchIngestor ingestor = new PunchIngestor(punchDao, employeeReadModel, properties);
+		try {
+			assertEquals(1L, ingestor.getMetrics().get("replayed"));
+			long deadline = System.currentTimeMillis() + 10_000;
+			while ((long) ingestor.getMetrics().get("committed") < 1) {
+				assertTrue(System.currentTimeMillis() < deadline, "the replayed punch was not written within 10 seconds");
+				Thread.sleep(20);
+			}
+			assertEquals(0L, ingestor.getMetrics().get("discarded"));
+			// the replayed segment is released and deleted, only the open one is left
+			assertEquals(1, ingestor.getMetrics().get("walSegments"));
+		} finally {
+			ingestor.destroy();
+		}
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM punch WHERE punch_id = ?", Integer.class,
+				punch.getPunchId()));
+	}
+}
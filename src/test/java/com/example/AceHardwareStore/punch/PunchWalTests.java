@@ -0,0 +1,158 @@
+package com.example.AceHardwareStore.punch;
+
+import com.example.AceHardwareStore.models.Punch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what the punch write-ahead log replays after a restart and when it deletes its segments
+ */
+class PunchWalTests {
+
+	private static final long SEGMENT_SIZE = 1024 * 1024;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void appendedPunchesAreReplayedInOrder() throws IOException {
+		Punch first = punch(1, Punch.Direction.IN);
+		Punch second = punch(2, Punch.Direction.OUT);
+		Punch third = punch(3, Punch.Direction.IN);
+		try (PunchWal wal = PunchWal.open(directory, SEGMENT_SIZE, entry -> {
+		})) {
+			wal.append(null, List.of(first, second));
+			wal.append("north", List.of(third));
+		}
+
+		List<PunchWal.Entry> replayed = replay();
+		assertEquals(3, replayed.size());
+		assertSamePunch(first, replayed.get(0).punch());
+		assertSamePunch(second, replayed.get(1).punch());
+		assertSamePunch(third, replayed.get(2).punch());
+		assertNull(replayed.get(0).storeId());
+		assertEquals("north", replayed.get(2).storeId());
+	}
+
+	@Test
+	void truncatedTrailingRecordEndsTheReplay() throws IOException {
+		Punch kept = punch(1, Punch.Direction.IN);
+		Punch torn = punch(2, Punch.Direction.OUT);
+		try (PunchWal wal = PunchWal.open(directory, SEGMENT_SIZE, entry -> {
+		})) {
+			wal.append(null, List.of(kept));
+			wal.append(null, List.of(torn));
+		}
+		Path segment = onlySegment();
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+
+		List<PunchWal.Entry> replayed = replay();
+		assertEquals(1, replayed.size());
+		assertSamePunch(kept, replayed.get(0).punch());
+	}
+
+	@Test
+	void segmentIsDeletedOnlyOnceFullAndReleased() throws IOException {
+		// every append after the first one starts a new segment
+		try (PunchWal wal = PunchWal.open(directory, 1, entry -> {
+		})) {
+			List<PunchWal.Entry> sealed = wal.append(null, List.of(punch(1, Punch.Direction.IN), punch(2, Punch.Direction.IN)));
+			List<PunchWal.Entry> open = wal.append(null, List.of(punch(3, Punch.Direction.IN)));
+			long sealedSegment = sealed.get(0).segment();
+			long openSegment = open.get(0).segment();
+			assertTrue(openSegment > sealedSegment);
+			assertEquals(2, wal.getSegmentCount());
+
+			wal.release(sealedSegment, 1);
+			assertTrue(Files.exists(segmentPath(sealedSegment)), "a segment with unwritten punches was deleted");
+
+			wal.release(sealedSegment, 1);
+			assertFalse(Files.exists(segmentPath(sealedSegment)), "a full, released segment was kept");
+
+			wal.release(openSegment, 1);
+			assertTrue(Files.exists(segmentPath(openSegment)), "the open segment was deleted");
+			assertEquals(1, wal.getSegmentCount());
+		}
+	}
+
+	@Test
+	void replayedSegmentIsDeletedOnceItsPunchesAreReleased() throws IOException {
+		try (PunchWal wal = PunchWal.open(directory, SEGMENT_SIZE, entry -> {
+		})) {
+			wal.append(null, List.of(punch(1, Punch.Direction.IN), punch(2, Punch.Direction.OUT)));
+		}
+		List<PunchWal.Entry> replayed = new ArrayList<>();
+		try (PunchWal wal = PunchWal.open(directory, SEGMENT_SIZE, replayed::add)) {
+			long segment = replayed.get(0).segment();
+			wal.release(segment, 1);
+			assertTrue(Files.exists(segmentPath(segment)));
+			wal.release(segment, 1);
+			assertFalse(Files.exists(segmentPath(segment)));
+		}
+	}
+
+	@Test
+	void directoryInUseIsNotOpenedTwice() throws IOException {
+		try (PunchWal wal = PunchWal.open(directory, SEGMENT_SIZE, entry -> {
+		})) {
+			List<PunchWal.Entry> logged = wal.append(null, List.of(punch(1, Punch.Direction.IN)));
+			List<PunchWal.Entry> replayed = new ArrayList<>();
+
+			assertThrows(IOException.class, () -> PunchWal.open(directory, SEGMENT_SIZE, replayed::add));
+			assertTrue(replayed.isEmpty(), "the second log replayed the segments of the first");
+			assertTrue(Files.exists(segmentPath(logged.get(0).segment())), "the second log touched the open segment");
+		}
+
+		List<PunchWal.Entry> replayed = replay();
+		assertEquals(1, replayed.size(), "the lock was not released on close");
+	}
+
+	private List<PunchWal.Entry> replay() throws IOException {
+		List<PunchWal.Entry> replayed = new ArrayList<>();
+		PunchWal.open(directory, SEGMENT_SIZE, replayed::add).close();
+		return replayed;
+	}
+
+	private Path onlySegment() throws IOException {
+		try (var files = Files.list(directory)) {
+			List<Path> segments = files.filter(file -> file.getFileName().toString().endsWith(".wal")).toList();
+			assertEquals(1, segments.size());
+			return segments.get(0);
+		}
+	}
+
+	private Path segmentPath(long segment) {
+		return directory.resolve(String.format("%016d.wal", segment));
+	}
+
+	private static Punch punch(int employeeId, Punch.Direction direction) {
+		Instant now = Instant.now();
+		return new Punch(UUID.randomUUID(), employeeId, direction, now.minusSeconds(5), now);
+	}
+
+	private static void assertSamePunch(Punch expected, Punch actual) {
+		assertEquals(expected.getPunchId(), actual.getPunchId());
+		assertEquals(expected.getEmployeeId(), actual.getEmployeeId());
+		assertEquals(expected.getDirection(), actual.getDirection());
+		assertEquals(expected.getPunchedAt(), actual.getPunchedAt());
+		assertEquals(expected.getReceivedAt(), actual.getReceivedAt());
+	}
+}
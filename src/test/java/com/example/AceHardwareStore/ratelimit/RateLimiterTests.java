@@ -0,0 +1,94 @@
+package com.example.AceHardwareStore.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the generic cell rate algorithm buckets of the rate limiter
+ */
+class RateLimiterTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void burstIsAllowedThenRequestsWaitForTheRate() {
+		RateLimiter rateLimiter = rateLimiter(10, 4);
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 4; i++) {
+			assertEquals(0L, rateLimiter.acquire("/limited", "user:pat", now));
+		}
+		long wait = rateLimiter.acquire("/limited", "user:pat", now);
+		assertEquals(SECOND / 10, wait);
+
+		assertEquals(0L, rateLimiter.acquire("/limited", "user:pat", now + wait));
+		assertTrue(rateLimiter.acquire("/limited", "user:pat", now + wait) > 0);
+	}
+
+	@Test
+	void idleClientGetsItsBurstBack() {
+		RateLimiter rateLimiter = rateLimiter(10, 4);
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 4; i++) {
+			rateLimiter.acquire("/limited", "user:pat", now);
+		}
+		now += SECOND;
+		for (int i = 0; i < 4; i++) {
+			assertEquals(0L, rateLimiter.acquire("/limited", "user:pat", now));
+		}
+		assertTrue(rateLimiter.acquire("/limited", "user:pat", now) > 0);
+	}
+
+	@Test
+	void clientsAndRoutesHaveSeparateBuckets() {
+		RateLimitProperties properties = properties(1, 1);
+		properties.getRoutes().add(new RateLimitProperties.Route("other", "/other", 1, 1));
+		RateLimiter rateLimiter = new RateLimiter(properties);
+		long now = 1_000 * SECOND;
+
+		assertEquals(0L, rateLimiter.acquire("/limited", "user:pat", now));
+		assertTrue(rateLimiter.acquire("/limited", "user:pat", now) > 0);
+		assertEquals(0L, rateLimiter.acquire("/limited", "user:sam", now));
+		assertEquals(0L, rateLimiter.acquire("/other", "user:pat", now));
+		assertEquals(0L, rateLimiter.acquire("/unlimited", "user:pat", now));
+	}
+
+	@Test
+	void disabledLimiterAllowsEverything() {
+		RateLimitProperties properties = properties(1, 1);
+		properties.setEnabled(false);
+		RateLimiter rateLimiter = new RateLimiter(properties);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0L, rateLimiter.acquire("/limited", "user:pat", 1_000 * SECOND));
+		}
+	}
+
+	@Test
+	void manyClientsStayWithinTheTable() {
+		RateLimitProperties properties = properties(1, 1);
+		properties.setMaximumClients(16);
+		RateLimiter rateLimiter = new RateLimiter(properties);
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 1_000; i++) {
+			assertEquals(0L, rateLimiter.acquire("/limited", "address:10.0.0." + i, now));
+		}
+		assertEquals(1_000L, rateLimiter.getMetrics().get("limited.allowed"));
+		assertTrue((Long) rateLimiter.getMetrics().get("evictions") > 0);
+	}
+
+	private static RateLimiter rateLimiter(double requestsPerSecond, int burst) {
+		return new RateLimiter(properties(requestsPerSecond, burst));
+	}
+
+	private static RateLimitProperties properties(double requestsPerSecond, int burst) {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setRoutes(new ArrayList<>(List.of(
+				new RateLimitProperties.Route("limited", "/limited", requestsPerSecond, burst))));
+		return properties;
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.AceHardwareStore.readmodel;
+
+import com.example.AceHardwareStore.models.Employee;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks how writes are applied to the columns of a store
+ */
+class EmployeeColumnsTests {
+
+	@Test
+	void upsertKeepsTheNewerVersion() {
+		EmployeeColumns columns = new EmployeeColumns(0);
+		columns.upsert(employee(1, "15.00", 2));
+		columns.upsert(employee(1, "14.00", 1));
+
+		assertEquals(2L, columns.get(1).getVersion());
+		assertEquals(new BigDecimal("15.00"), columns.get(1).getHourlyRate());
+
+		columns.upsert(employee(1, "16.00", 3));
+		assertEquals(new BigDecimal("16.00"), columns.get(1).getHourlyRate());
+	}
+
+	@Test
+	void removeDropsTheRow() {
+		EmployeeColumns columns = new EmployeeColumns(0);
+		columns.upsert(employee(1, "15.00", 0));
+		columns.upsert(employee(2, "15.00", 0));
+		columns.remove(1);
+
+		assertNull(columns.get(1));
+		assertEquals(1, columns.size());
+		assertEquals(2, columns.all().get(0).getEmployeeId());
+	}
+
+	private static Employee employee(int id, String rate, long version) {
+		Employee employee = new Employee(id, "Employee " + id, LocalDate.of(2024, 1, 1), "5555550100",
+				new BigDecimal(rate), 1);
+		employee.setVersion(version);
+		return employee;
+	}
+}
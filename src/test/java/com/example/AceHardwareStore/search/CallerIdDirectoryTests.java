@@ -0,0 +1,75 @@
+package com.example.AceHardwareStore.search;
+
+import com.example.AceHardwareStore.models.CallerMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks how a reload of one record type replaces the numbers of a store directory
+ */
+class CallerIdDirectoryTests {
+
+	@Test
+	void reloadReplacesOnlyItsOwnType() {
+		CallerIdDirectory.StoreDirectory directory = new CallerIdDirectory.StoreDirectory(4);
+		directory.move("vendor:1", vendor(1, "Acme", "555-0101"));
+		directory.move("employee:1", employee(1, "Pat", "555-0102"));
+
+		long since = directory.sequence();
+		directory.replace(CallerIdDirectory.VENDOR, Map.of("vendor:2", vendor(2, "Bolt Co", "555-0103")), since);
+
+		assertNull(directory.get(PhoneNumbers.encode("555-0101")));
+		assertEquals("Bolt Co", directory.get(PhoneNumbers.encode("555-0103"))[0].getName());
+		assertEquals("Pat", directory.get(PhoneNumbers.encode("555-0102"))[0].getName());
+	}
+
+	@Test
+	void reloadMovesChangedNumbers() {
+		CallerIdDirectory.StoreDirectory directory = new CallerIdDirectory.StoreDirectory(4);
+		directory.move("vendor:1", vendor(1, "Acme", "555-0101"));
+
+		directory.replace(CallerIdDirectory.VENDOR, Map.of("vendor:1", vendor(1, "Acme", "555-0199")),
+				directory.sequence());
+
+		assertNull(directory.get(PhoneNumbers.encode("555-0101")));
+		assertEquals(1, directory.get(PhoneNumbers.encode("555-0199")).length);
+	}
+
+	@Test
+	void localWritesDuringAReloadSurviveIt() {
+		CallerIdDirectory.StoreDirectory directory = new CallerIdDirectory.StoreDirectory(4);
+		directory.move("vendor:1", vendor(1, "Acme", "555-0101"));
+		long since = directory.sequence();
+
+		// written locally after the reload read the table
+		directory.update("vendor:2", vendor(2, "Bolt Co", "555-0103"));
+		directory.update("vendor:1", null);
+
+		directory.replace(CallerIdDirectory.VENDOR, Map.of("vendor:1", vendor(1, "Acme", "555-0101")), since);
+
+		assertNull(directory.get(PhoneNumbers.encode("555-0101")));
+		assertEquals("Bolt Co", directory.get(PhoneNumbers.encode("555-0103"))[0].getName());
+	}
+
+	@Test
+	void localWritesBeforeAReloadDoNotOverrideIt() {
+		CallerIdDirectory.StoreDirectory directory = new CallerIdDirectory.StoreDirectory(4);
+		directory.update("vendor:1", vendor(1, "Acme", "555-0101"));
+
+		directory.replace(CallerIdDirectory.VENDOR, Map.of(), directory.sequence());
+
+		assertNull(directory.get(PhoneNumbers.encode("555-0101")));
+	}
+
+	private static CallerMatch vendor(int id, String name, String phoneNumber) {
+		return new CallerMatch(CallerIdDirectory.VENDOR, String.valueOf(id), name, phoneNumber);
+	}
+
+	private static CallerMatch employee(int id, String name, String phoneNumber) {
+		return new CallerMatch(CallerIdDirectory.EMPLOYEE, String.valueOf(id), name, phoneNumber);
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.AceHardwareStore.search;
+
+import com.example.AceHardwareStore.events.VendorChangedEvent;
+import com.example.AceHardwareStore.models.Vendor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which vendor table changes rebuild the typeahead index and how changes apply to it
+ */
+class VendorTypeaheadTests {
+
+	@Test
+	void spanOfLocalVersionsDoesNotRebuild() {
+		NavigableSet<Long> local = new TreeSet<>(List.of(4L, 5L, 6L));
+		assertTrue(VendorTypeahead.onlyLocal(local, 3L, 6L));
+		assertTrue(VendorTypeahead.onlyLocal(local, 4L, 5L));
+		assertTrue(VendorTypeahead.onlyLocal(local, 6L, 5L));
+	}
+
+	@Test
+	void spanWithARemoteVersionRebuilds() {
+		NavigableSet<Long> local = new TreeSet<>(List.of(4L, 6L));
+		assertFalse(VendorTypeahead.onlyLocal(local, 3L, 6L));
+		assertFalse(VendorTypeahead.onlyLocal(local, 6L, 7L));
+		assertFalse(VendorTypeahead.onlyLocal(new TreeSet<>(), 1L, 1000000L));
+	}
+
+	@Test
+	void unknownVersionsRebuild() {
+		NavigableSet<Long> local = new TreeSet<>(List.of(4L));
+		assertFalse(VendorTypeahead.onlyLocal(local, null, 4L));
+		assertFalse(VendorTypeahead.onlyLocal(local, 3L, null));
+	}
+
+	@Test
+	void indexFindsWordsAndAppliesChanges() {
+		VendorTypeahead.VendorIndex index = new VendorTypeahead.VendorIndex();
+		index.put(vendor(1, "Bolt Supply", 0));
+		index.put(vendor(2, "Acme Bolts", 0));
+
+		assertEquals(List.of(1, 2), ids(index.search("bolt", 10)));
+		assertEquals(List.of(1), ids(index.search("supply", 10)));
+
+		index.apply(new VendorChangedEvent(null, 1, vendor(1, "Nail Supply", 1), 7));
+		assertEquals(List.of(2), ids(index.search("bolt", 10)));
+		assertEquals(List.of(1), ids(index.search("nail", 10)));
+
+		index.apply(new VendorChangedEvent(null, 2, null, 8));
+		assertEquals(List.of(), ids(index.search("acme", 10)));
+	}
+
+	@Test
+	void olderVersionDoesNotReplaceNewer() {
+		VendorTypeahead.VendorIndex index = new VendorTypeahead.VendorIndex();
+		index.put(vendor(1, "Nail Supply", 2));
+		index.put(vendor(1, "Bolt Supply", 1));
+
+		assertEquals(List.of(1), ids(index.search("nail", 10)));
+		assertEquals(List.of(), ids(index.search("bolt", 10)));
+	}
+
+	private static Vendor vendor(int id, String name, long version) {
+		return new Vendor(id, name, "", "", "", 1, version);
+	}
+
+	private static List<Integer> ids(List<Vendor> vendors) {
+		return vendors.stream().map(Vendor::getVendorId).toList();
+	}
+}
@@ -0,0 +1,177 @@
+package com.example.AceHardwareStore.security;
+
+import com.example.AceHardwareStore.cache.NearCache;
+import com.example.AceHardwareStore.daos.UserDao;
+import com.example.AceHardwareStore.events.UserChangedEvent;
+import com.example.AceHardwareStore.events.UserRolesChangedEvent;
+import com.example.AceHardwareStore.events.UserStoreChangedEvent;
+import com.example.AceHardwareStore.models.User;
+import com.example.AceHardwareStore.stores.StoreJwtUser;
+import com.example.AceHardwareStore.stores.StoreProperties;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import eu.fraho.spring.securityJwt.base.config.TokenProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks reuse of verified tokens and the refusal of tokens issued before a role or store change or deletion
+ */
+class VerifiedTokenCacheTests {
+
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes();
+
+	private VerifiedTokenCache cache;
+	private UserDao userDao;
+	private final AtomicInteger verifications = new AtomicInteger();
+
+	@BeforeEach
+	void createCache() {
+		userDao = mock(UserDao.class);
+		cache = new VerifiedTokenCache(new TokenCacheProperties(), new StoreProperties(), new TokenProperties(),
+				userDao, mock(NearCache.class));
+	}
+
+	@Test
+	void verifiedTokenIsReused() throws Exception {
+		String token = token("pat", System.currentTimeMillis());
+		assertTrue(cache.parseUser(token, verifier("pat")).isPresent());
+		assertTrue(cache.parseUser(token, verifier("pat")).isPresent());
+		assertEquals(1, verifications.get());
+		assertEquals(1L, cache.getMetrics().get("hits"));
+	}
+
+	@Test
+	void roleChangeRefusesEarlierTokens() throws Exception {
+		long now = System.currentTimeMillis();
+		String earlier = token("pat", now - 60_000);
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isPresent());
+
+		cache.onUserRolesChanged(new UserRolesChangedEvent(null, "pat"));
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isEmpty());
+		assertTrue(cache.parseUser(token("pat", now + 60_000), verifier("pat")).isPresent());
+		assertTrue(cache.parseUser(token("sam", now - 60_000), verifier("sam")).isPresent());
+		assertEquals(1L, cache.getMetrics().get("refusedRevoked"));
+	}
+
+	@Test
+	void deletionRefusesEarlierTokensEvenAfterTheUserIsCreatedAgain() throws Exception {
+		long now = System.currentTimeMillis();
+		String earlier = token("pat", now - 60_000);
+
+		cache.onUserChanged(new UserChangedEvent(null, "pat", null));
+		cache.onUserChanged(new UserChangedEvent(null, "pat", new User()));
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isEmpty());
+		assertTrue(cache.parseUser(token("pat", now + 60_000), verifier("pat")).isPresent());
+	}
+
+	@Test
+	void tokenOfTheSecondOfTheChangeIsAccepted() throws Exception {
+		long second = System.currentTimeMillis() / 1000 * 1000;
+		String earlier = token("pat", second - 1);
+		String sameSecond = token("pat", second + 900);
+
+		cache.onUserRolesChanged(new UserRolesChangedEvent(null, "pat"));
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isEmpty());
+		assertTrue(cache.parseUser(sameSecond, verifier("pat")).isPresent(),
+				"a token issued right after the change was refused for its whole lifetime");
+	}
+
+	@Test
+	void revocationOnAnotherInstanceRefusesEarlierTokens() throws Exception {
+		long now = System.currentTimeMillis();
+		String earlier = token("pat", now - 60_000);
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isPresent());
+		when(userDao.getTokenRevocations(any())).thenReturn(Map.of("pat", Instant.ofEpochMilli(now - 30_000)));
+
+		cache.reloadRevocations();
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isEmpty(), "a cached token survived a revocation elsewhere");
+		assertTrue(cache.parseUser(token("pat", now), verifier("pat")).isPresent());
+	}
+
+	@Test
+	void storeChangeRefusesEarlierTokensOfAnyStore() throws Exception {
+		long now = System.currentTimeMillis();
+		String earlier = token("pat", "north", now - 60_000);
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isPresent());
+
+		cache.onUserStoreChanged(new UserStoreChangedEvent(null, "pat"));
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isEmpty());
+		assertTrue(cache.parseUser(token("pat", "south", now + 60_000), verifier("pat")).isPresent());
+	}
+
+	@Test
+	void userChangesOutsideTheDefaultStoreAreIgnored() throws Exception {
+		String earlier = token("pat", "north", System.currentTimeMillis() - 60_000);
+
+		cache.onUserRolesChanged(new UserRolesChangedEvent("north", "pat"));
+
+		assertTrue(cache.parseUser(earlier, verifier("pat")).isPresent());
+	}
+
+	@Test
+	void revocationsOlderThanTheTokenLifetimeArePruned() throws Exception {
+		TokenProperties tokenProperties = new TokenProperties();
+		tokenProperties.setExpiration(new TimeWithPeriod(0, ChronoUnit.SECONDS));
+		cache = new VerifiedTokenCache(new TokenCacheProperties(), new StoreProperties(), tokenProperties,
+				userDao, mock(NearCache.class));
+
+		cache.onUserRolesChanged(new UserRolesChangedEvent(null, "pat"));
+		Thread.sleep(5);
+		cache.onUserRolesChanged(new UserRolesChangedEvent(null, "sam"));
+
+		assertEquals(1, cache.getMetrics().get("revokedUsers"));
+	}
+
+	private Function<String, Optional<JwtUser>> verifier(String username) {
+		return token -> {
+			verifications.incrementAndGet();
+			JwtUser user = new JwtUser();
+			user.setUsername(username);
+			return Optional.of(user);
+		};
+	}
+
+	private static String token(String username, long issuedAt) throws Exception {
+		return token(username, null, issuedAt);
+	}
+
+	/**
+	 * Signs a token with the claims a login of a user bound to a store produces
+	 */
+	private static String token(String username, String storeId, long issuedAt) throws Exception {
+		StoreJwtUser user = new StoreJwtUser(new StoreProperties().getClaim(), storeId);
+		user.setUsername(username);
+		JWTClaimsSet claims = user.toClaims()
+				.issueTime(new Date(issuedAt))
+				.expirationTime(new Date(issuedAt + 3_600_000))
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+		jwt.sign(new MACSigner(SECRET));
+		return jwt.serialize();
+	}
+}